@@ -59,6 +59,14 @@ public class Box {
         return false;
     }
 
+    /**
+     * Marks the box as not completed again, used when a move is taken back.
+     */
+    public void uncomplete() {
+        isCompleted = false;
+        completedBy = ' ';
+    }
+
     public int getClaimedEdgeCount() {
         int count = 0;
         if (topEdge.isClaimed()) count++;
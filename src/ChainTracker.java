@@ -0,0 +1,278 @@
+/**
+ * ChainTracker.java
+ *
+ * Keeps track of the chains and loops of a Dots and Boxes board.
+ *
+ * A box with exactly two claimed sides has two open sides, and whoever
+ * takes it must keep going through those open sides. Boxes like that which
+ * are joined through open sides form either a chain (a path whose ends open
+ * onto the border or onto a box with more open sides) or a loop (a cycle).
+ * Endgame play is decided almost entirely by these components.
+ *
+ * The tracker stores the claimed sides of every box and is told about each
+ * edge that is claimed or released. On a change it only re-walks the few
+ * components touching the two boxes beside that edge, so an update costs
+ * O(length of those components) and every count below is read in O(1).
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public class ChainTracker {
+    // Side bits of a box
+    private static final int TOP = 1;
+    private static final int BOTTOM = 2;
+    private static final int LEFT = 4;
+    private static final int RIGHT = 8;
+
+    private final int rows;
+    private final int cols;
+
+    // Claimed sides of every box as TOP | BOTTOM | LEFT | RIGHT bits
+    private final byte[] sides;
+
+    // Component statistics
+    private final int[] chainsOfLength;
+    private final int[] loopsOfLength;
+    private int chainCount;
+    private int loopCount;
+    private int longChainCount;
+    private int boxesInChains;
+    private int boxesInLoops;
+
+    // Scratch space for walking components
+    private final int[] visitMark;
+    private final int[] stack;
+    private int stackSize;
+    private int epoch;
+    private int walkLength;
+    private int walkLinks;
+    private boolean walkIsLoop;
+    private final int[] touched = new int[10];
+
+    /**
+     * Creates a tracker for an empty board
+     * @param rows number of rows of boxes
+     * @param cols number of columns of boxes
+     */
+    public ChainTracker(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        int boxes = rows * cols;
+
+        sides = new byte[boxes];
+        chainsOfLength = new int[boxes + 1];
+        loopsOfLength = new int[boxes + 1];
+        visitMark = new int[boxes];
+        stack = new int[boxes];
+        epoch = 0;
+    }
+
+    /**
+     * Copy constructor - duplicates the state of another tracker
+     * @param other tracker to copy
+     */
+    public ChainTracker(ChainTracker other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+
+        sides = other.sides.clone();
+        chainsOfLength = other.chainsOfLength.clone();
+        loopsOfLength = other.loopsOfLength.clone();
+        chainCount = other.chainCount;
+        loopCount = other.loopCount;
+        longChainCount = other.longChainCount;
+        boxesInChains = other.boxesInChains;
+        boxesInLoops = other.boxesInLoops;
+
+        visitMark = new int[sides.length];
+        stack = new int[sides.length];
+        epoch = 0;
+    }
+
+    /**
+     * Records that a horizontal edge was claimed or released
+     * @param row edge row (0 to rows)
+     * @param col edge column (0 to cols-1)
+     * @param claimed true if the edge is now claimed, false if released
+     */
+    public void horizontalEdgeChanged(int row, int col, boolean claimed) {
+        int above = row > 0 ? (row - 1) * cols + col : -1;
+        int below = row < rows ? row * cols + col : -1;
+        edgeChanged(above, BOTTOM, below, TOP, claimed);
+    }
+
+    /**
+     * Records that a vertical edge was claimed or released
+     * @param row edge row (0 to rows-1)
+     * @param col edge column (0 to cols)
+     * @param claimed true if the edge is now claimed, false if released
+     */
+    public void verticalEdgeChanged(int row, int col, boolean claimed) {
+        int left = col > 0 ? row * cols + col - 1 : -1;
+        int right = col < cols ? row * cols + col : -1;
+        edgeChanged(left, RIGHT, right, LEFT, claimed);
+    }
+
+    /**
+     * Removes the components around the edge from the statistics, applies
+     * the change, then adds back whatever components are there now.
+     * Any component that can change contains one of the two boxes or one of
+     * their open neighbours, so only those need to be walked.
+     */
+    private void edgeChanged(int first, int firstSide, int second, int secondSide,
+                             boolean claimed) {
+        int count = 0;
+        count = addWithNeighbours(first, count);
+        count = addWithNeighbours(second, count);
+
+        recount(count, -1);
+
+        if (first >= 0) {
+            sides[first] = (byte) (claimed ? sides[first] | firstSide : sides[first] & ~firstSide);
+        }
+        if (second >= 0) {
+            sides[second] = (byte) (claimed ? sides[second] | secondSide : sides[second] & ~secondSide);
+        }
+
+        recount(count, 1);
+    }
+
+    private int addWithNeighbours(int box, int count) {
+        if (box < 0) return count;
+        touched[count++] = box;
+        int open = ~sides[box];
+        int row = box / cols;
+        int col = box % cols;
+        if ((open & TOP) != 0 && row > 0) touched[count++] = box - cols;
+        if ((open & BOTTOM) != 0 && row < rows - 1) touched[count++] = box + cols;
+        if ((open & LEFT) != 0 && col > 0) touched[count++] = box - 1;
+        if ((open & RIGHT) != 0 && col < cols - 1) touched[count++] = box + 1;
+        return count;
+    }
+
+    /**
+     * Walks every component containing one of the touched boxes once and
+     * adds (sign = 1) or removes (sign = -1) it from the statistics
+     */
+    private void recount(int count, int sign) {
+        epoch++;
+        for (int i = 0; i < count; i++) {
+            int box = touched[i];
+            if (!isChainBox(box) || visitMark[box] == epoch) continue;
+
+            walk(box);
+            if (walkIsLoop) {
+                loopsOfLength[walkLength] += sign;
+                loopCount += sign;
+                boxesInLoops += sign * walkLength;
+            } else {
+                chainsOfLength[walkLength] += sign;
+                chainCount += sign;
+                boxesInChains += sign * walkLength;
+                if (walkLength >= 3) longChainCount += sign;
+            }
+        }
+    }
+
+    /**
+     * Collects the component of a chain box, setting walkLength and walkIsLoop.
+     * A component is a loop when it has as many links as boxes.
+     */
+    private void walk(int start) {
+        stackSize = 0;
+        stack[stackSize++] = start;
+        visitMark[start] = epoch;
+        walkLength = 0;
+        walkLinks = 0;
+
+        while (stackSize > 0) {
+            int box = stack[--stackSize];
+            walkLength++;
+
+            int open = ~sides[box];
+            int row = box / cols;
+            int col = box % cols;
+            if ((open & TOP) != 0 && row > 0) follow(box - cols);
+            if ((open & BOTTOM) != 0 && row < rows - 1) follow(box + cols);
+            if ((open & LEFT) != 0 && col > 0) follow(box - 1);
+            if ((open & RIGHT) != 0 && col < cols - 1) follow(box + 1);
+        }
+
+        // Every link was counted from both of its boxes
+        walkIsLoop = walkLinks / 2 == walkLength;
+    }
+
+    /**
+     * Looks at an open neighbour during a walk, counting it as a link and
+     * queueing it if it is a chain box that has not been seen yet
+     */
+    private void follow(int neighbour) {
+        if (!isChainBox(neighbour)) return;
+        walkLinks++;
+        if (visitMark[neighbour] != epoch) {
+            visitMark[neighbour] = epoch;
+            stack[stackSize++] = neighbour;
+        }
+    }
+
+    private boolean isChainBox(int box) {
+        return Integer.bitCount(sides[box]) == 2;
+    }
+
+    // Statistics, all O(1)
+
+    /**
+     * Gets the number of chains (open-ended components)
+     * @return chain count
+     */
+    public int getChainCount() {
+        return chainCount;
+    }
+
+    /**
+     * Gets the number of chains of exactly the given length
+     * @param length number of boxes
+     * @return matching chain count
+     */
+    public int getChainCount(int length) {
+        return length > 0 && length < chainsOfLength.length ? chainsOfLength[length] : 0;
+    }
+
+    /**
+     * Gets the number of chains of three or more boxes, the ones that
+     * matter for the long chain rule
+     * @return long chain count
+     */
+    public int getLongChainCount() {
+        return longChainCount;
+    }
+
+    /**
+     * Gets the number of loops (closed components)
+     * @return loop count
+     */
+    public int getLoopCount() {
+        return loopCount;
+    }
+
+    /**
+     * Gets the number of loops of exactly the given length
+     * @param length number of boxes
+     * @return matching loop count
+     */
+    public int getLoopCount(int length) {
+        return length > 0 && length < loopsOfLength.length ? loopsOfLength[length] : 0;
+    }
+
+    public int getBoxesInChains() { return boxesInChains; }
+    public int getBoxesInLoops() { return boxesInLoops; }
+
+    /**
+     * Gets the longest length a component could have, for looping over the
+     * per-length counts
+     * @return number of boxes on the board
+     */
+    public int getMaxLength() {
+        return chainsOfLength.length - 1;
+    }
+}
@@ -4,19 +4,20 @@
  * Wraps common colors and simplifies colored printing with or without newlines.
  *
  * Author: Priyanshu and Lyu
- * Version: 1.1
+ * Version: 1.2
  */
 public class ColorPrinter {
 
-    // ANSI codes for various colors used in the console output
-    private static final String RESET = "\u001B[0m";
+    // ANSI codes for various colors used in the console output; package
+    // visible so FrameRenderer can build frames with the same colors
+    static final String RESET = "\u001B[0m";
 
-    private static final String RED = "\u001B[31m";
-    private static final String GREEN = "\u001B[32m";
-    private static final String YELLOW = "\u001B[33m";
-    private static final String BLUE = "\u001B[34m";
-    private static final String MAGENTA = "\u001B[35m";
-    private static final String CYAN = "\u001B[36m";
+    static final String RED = "\u001B[31m";
+    static final String GREEN = "\u001B[32m";
+    static final String YELLOW = "\u001B[33m";
+    static final String BLUE = "\u001B[34m";
+    static final String MAGENTA = "\u001B[35m";
+    static final String CYAN = "\u001B[36m";
 
     /**
      * Prints text in given color *without* a newline.
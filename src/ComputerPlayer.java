@@ -0,0 +1,54 @@
+/**
+ * ComputerPlayer.java
+ * A Dots and Boxes player whose moves come from a DotsAndBoxesEngine
+ * (alpha-beta search by default) instead of the keyboard.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.1
+ */
+public class ComputerPlayer extends Player {
+    private final DotsAndBoxesEngine engine;
+
+    /**
+     * Creates a computer player with the default thinking time,
+     * searching on every available core
+     * @param name display name
+     * @param symbol board symbol
+     */
+    public ComputerPlayer(String name, char symbol) {
+        this(name, symbol, new DotsAndBoxesAI());
+        int cores = Runtime.getRuntime().availableProcessors();
+        engine.setThreadCount(Math.min(cores, DotsAndBoxesAI.MAX_THREADS));
+    }
+
+    /**
+     * Creates a computer player using the given search
+     * @param name display name
+     * @param symbol board symbol
+     * @param engine search used to pick moves
+     */
+    public ComputerPlayer(String name, char symbol, DotsAndBoxesEngine engine) {
+        super(name, symbol);
+        this.engine = engine;
+    }
+
+    /**
+     * Picks a move for this player on the given board
+     * @param board current board, left unchanged
+     * @param opponentSymbol symbol of the other player
+     * @return chosen move (see DotsAndBoxesMove), or NO_MOVE if the game is over
+     */
+    public int chooseMove(DotsAndBoxesBoard board, char opponentSymbol) {
+        DotsAndBoxesBitBoard position =
+                DotsAndBoxesBitBoard.fromBoard(board, getSymbol(), opponentSymbol);
+        return engine.chooseMove(position);
+    }
+
+    /**
+     * Gets the search behind this player, e.g. to read its statistics
+     * @return the engine
+     */
+    public DotsAndBoxesEngine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,437 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DotsAndBoxesAI.java
+ *
+ * Game-tree search for Dots and Boxes. Uses negamax with alpha-beta pruning
+ * on a DotsAndBoxesBitBoard, deepening one ply at a time until the time or
+ * node budget runs out.
+ *
+ * Values are "boxes I will win from here minus boxes the opponent will win".
+ * Because completing a box earns another turn, a capturing move is searched
+ * from the same player's point of view (no negation) and does not use up
+ * depth; only moves that hand the turn over are negated and count as a ply.
+ * Leaves keep taking available boxes before they are scored.
+ *
+ * Once no safe move is left, the position is valued exactly by
+ * DotsAndBoxesEndgame instead of being searched further.
+ *
+ * With more than one thread the search runs as "Lazy SMP": every helper
+ * thread searches the same root on its own board copy, with a different
+ * starting depth and move order, and they all share the lock-free
+ * transposition table. Helpers fill the table with results the main thread
+ * then reuses; the move played is always the main thread's.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.2
+ */
+public class DotsAndBoxesAI implements DotsAndBoxesEngine {
+    public static final int DEFAULT_TIME_LIMIT_MS = 1000;
+    public static final int DEFAULT_TABLE_MB = 16;
+    public static final int MAX_THREADS = 64;
+
+    private static final int INFINITY = 10000;
+    private static final int CHECK_INTERVAL = 1024;
+
+    // Move ordering buckets, lower is searched first
+    private static final int ORDER_CAPTURE = 0;
+    private static final int ORDER_SAFE = 1;
+    private static final int ORDER_SACRIFICE = 2;
+
+    private final long timeLimitNanos;
+    private final long nodeLimit;
+    private final TranspositionTable table;
+    private int threadCount;
+    private int depthLimit;
+    private ExecutorService helperPool;
+
+    // Shared by all workers of the running search
+    private volatile boolean stopped;
+    private long deadline;
+    private final AtomicLong sharedNodes = new AtomicLong();
+
+    // Results of the last search
+    private int lastDepth;
+    private int lastValue;
+    private long lastNodes;
+    private long lastTimeNanos;
+    private long lastEndgameHits;
+
+    /**
+     * Creates an AI with the default one second budget per move
+     */
+    public DotsAndBoxesAI() {
+        this(DEFAULT_TIME_LIMIT_MS, 0);
+    }
+
+    /**
+     * Creates an AI with the given budget per move
+     * @param timeLimitMs thinking time per move in milliseconds (0 for no time limit)
+     * @param nodeLimit searched positions per move (0 for no node limit)
+     * @throws IllegalArgumentException if both limits are 0 or either is negative
+     */
+    public DotsAndBoxesAI(int timeLimitMs, long nodeLimit) {
+        this(timeLimitMs, nodeLimit, new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * Creates an AI with the given budget per move and transposition table
+     * @param timeLimitMs thinking time per move in milliseconds (0 for no time limit)
+     * @param nodeLimit searched positions per move (0 for no node limit)
+     * @param table transposition table to use
+     * @throws IllegalArgumentException if both limits are 0 or either is negative
+     */
+    public DotsAndBoxesAI(int timeLimitMs, long nodeLimit, TranspositionTable table) {
+        if (timeLimitMs < 0 || nodeLimit < 0 || (timeLimitMs == 0 && nodeLimit == 0)) {
+            throw new IllegalArgumentException("The AI needs a time or node limit");
+        }
+        this.timeLimitNanos = timeLimitMs * 1_000_000L;
+        this.nodeLimit = nodeLimit;
+        this.table = table;
+        this.threadCount = 1;
+        this.depthLimit = 0;
+    }
+
+    /**
+     * Sets how many threads search each move
+     * @param threads number of search threads (1 to MAX_THREADS)
+     * @throws IllegalArgumentException if the count is out of range
+     */
+    @Override
+    public void setThreadCount(int threads) {
+        if (threads < 1 || threads > MAX_THREADS) {
+            throw new IllegalArgumentException("Thread count must be between 1 and " + MAX_THREADS);
+        }
+        if (threads != threadCount) {
+            shutdown();
+            threadCount = threads;
+        }
+    }
+
+    /**
+     * Stops deepening once the given depth has been searched
+     * @param depth deepest iteration to run, or 0 for no limit
+     */
+    public void setDepthLimit(int depth) {
+        this.depthLimit = Math.max(0, depth);
+    }
+
+    /**
+     * Stops the helper threads. The AI can still be used afterwards;
+     * the threads are started again on the next search.
+     */
+    @Override
+    public void shutdown() {
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+            helperPool = null;
+        }
+    }
+
+    /**
+     * Finds the best move for the player to move. The board is used as
+     * scratch space by the main thread but is left exactly as it was.
+     *
+     * @param position position to search
+     * @return best move found (see DotsAndBoxesMove), or NO_MOVE if the game is over
+     */
+    @Override
+    public int chooseMove(DotsAndBoxesBitBoard position) {
+        long start = System.nanoTime();
+        deadline = start + timeLimitNanos;
+        stopped = false;
+        sharedNodes.set(0);
+        table.newSearch();
+
+        List<Future<?>> helpers = new ArrayList<>();
+        List<Worker> helperWorkers = new ArrayList<>();
+        if (threadCount > 1 && !position.isGameOver()) {
+            if (helperPool == null) {
+                helperPool = Executors.newFixedThreadPool(threadCount - 1, runnable -> {
+                    Thread thread = new Thread(runnable, "dots-and-boxes-search");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            for (int id = 1; id < threadCount; id++) {
+                Worker helper = new Worker(position.copy(), id);
+                helperWorkers.add(helper);
+                helpers.add(helperPool.submit(helper::iterate));
+            }
+        }
+
+        Worker main = new Worker(position, 0);
+        int bestMove = main.iterate();
+
+        // The main thread decides; helpers stop as soon as it is done
+        stopped = true;
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search thread failed", e.getCause());
+            }
+        }
+
+        long nodes = main.nodes;
+        long endgameHits = main.endgameHits;
+        for (Worker helper : helperWorkers) {
+            nodes += helper.nodes;
+            endgameHits += helper.endgameHits;
+        }
+        lastDepth = main.completedDepth;
+        lastValue = main.completedValue;
+        lastNodes = nodes;
+        lastEndgameHits = endgameHits;
+        lastTimeNanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    /**
+     * One search thread with its own board and move buffers
+     */
+    private class Worker {
+        private final DotsAndBoxesBitBoard board;
+        private final int id;
+        private final int[][] moveBuffers;
+        private final int[] orderScratch;
+        private final int[] orderBuckets;
+        private long nodes;
+        private long unreportedNodes;
+        private long endgameHits;
+        private int rootBestMove;
+        private int completedDepth;
+        private int completedValue;
+
+        Worker(DotsAndBoxesBitBoard board, int id) {
+            this.board = board;
+            this.id = id;
+            this.moveBuffers = new int[board.getRemainingMoves() + 1][board.getMaxMoves()];
+            this.orderScratch = new int[board.getMaxMoves()];
+            this.orderBuckets = new int[board.getMaxMoves()];
+        }
+
+        /**
+         * Iterative deepening: every finished depth refines the best move.
+         * Odd helpers start one ply deeper so threads spread over depths.
+         * @return best move of the deepest finished iteration
+         */
+        int iterate() {
+            int rootCount = orderMoves(moveBuffers[0], DotsAndBoxesMove.NO_MOVE, 0);
+            int bestMove = rootCount > 0 ? moveBuffers[0][0] : DotsAndBoxesMove.NO_MOVE;
+            int maxDepth = board.getRemainingMoves();
+            if (depthLimit > 0) maxDepth = Math.min(maxDepth, depthLimit);
+
+            for (int depth = 1 + (id & 1); rootCount > 0 && depth <= maxDepth; depth++) {
+                int value = negamax(depth, -INFINITY, INFINITY, 0);
+                if (stopped) break;
+
+                bestMove = rootBestMove;
+                completedDepth = depth;
+                completedValue = value;
+            }
+            return bestMove;
+        }
+
+        /**
+         * Alpha-beta search of the current position
+         * @param depth remaining plies (turn changes) to search
+         * @param alpha lower bound of interest
+         * @param beta upper bound of interest
+         * @param ply distance from the root, selects the move buffer
+         * @return value of the position for the player to move
+         */
+        private int negamax(int depth, int alpha, int beta, int ply) {
+            countNode();
+            if (stopped || board.isGameOver()) {
+                return 0;
+            }
+            if (ply > 0) {
+                int endgame = solveEndgame();
+                if (endgame != DotsAndBoxesEndgame.UNKNOWN) return endgame;
+            }
+            if (depth <= 0) {
+                return quiesce(alpha, beta, ply);
+            }
+
+            long key = board.getHash();
+            long entry = table.probe(key);
+            int hashMove = DotsAndBoxesMove.NO_MOVE;
+            if (entry != 0) {
+                hashMove = TranspositionTable.moveOf(entry);
+                if (TranspositionTable.depthOf(entry) >= depth && ply > 0) {
+                    int value = TranspositionTable.valueOf(entry);
+                    int bound = TranspositionTable.boundOf(entry);
+                    if (bound == TranspositionTable.BOUND_EXACT
+                            || (bound == TranspositionTable.BOUND_LOWER && value >= beta)
+                            || (bound == TranspositionTable.BOUND_UPPER && value <= alpha)) {
+                        return value;
+                    }
+                }
+            }
+
+            int[] moves = moveBuffers[ply];
+            int count = orderMoves(moves, hashMove, ply);
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            int bestMove = moves[0];
+
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                int boxes = board.makeMove(move);
+                int value;
+                if (boxes > 0) {
+                    // Same player moves again: no negation and no depth used
+                    value = boxes + negamax(depth, alpha - boxes, beta - boxes, ply + 1);
+                } else {
+                    value = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                }
+                board.unmakeMove();
+                if (stopped) return 0;
+
+                if (value > best) {
+                    best = value;
+                    bestMove = move;
+                }
+                if (best > alpha) alpha = best;
+                if (alpha >= beta) break;
+            }
+
+            int bound = best <= originalAlpha ? TranspositionTable.BOUND_UPPER
+                    : best >= beta ? TranspositionTable.BOUND_LOWER
+                    : TranspositionTable.BOUND_EXACT;
+            table.store(key, bestMove, best, depth, bound);
+            if (ply == 0) {
+                rootBestMove = bestMove;
+            }
+            return best;
+        }
+
+        /**
+         * Leaf search: the player to move may take any boxes on offer before
+         * the position is scored, or stop and score it as level. A position
+         * with no safe move left is scored exactly instead.
+         */
+        private int quiesce(int alpha, int beta, int ply) {
+            if (stopped) return 0;
+            int endgame = solveEndgame();
+            if (endgame != DotsAndBoxesEndgame.UNKNOWN) return endgame;
+
+            int[] moves = moveBuffers[ply];
+            int count = board.generateMoves(moves);
+            int best = 0;
+            if (best >= beta) return best;
+            if (best > alpha) alpha = best;
+
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (board.countBoxesCompletedBy(move) == 0) continue;
+
+                countNode();
+                int boxes = board.makeMove(move);
+                int value = boxes + (board.isGameOver() ? 0 : quiesce(alpha - boxes, beta - boxes, ply + 1));
+                board.unmakeMove();
+                if (stopped) return 0;
+
+                if (value > best) best = value;
+                if (best > alpha) alpha = best;
+                if (alpha >= beta) break;
+            }
+            return best;
+        }
+
+        /**
+         * Values the position exactly if no safe move is left. Such a solve
+         * can cost as much as hundreds of nodes, so the clock is read after
+         * each one instead of waiting for the next CHECK_INTERVAL nodes.
+         * @return net boxes the player to move wins, or UNKNOWN
+         */
+        private int solveEndgame() {
+            if (!DotsAndBoxesEndgame.isLoonyEndgame(board)) return DotsAndBoxesEndgame.UNKNOWN;
+            int value = DotsAndBoxesEndgame.solve(board);
+            if (timeLimitNanos > 0 && System.nanoTime() >= deadline) stopped = true;
+            if (value != DotsAndBoxesEndgame.UNKNOWN) endgameHits++;
+            return value;
+        }
+
+        /**
+         * Generates the legal moves and sorts them: hash move, captures, safe
+         * moves, then moves that give boxes away. Helpers rotate the order
+         * inside each bucket so they explore different parts of the tree.
+         * @return number of moves in the buffer
+         */
+        private int orderMoves(int[] moves, int hashMove, int ply) {
+            int count = board.generateMoves(moves);
+            int ordered = 0;
+            int offset = (id == 0 || count == 0) ? 0 : (id * 7 + ply) % count;
+            for (int i = 0; i < count; i++) {
+                orderBuckets[i] = orderOf(moves[i]);
+            }
+
+            if (hashMove != DotsAndBoxesMove.NO_MOVE) {
+                for (int i = 0; i < count; i++) {
+                    if (moves[i] == hashMove) {
+                        orderScratch[ordered++] = hashMove;
+                        break;
+                    }
+                }
+            }
+            for (int bucket = ORDER_CAPTURE; bucket <= ORDER_SACRIFICE; bucket++) {
+                for (int n = 0; n < count; n++) {
+                    int i = n + offset < count ? n + offset : n + offset - count;
+                    int move = moves[i];
+                    if (move != hashMove && orderBuckets[i] == bucket) {
+                        orderScratch[ordered++] = move;
+                    }
+                }
+            }
+
+            System.arraycopy(orderScratch, 0, moves, 0, count);
+            return count;
+        }
+
+        private int orderOf(int move) {
+            if (board.countBoxesCompletedBy(move) > 0) return ORDER_CAPTURE;
+            return board.isSafeMove(move) ? ORDER_SAFE : ORDER_SACRIFICE;
+        }
+
+        /**
+         * Counts a node and checks the shared budget every CHECK_INTERVAL nodes
+         */
+        private void countNode() {
+            nodes++;
+            if (++unreportedNodes < CHECK_INTERVAL) return;
+
+            long total = sharedNodes.addAndGet(unreportedNodes);
+            unreportedNodes = 0;
+            if (nodeLimit > 0 && total >= nodeLimit) {
+                stopped = true;
+            } else if (timeLimitNanos > 0 && System.nanoTime() >= deadline) {
+                stopped = true;
+            }
+        }
+    }
+
+    // Statistics about the last call to chooseMove
+
+    public int getThreadCount() { return threadCount; }
+    public int getLastDepth() { return lastDepth; }
+    public int getLastValue() { return lastValue; }
+    public long getLastNodes() { return lastNodes; }
+    public long getLastTimeMillis() { return lastTimeNanos / 1_000_000L; }
+    public long getLastTimeNanos() { return lastTimeNanos; }
+    public long getLastEndgameHits() { return lastEndgameHits; }
+
+    @Override
+    public String getLastSummary() {
+        return "depth " + lastDepth + ", " + lastNodes + " positions, " + getLastTimeMillis() + " ms";
+    }
+}
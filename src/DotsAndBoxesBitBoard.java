@@ -0,0 +1,938 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * DotsAndBoxesBitBoard.java
+ *
+ * Compact version of the Dots and Boxes board built on primitive bit masks
+ * instead of Edge and Box objects. It offers the same claiming API as
+ * DotsAndBoxesBoard, but copying it is just a handful of array clones,
+ * which is what simulation and AI code needs.
+ *
+ * Bit layout:
+ * - horizontal edge (r, c) is bit r * cols + c       (r = 0..rows, c = 0..cols-1)
+ * - vertical edge (r, c) is bit r * (cols + 1) + c   (r = 0..rows-1, c = 0..cols)
+ * - box (r, c) is bit r * cols + c                   (r = 0..rows-1, c = 0..cols-1)
+ *
+ * Regular boards follow the same 2-10 limits as DotsAndBoxesBoard. Large
+ * boards (see createLarge) go up to LARGE_MAX_SIZE per side: storage is
+ * about 13 bits per box (five of masks and a byte of claimed side count),
+ * nothing is allocated per edge, and a player's owner mask is only
+ * allocated once that player completes a box.
+ *
+ * A position can be written out and read back with its masks as raw longs
+ * (see writePosition), which is how game records store checkpoints.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.1
+ */
+public class DotsAndBoxesBitBoard {
+    public static final int MIN_SIZE = DotsAndBoxesBoard.MIN_SIZE;
+    public static final int MAX_SIZE = DotsAndBoxesBoard.MAX_SIZE;
+    // An undo record packs an edge index above UNDO_FLAG_BITS bits of flags
+    // into a non-negative int, so every edge index must be below MAX_EDGES
+    private static final int UNDO_FLAG_BITS = 3;
+    private static final int MAX_EDGES = 1 << (Integer.SIZE - 1 - UNDO_FLAG_BITS);
+    // Largest n whose n x n board has no more than MAX_EDGES edges: 2n(n + 1) <= MAX_EDGES
+    public static final int LARGE_MAX_SIZE = (int) ((Math.sqrt(2.0 * MAX_EDGES + 1) - 1) / 2);
+    public static final int PLAYER_COUNT = 2;
+
+    // Sides of a box, for the safe move bookkeeping
+    private static final int TOP = 0;
+    private static final int BOTTOM = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+
+    private final int rows;
+    private final int cols;
+    private final int totalBoxes;
+    private final int horizontalCount;
+    private final int verticalCount;
+
+    // One bit per edge / box, packed 64 to a long
+    private final long[] horizontalMask;
+    private final long[] verticalMask;
+    private final long[] completedMask;
+    // Claimed sides of each box, kept alongside the edge masks
+    private final byte[] sideCounts;
+
+    // One box mask per player slot, slot i belongs to symbols[i].
+    // A slot stays null until that player completes a box.
+    private final long[][] ownerMasks;
+    private final char[] symbols;
+    private final int[] scores;
+
+    private int completedBoxes;
+    private int claimedEdges;
+    // Boxes with exactly two claimed sides
+    private int twoSidedBoxes;
+    // Unclaimed edges whose boxes all have at most one claimed side
+    private int safeEdges;
+    // Slot of the player who claimed the most recent edge
+    private int lastClaimer;
+    // Slot of the player whose turn it is
+    private int sideToMove;
+    // XOR of the Zobrist keys of all claimed edges (see DotsAndBoxesHash)
+    private long edgeHash;
+    // Chains and loops, only kept once enableChainTracking() is called
+    private ChainTracker chains;
+
+    // One entry per makeMove: edge << UNDO_FLAG_BITS | previous claimer << 2 | completed-box flags.
+    // Edges are numbered horizontals first, then verticals.
+    private int[] undoStack;
+    private int undoSize;
+
+    /**
+     * Creates an empty board for the default 'X' and 'O' players.
+     * @param rows number of rows of boxes
+     * @param cols number of columns of boxes
+     * @throws IllegalArgumentException if dimensions are out of allowed bounds
+     */
+    public DotsAndBoxesBitBoard(int rows, int cols) {
+        this(rows, cols, 'X', 'O');
+    }
+
+    /**
+     * Creates an empty board for two players with the given symbols.
+     * @param rows number of rows of boxes
+     * @param cols number of columns of boxes
+     * @param firstSymbol symbol of the first player
+     * @param secondSymbol symbol of the second player
+     * @throws IllegalArgumentException if dimensions are out of allowed bounds
+     */
+    public DotsAndBoxesBitBoard(int rows, int cols, char firstSymbol, char secondSymbol) {
+        this(rows, cols, firstSymbol, secondSymbol, MAX_SIZE);
+    }
+
+    /**
+     * Creates an empty large board for the default 'X' and 'O' players.
+     * @param rows number of rows of boxes (2 to LARGE_MAX_SIZE)
+     * @param cols number of columns of boxes (2 to LARGE_MAX_SIZE)
+     * @return new large board
+     * @throws IllegalArgumentException if dimensions are out of allowed bounds
+     */
+    public static DotsAndBoxesBitBoard createLarge(int rows, int cols) {
+        return createLarge(rows, cols, 'X', 'O');
+    }
+
+    /**
+     * Creates an empty large board for two players with the given symbols.
+     * @param rows number of rows of boxes (2 to LARGE_MAX_SIZE)
+     * @param cols number of columns of boxes (2 to LARGE_MAX_SIZE)
+     * @param firstSymbol symbol of the first player
+     * @param secondSymbol symbol of the second player
+     * @return new large board
+     * @throws IllegalArgumentException if dimensions are out of allowed bounds
+     */
+    public static DotsAndBoxesBitBoard createLarge(int rows, int cols,
+                                                   char firstSymbol, char secondSymbol) {
+        return new DotsAndBoxesBitBoard(rows, cols, firstSymbol, secondSymbol, LARGE_MAX_SIZE);
+    }
+
+    private DotsAndBoxesBitBoard(int rows, int cols, char firstSymbol, char secondSymbol,
+                                 int maxSize) {
+        if (rows < MIN_SIZE || rows > maxSize || cols < MIN_SIZE || cols > maxSize) {
+            throw new IllegalArgumentException(
+                    "Board size must be between " + MIN_SIZE + " and " + maxSize);
+        }
+        if (firstSymbol == secondSymbol) {
+            throw new IllegalArgumentException("Players need different symbols");
+        }
+
+        this.rows = rows;
+        this.cols = cols;
+        this.totalBoxes = rows * cols;
+        this.horizontalCount = (rows + 1) * cols;
+        this.verticalCount = rows * (cols + 1);
+
+        horizontalMask = new long[wordsFor(horizontalCount)];
+        verticalMask = new long[wordsFor(verticalCount)];
+        completedMask = new long[wordsFor(totalBoxes)];
+        sideCounts = new byte[totalBoxes];
+        ownerMasks = new long[PLAYER_COUNT][];
+        symbols = new char[] { firstSymbol, secondSymbol };
+        scores = new int[PLAYER_COUNT];
+
+        completedBoxes = 0;
+        claimedEdges = 0;
+        safeEdges = horizontalCount + verticalCount;
+        lastClaimer = 0;
+        sideToMove = 0;
+        edgeHash = 0L;
+
+        undoStack = new int[Math.min(getMaxMoves(), 64)];
+        undoSize = 0;
+    }
+
+    /**
+     * Copy constructor - duplicates every mask of another board.
+     * The copy starts with an empty undo history.
+     * @param other board to copy
+     */
+    public DotsAndBoxesBitBoard(DotsAndBoxesBitBoard other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.totalBoxes = other.totalBoxes;
+        this.horizontalCount = other.horizontalCount;
+        this.verticalCount = other.verticalCount;
+
+        horizontalMask = other.horizontalMask.clone();
+        verticalMask = other.verticalMask.clone();
+        completedMask = other.completedMask.clone();
+        sideCounts = other.sideCounts.clone();
+        ownerMasks = new long[PLAYER_COUNT][];
+        for (int p = 0; p < PLAYER_COUNT; p++) {
+            if (other.ownerMasks[p] != null) {
+                ownerMasks[p] = other.ownerMasks[p].clone();
+            }
+        }
+        symbols = other.symbols.clone();
+        scores = other.scores.clone();
+
+        completedBoxes = other.completedBoxes;
+        claimedEdges = other.claimedEdges;
+        twoSidedBoxes = other.twoSidedBoxes;
+        safeEdges = other.safeEdges;
+        lastClaimer = other.lastClaimer;
+        sideToMove = other.sideToMove;
+        edgeHash = other.edgeHash;
+        if (other.chains != null) {
+            chains = new ChainTracker(other.chains);
+        }
+
+        undoStack = new int[Math.min(getMaxMoves(), 64)];
+        undoSize = 0;
+    }
+
+    /**
+     * Builds a bit board holding the same position as an object board.
+     * Boxes are credited to the symbol recorded on them; boxes marked with
+     * any other symbol count as completed but belong to nobody.
+     *
+     * @param board board to copy
+     * @param symbolToMove symbol of the player whose turn it is
+     * @param otherSymbol symbol of the other player
+     * @return bit board with the same edges and boxes, symbolToMove to move
+     */
+    public static DotsAndBoxesBitBoard fromBoard(DotsAndBoxesBoard board,
+                                                 char symbolToMove, char otherSymbol) {
+        DotsAndBoxesBitBoard copy = new DotsAndBoxesBitBoard(
+                board.getRows(), board.getCols(), symbolToMove, otherSymbol);
+
+        for (int r = 0; r <= copy.rows; r++) {
+            for (int c = 0; c < copy.cols; c++) {
+                if (board.getHorizontalEdge(r, c).isClaimed()) {
+                    copy.claimHorizontalEdge(r, c, symbolToMove);
+                }
+            }
+        }
+        for (int r = 0; r < copy.rows; r++) {
+            for (int c = 0; c <= copy.cols; c++) {
+                if (board.getVerticalEdge(r, c).isClaimed()) {
+                    copy.claimVerticalEdge(r, c, symbolToMove);
+                }
+            }
+        }
+
+        for (int r = 0; r < copy.rows; r++) {
+            for (int c = 0; c < copy.cols; c++) {
+                Box box = board.getBox(r, c);
+                if (!box.isCompleted()) continue;
+
+                int index = copy.boxIndex(r, c);
+                setBit(copy.completedMask, index);
+                copy.completedBoxes++;
+                for (int p = 0; p < PLAYER_COUNT; p++) {
+                    if (copy.symbols[p] == box.getCompletedBy()) {
+                        if (copy.ownerMasks[p] == null) {
+                            copy.ownerMasks[p] = new long[copy.completedMask.length];
+                        }
+                        setBit(copy.ownerMasks[p], index);
+                        copy.scores[p]++;
+                    }
+                }
+            }
+        }
+
+        copy.lastClaimer = 0;
+        copy.sideToMove = 0;
+        return copy;
+    }
+
+    /**
+     * Writes the position: whose turn it is, the claimed edges and the
+     * boxes each player owns. The undo history and chain tracking are left out.
+     * @param out destination
+     * @throws IOException if writing fails
+     */
+    public void writePosition(DataOutput out) throws IOException {
+        out.writeByte(sideToMove);
+        writeMask(out, horizontalMask);
+        writeMask(out, verticalMask);
+        for (int p = 0; p < PLAYER_COUNT; p++) {
+            if (ownerMasks[p] == null) {
+                for (int w = 0; w < completedMask.length; w++) out.writeLong(0L);
+            } else {
+                writeMask(out, ownerMasks[p]);
+            }
+        }
+    }
+
+    /**
+     * Reads a position written by writePosition onto a new board
+     * @param rows number of rows of boxes (2 to LARGE_MAX_SIZE)
+     * @param cols number of columns of boxes (2 to LARGE_MAX_SIZE)
+     * @param firstSymbol symbol of the first player
+     * @param secondSymbol symbol of the second player
+     * @param in source
+     * @return board in the written position, with an empty undo history
+     * @throws IOException if reading fails or the data is not a position of this size
+     */
+    public static DotsAndBoxesBitBoard readPosition(int rows, int cols, char firstSymbol, char secondSymbol,
+                                                    DataInput in) throws IOException {
+        DotsAndBoxesBitBoard board = createLarge(rows, cols, firstSymbol, secondSymbol);
+        int side = in.readUnsignedByte();
+        if (side >= PLAYER_COUNT) throw new IOException("Corrupt position: no player " + side);
+
+        long[] edges = readMask(in, board.horizontalMask.length, board.horizontalCount);
+        for (int index = nextSetBit(edges, 0); index >= 0; index = nextSetBit(edges, index + 1)) {
+            board.claimHorizontalEdge(index / cols, index % cols, firstSymbol);
+        }
+        edges = readMask(in, board.verticalMask.length, board.verticalCount);
+        for (int index = nextSetBit(edges, 0); index >= 0; index = nextSetBit(edges, index + 1)) {
+            board.claimVerticalEdge(index / (cols + 1), index % (cols + 1), firstSymbol);
+        }
+
+        for (int p = 0; p < PLAYER_COUNT; p++) {
+            long[] owned = readMask(in, board.completedMask.length, board.totalBoxes);
+            for (int box = nextSetBit(owned, 0); box >= 0; box = nextSetBit(owned, box + 1)) {
+                if (testBit(board.completedMask, box) || board.getClaimedEdgeCount(box / cols, box % cols) < 4) {
+                    throw new IOException("Corrupt position: box " + box + " cannot be owned");
+                }
+                setBit(board.completedMask, box);
+                board.completedBoxes++;
+                board.scores[p]++;
+            }
+            if (board.scores[p] > 0) board.ownerMasks[p] = owned;
+        }
+
+        board.lastClaimer = side;
+        board.sideToMove = side;
+        return board;
+    }
+
+    private static void writeMask(DataOutput out, long[] mask) throws IOException {
+        for (long word : mask) out.writeLong(word);
+    }
+
+    /**
+     * Reads a mask of a given size, rejecting bits past its end
+     */
+    private static long[] readMask(DataInput in, int words, int bits) throws IOException {
+        long[] mask = new long[words];
+        for (int w = 0; w < words; w++) mask[w] = in.readLong();
+        if ((bits & 63) != 0 && mask[words - 1] >>> (bits & 63) != 0) {
+            throw new IOException("Corrupt position: bits past the end of the board");
+        }
+        return mask;
+    }
+
+    private static int nextSetBit(long[] mask, int from) {
+        int w = from >>> 6;
+        if (w >= mask.length) return -1;
+        long word = mask[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == mask.length) return -1;
+            word = mask[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns an independent copy of this board.
+     * @return copied board
+     */
+    public DotsAndBoxesBitBoard copy() {
+        return new DotsAndBoxesBitBoard(this);
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getTotalBoxes() { return totalBoxes; }
+    public int getCompletedBoxes() { return completedBoxes; }
+
+    /**
+     * Gets the number of boxes with exactly two claimed sides. When every
+     * unfinished box is one of them, the board is only chains and loops.
+     * @return two-sided box count
+     */
+    public int getTwoSidedBoxCount() {
+        return twoSidedBoxes;
+    }
+
+    /**
+     * Gets the number of safe moves (see isSafeMove). Once it drops to zero
+     * every move hands boxes over and the endgame has begun.
+     * @return safe move count
+     */
+    public int getSafeMoveCount() {
+        return safeEdges;
+    }
+
+    /**
+     * Gets the symbol of the player whose turn it is
+     * @return symbol of the player to move
+     */
+    public char getSymbolToMove() {
+        return symbols[sideToMove];
+    }
+
+    /**
+     * Starts keeping chain and loop statistics for this board. The tracker is
+     * built once from the current edges and then updated by every claim and
+     * undo. It is off by default because large boards rarely need it and it
+     * costs about nine bytes per box.
+     * @return the tracker, also available through getChains()
+     */
+    public ChainTracker enableChainTracking() {
+        if (chains == null) {
+            chains = new ChainTracker(rows, cols);
+            for (int r = 0; r <= rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (testBit(horizontalMask, horizontalIndex(r, c))) {
+                        chains.horizontalEdgeChanged(r, c, true);
+                    }
+                }
+            }
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c <= cols; c++) {
+                    if (testBit(verticalMask, verticalIndex(r, c))) {
+                        chains.verticalEdgeChanged(r, c, true);
+                    }
+                }
+            }
+        }
+        return chains;
+    }
+
+    /**
+     * Gets the chain and loop statistics
+     * @return the tracker, or null if enableChainTracking() was never called
+     */
+    public ChainTracker getChains() {
+        return chains;
+    }
+
+    /**
+     * Gets the Zobrist hash of the claimed edges and the side to move.
+     * Scores are left out: what can still be won from a position does not
+     * depend on them, so this is the key to use for search tables.
+     * @return 64-bit position hash
+     */
+    public long getHash() {
+        return sideToMove == 0 ? edgeHash : edgeHash ^ DotsAndBoxesHash.SIDE_TO_MOVE_KEY;
+    }
+
+    /**
+     * Gets the position hash including the score difference, for telling
+     * apart games that reached the same edges with different scores.
+     * @return 64-bit position hash
+     */
+    public long getHashWithScore() {
+        return getHash() ^ DotsAndBoxesHash.scoreKey(scores[0] - scores[1]);
+    }
+
+    /**
+     * Gets the score of the player to move minus the score of the other player
+     * @return score difference from the point of view of the player to move
+     */
+    public int getScoreDifference() {
+        return scores[sideToMove] - scores[1 - sideToMove];
+    }
+
+    /**
+     * Check if the game has ended, i.e. all boxes are completed
+     * @return true if all boxes claimed, false otherwise
+     */
+    public boolean isGameOver() {
+        return completedBoxes == totalBoxes;
+    }
+
+    /**
+     * Claims a horizontal edge if possible. Raw claims are not recorded for
+     * undo, so a successful claim clears the undo history: unmakeMove can
+     * only take back makeMove calls made after it.
+     * @param row the row coordinate of the edge (0 to rows)
+     * @param col the column coordinate of the edge (0 to cols-1)
+     * @param symbol player symbol claiming the edge
+     * @return true if edge was successfully claimed, false if invalid or already claimed
+     * @throws IllegalArgumentException if the symbol does not belong to this board
+     */
+    public boolean claimHorizontalEdge(int row, int col, char symbol) {
+        int player = slotOf(symbol);
+        if (row < 0 || row > rows || col < 0 || col >= cols) return false;
+        int index = horizontalIndex(row, col);
+        if (testBit(horizontalMask, index)) return false;
+
+        setBit(horizontalMask, index);
+        edgeHash ^= DotsAndBoxesHash.edgeKey(index);
+        claimedEdges++;
+        lastClaimer = player;
+        undoSize = 0;
+        sidesChanged(row, col, true, true);
+        if (chains != null) chains.horizontalEdgeChanged(row, col, true);
+        return true;
+    }
+
+    /**
+     * Claims a vertical edge if possible. Like claimHorizontalEdge, a
+     * successful claim clears the undo history.
+     * @param row the row coordinate of the edge (0 to rows-1)
+     * @param col the column coordinate of the edge (0 to cols)
+     * @param symbol player symbol claiming the edge
+     * @return true if edge was successfully claimed, false if invalid or already claimed
+     * @throws IllegalArgumentException if the symbol does not belong to this board
+     */
+    public boolean claimVerticalEdge(int row, int col, char symbol) {
+        int player = slotOf(symbol);
+        if (row < 0 || row >= rows || col < 0 || col > cols) return false;
+        int index = verticalIndex(row, col);
+        if (testBit(verticalMask, index)) return false;
+
+        setBit(verticalMask, index);
+        edgeHash ^= DotsAndBoxesHash.edgeKey(horizontalCount + index);
+        claimedEdges++;
+        lastClaimer = player;
+        undoSize = 0;
+        sidesChanged(row, col, false, true);
+        if (chains != null) chains.verticalEdgeChanged(row, col, true);
+        return true;
+    }
+
+    /**
+     * After a move claiming a particular edge, check if any boxes adjacent to that edge got completed.
+     * Completed boxes are credited to the player who claimed the most recent edge, who
+     * also keeps the turn if anything was completed. This belongs with the
+     * claim methods, not makeMove, and clears the undo history as they do.
+     *
+     * @param row row coordinate of the claimed edge
+     * @param col column coordinate of the claimed edge
+     * @param horizontal true if horizontal edge, false if vertical edge
+     * @return number of boxes completed by this claim
+     */
+    public int checkForCompletedBoxes(int row, int col, boolean horizontal) {
+        int boxesCompletedThisMove = 0;
+
+        if (horizontal) {
+            if (col < 0 || col >= cols) return 0;
+            // Box above, then box below
+            if (row > 0 && row <= rows && completeIfSurrounded(row - 1, col)) {
+                boxesCompletedThisMove++;
+            }
+            if (row >= 0 && row < rows && completeIfSurrounded(row, col)) {
+                boxesCompletedThisMove++;
+            }
+        } else {
+            if (row < 0 || row >= rows) return 0;
+            // Box to the left, then box to the right
+            if (col > 0 && col <= cols && completeIfSurrounded(row, col - 1)) {
+                boxesCompletedThisMove++;
+            }
+            if (col >= 0 && col < cols && completeIfSurrounded(row, col)) {
+                boxesCompletedThisMove++;
+            }
+        }
+
+        sideToMove = boxesCompletedThisMove > 0 ? lastClaimer : 1 - lastClaimer;
+        undoSize = 0;
+        return boxesCompletedThisMove;
+    }
+
+    /**
+     * Plays a move for the player to move: claims the edge, completes any
+     * surrounded boxes and passes the turn unless a box was completed.
+     * The move can be taken back with unmakeMove.
+     *
+     * @param move encoded move (see DotsAndBoxesMove)
+     * @return number of boxes completed, or -1 if the move is not legal
+     */
+    public int makeMove(int move) {
+        if (!isLegalMove(move)) return -1;
+
+        boolean horizontal = DotsAndBoxesMove.isHorizontal(move);
+        int row = DotsAndBoxesMove.getRow(move);
+        int col = DotsAndBoxesMove.getCol(move);
+        int edge;
+        if (horizontal) {
+            edge = horizontalIndex(row, col);
+            setBit(horizontalMask, edge);
+        } else {
+            int index = verticalIndex(row, col);
+            setBit(verticalMask, index);
+            edge = horizontalCount + index;
+        }
+        edgeHash ^= DotsAndBoxesHash.edgeKey(edge);
+        claimedEdges++;
+        sidesChanged(row, col, horizontal, true);
+        if (chains != null) {
+            if (horizontal) {
+                chains.horizontalEdgeChanged(row, col, true);
+            } else {
+                chains.verticalEdgeChanged(row, col, true);
+            }
+        }
+
+        int previousClaimer = lastClaimer;
+        lastClaimer = sideToMove;
+
+        // Bit 0: box above / left of the edge, bit 1: box below / right of it
+        int flags = 0;
+        if (horizontal) {
+            if (row > 0 && completeIfSurrounded(row - 1, col)) flags |= 1;
+            if (row < rows && completeIfSurrounded(row, col)) flags |= 2;
+        } else {
+            if (col > 0 && completeIfSurrounded(row, col - 1)) flags |= 1;
+            if (col < cols && completeIfSurrounded(row, col)) flags |= 2;
+        }
+        if (flags == 0) {
+            sideToMove = 1 - sideToMove;
+        }
+
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, Math.min(undoSize * 2, getMaxMoves()));
+        }
+        undoStack[undoSize++] = (edge << UNDO_FLAG_BITS) | (previousClaimer << 2) | flags;
+        return Integer.bitCount(flags);
+    }
+
+    /**
+     * Takes back the most recent makeMove, restoring the edge, the boxes it
+     * completed, the scores and whose turn it is.
+     *
+     * @return true if a move was undone, false if there was nothing to undo
+     *         (no makeMove since the board was built or last claimed directly)
+     */
+    public boolean unmakeMove() {
+        if (undoSize == 0) return false;
+
+        int record = undoStack[--undoSize];
+        int flags = record & 3;
+        int edge = record >>> UNDO_FLAG_BITS;
+        int mover = lastClaimer;
+
+        int row;
+        int col;
+        boolean horizontal = edge < horizontalCount;
+        if (horizontal) {
+            clearBit(horizontalMask, edge);
+            row = edge / cols;
+            col = edge % cols;
+        } else {
+            int index = edge - horizontalCount;
+            clearBit(verticalMask, index);
+            row = index / (cols + 1);
+            col = index % (cols + 1);
+        }
+        edgeHash ^= DotsAndBoxesHash.edgeKey(edge);
+        claimedEdges--;
+        sidesChanged(row, col, horizontal, false);
+        if (chains != null) {
+            if (horizontal) {
+                chains.horizontalEdgeChanged(row, col, false);
+            } else {
+                chains.verticalEdgeChanged(row, col, false);
+            }
+        }
+
+        if ((flags & 1) != 0) {
+            uncomplete(horizontal ? row - 1 : row, horizontal ? col : col - 1, mover);
+        }
+        if ((flags & 2) != 0) {
+            uncomplete(row, col, mover);
+        }
+
+        sideToMove = mover;
+        lastClaimer = (record >>> 2) & 1;
+        return true;
+    }
+
+    /**
+     * Gets the number of moves that unmakeMove can still take back
+     * @return undo history length
+     */
+    public int getUndoDepth() {
+        return undoSize;
+    }
+
+    /**
+     * Keeps sideCounts, twoSidedBoxes and safeEdges up to date after an
+     * edge was claimed or released. Only the boxes beside the edge change
+     * their side counts, so only the edge itself and the other edges of a
+     * box moving between one and two claimed sides can change from safe to
+     * unsafe or back.
+     */
+    private void sidesChanged(int row, int col, boolean horizontal, boolean claimed) {
+        // Boxes above / left and below / right of the edge, with their side counts after the change
+        int firstRow = horizontal ? row - 1 : row;
+        int firstCol = horizontal ? col : col - 1;
+        boolean hasFirst = horizontal ? row > 0 : col > 0;
+        boolean hasSecond = horizontal ? row < rows : col < cols;
+        int step = claimed ? 1 : -1;
+        int first = hasFirst ? sideCounts[boxIndex(firstRow, firstCol)] += step : 0;
+        int second = hasSecond ? sideCounts[boxIndex(row, col)] += step : 0;
+        if (hasFirst) twoSidedChanged(first, claimed);
+        if (hasSecond) twoSidedChanged(second, claimed);
+
+        // Side counts while the edge is unclaimed decide whether it is safe
+        int unclaimed = claimed ? 1 : 0;
+        int delta = -step;
+        if (first - unclaimed <= 1 && second - unclaimed <= 1) {
+            safeEdges += delta;
+        }
+        int crossed = claimed ? 2 : 1;
+        if (hasFirst && first == crossed) {
+            lowBoxChanged(firstRow, firstCol, horizontal ? BOTTOM : RIGHT, delta);
+        }
+        if (hasSecond && second == crossed) {
+            lowBoxChanged(row, col, horizontal ? TOP : LEFT, delta);
+        }
+    }
+
+    /**
+     * Adds delta to safeEdges for each unclaimed side of a box, other than
+     * the side just changed, whose box on the far side has at most one
+     * claimed side (or is off the board)
+     */
+    private void lowBoxChanged(int row, int col, int changedSide, int delta) {
+        if (changedSide != TOP && !testBit(horizontalMask, horizontalIndex(row, col))
+                && (row == 0 || getClaimedEdgeCount(row - 1, col) <= 1)) {
+            safeEdges += delta;
+        }
+        if (changedSide != BOTTOM && !testBit(horizontalMask, horizontalIndex(row + 1, col))
+                && (row == rows - 1 || getClaimedEdgeCount(row + 1, col) <= 1)) {
+            safeEdges += delta;
+        }
+        if (changedSide != LEFT && !testBit(verticalMask, verticalIndex(row, col))
+                && (col == 0 || getClaimedEdgeCount(row, col - 1) <= 1)) {
+            safeEdges += delta;
+        }
+        if (changedSide != RIGHT && !testBit(verticalMask, verticalIndex(row, col + 1))
+                && (col == cols - 1 || getClaimedEdgeCount(row, col + 1) <= 1)) {
+            safeEdges += delta;
+        }
+    }
+
+    private void twoSidedChanged(int sides, boolean claimed) {
+        if (sides == 2) {
+            twoSidedBoxes++;
+        } else if (sides == (claimed ? 3 : 1)) {
+            twoSidedBoxes--;
+        }
+    }
+
+    private void uncomplete(int row, int col, int player) {
+        int box = boxIndex(row, col);
+        clearBit(completedMask, box);
+        clearBit(ownerMasks[player], box);
+        scores[player]--;
+        completedBoxes--;
+    }
+
+    /**
+     * Marks a box completed if all four sides are claimed and it was not completed before.
+     * @return true if the box was just completed
+     */
+    private boolean completeIfSurrounded(int row, int col) {
+        int box = boxIndex(row, col);
+        if (testBit(completedMask, box) || getClaimedEdgeCount(row, col) < 4) {
+            return false;
+        }
+        if (ownerMasks[lastClaimer] == null) {
+            ownerMasks[lastClaimer] = new long[completedMask.length];
+        }
+        setBit(completedMask, box);
+        setBit(ownerMasks[lastClaimer], box);
+        scores[lastClaimer]++;
+        completedBoxes++;
+        return true;
+    }
+
+    /**
+     * Gets the number of edges on the board, i.e. the most moves a game can have
+     * @return total edge count, a safe size for a generateMoves buffer
+     */
+    public int getMaxMoves() {
+        return horizontalCount + verticalCount;
+    }
+
+    /**
+     * Gets the number of edges that are still unclaimed
+     * @return number of legal moves
+     */
+    public int getRemainingMoves() {
+        return horizontalCount + verticalCount - claimedEdges;
+    }
+
+    /**
+     * Fills a buffer with every legal move (see DotsAndBoxesMove), horizontal
+     * edges first. Nothing is allocated, so the buffer can be reused.
+     *
+     * @param moves buffer with room for at least getRemainingMoves() moves
+     * @return number of moves written
+     */
+    public int generateMoves(int[] moves) {
+        int count = DotsAndBoxesMove.collectFreeEdges(
+                horizontalMask, horizontalCount, cols, true, moves, 0);
+        return DotsAndBoxesMove.collectFreeEdges(
+                verticalMask, verticalCount, cols + 1, false, moves, count);
+    }
+
+    /**
+     * Counts the boxes a legal move would complete
+     * @param move encoded legal move
+     * @return 0, 1 or 2
+     */
+    public int countBoxesCompletedBy(int move) {
+        int count = 0;
+        if (adjacentClaimedCount(move, true) == 3) count++;
+        if (adjacentClaimedCount(move, false) == 3) count++;
+        return count;
+    }
+
+    /**
+     * Checks whether a legal move is safe, i.e. neither completes a box nor
+     * leaves a box with three claimed sides for the opponent to take
+     * @param move encoded legal move
+     * @return true if every box next to the edge has at most one claimed side
+     */
+    public boolean isSafeMove(int move) {
+        return adjacentClaimedCount(move, true) < 2 && adjacentClaimedCount(move, false) < 2;
+    }
+
+    /**
+     * Gets the claimed-side count of the box on one side of an edge
+     * @param first true for the box above / left of the edge, false for below / right
+     * @return claimed sides of that box, or -1 if the edge is on the border
+     */
+    private int adjacentClaimedCount(int move, boolean first) {
+        int row = DotsAndBoxesMove.getRow(move);
+        int col = DotsAndBoxesMove.getCol(move);
+        if (DotsAndBoxesMove.isHorizontal(move)) {
+            if (first) row--;
+            if (row < 0 || row >= rows) return -1;
+        } else {
+            if (first) col--;
+            if (col < 0 || col >= cols) return -1;
+        }
+        return getClaimedEdgeCount(row, col);
+    }
+
+    /**
+     * Checks whether an encoded move is an unclaimed edge on this board
+     * @param move encoded move
+     * @return true if the move can be played
+     */
+    public boolean isLegalMove(int move) {
+        if (move < 0) return false;
+        int row = DotsAndBoxesMove.getRow(move);
+        int col = DotsAndBoxesMove.getCol(move);
+        if (DotsAndBoxesMove.isHorizontal(move)) {
+            return row <= rows && col < cols && !testBit(horizontalMask, horizontalIndex(row, col));
+        }
+        return row < rows && col <= cols && !testBit(verticalMask, verticalIndex(row, col));
+    }
+
+    // Queries with bounds checking
+
+    public boolean isHorizontalEdgeClaimed(int row, int col) {
+        if (row < 0 || row > rows || col < 0 || col >= cols) return false;
+        return testBit(horizontalMask, horizontalIndex(row, col));
+    }
+
+    public boolean isVerticalEdgeClaimed(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col > cols) return false;
+        return testBit(verticalMask, verticalIndex(row, col));
+    }
+
+    public boolean isBoxCompleted(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) return false;
+        return testBit(completedMask, boxIndex(row, col));
+    }
+
+    /**
+     * Gets the symbol of the player who completed a box
+     * @param row box row
+     * @param col box column
+     * @return player symbol, or space if the box is not completed
+     */
+    public char getBoxOwner(int row, int col) {
+        if (!isBoxCompleted(row, col)) return ' ';
+        int box = boxIndex(row, col);
+        for (int p = 0; p < PLAYER_COUNT; p++) {
+            if (ownerMasks[p] != null && testBit(ownerMasks[p], box)) return symbols[p];
+        }
+        return ' ';
+    }
+
+    /**
+     * Counts how many of the four sides of a box are claimed
+     * @param row box row
+     * @param col box column
+     * @return number of claimed sides (0-4)
+     */
+    public int getClaimedEdgeCount(int row, int col) {
+        return sideCounts[boxIndex(row, col)];
+    }
+
+    /**
+     * Gets the number of boxes a player has completed
+     * @param symbol player symbol
+     * @return box count for that player
+     */
+    public int getScore(char symbol) {
+        return scores[slotOf(symbol)];
+    }
+
+    /**
+     * Maps a player symbol to its owner mask slot.
+     * @throws IllegalArgumentException if the symbol is not one of this board's players
+     */
+    private int slotOf(char symbol) {
+        for (int p = 0; p < PLAYER_COUNT; p++) {
+            if (symbols[p] == symbol) return p;
+        }
+        throw new IllegalArgumentException("Unknown player symbol: " + symbol);
+    }
+
+    // Index helpers
+
+    private int horizontalIndex(int row, int col) {
+        return row * cols + col;
+    }
+
+    private int verticalIndex(int row, int col) {
+        return row * (cols + 1) + col;
+    }
+
+    private int boxIndex(int row, int col) {
+        return row * cols + col;
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean testBit(long[] mask, int index) {
+        return (mask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] mask, int index) {
+        mask[index >>> 6] |= 1L << index;
+    }
+
+    private static void clearBit(long[] mask, int index) {
+        mask[index >>> 6] &= ~(1L << index);
+    }
+}
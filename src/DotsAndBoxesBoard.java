@@ -26,6 +26,28 @@ public class DotsAndBoxesBoard {
     private int totalBoxes;
     private int completedBoxes;
 
+    // Chains and loops of boxes, updated on every claim and undo
+    private ChainTracker chains;
+
+    // Reused by display(); not copied with the board
+    private FrameRenderer renderer;
+
+    // Claimed-edge bit masks kept next to the Edge objects so legal moves
+    // can be listed by scanning free bits (bit = row * width + col)
+    private long[] horizontalClaimed;
+    private long[] verticalClaimed;
+    private int claimedEdges;
+    // XOR of the Zobrist keys of all claimed edges (see DotsAndBoxesHash)
+    private long edgeHash;
+
+    // Undo history for makeMove: the move, which adjacent boxes it completed
+    // (bit 0 = above/left, bit 1 = below/right) and who played it.
+    // Every edge is claimed at most once, so getMaxMoves() entries always suffice.
+    private int[] undoMoves;
+    private byte[] undoFlags;
+    private char[] undoSymbols;
+    private int undoSize;
+
     /**
      * Constructor for a board of given number of rows and cols (boxes).
      * @param rows number of rows of boxes
@@ -43,9 +65,17 @@ public class DotsAndBoxesBoard {
 
         totalBoxes = rows * cols;
         completedBoxes = 0;
+        claimedEdges = 0;
+        edgeHash = 0L;
 
         initializeEdges();
         initializeBoxes();
+        chains = new ChainTracker(rows, cols);
+
+        undoMoves = new int[getMaxMoves()];
+        undoFlags = new byte[getMaxMoves()];
+        undoSymbols = new char[getMaxMoves()];
+        undoSize = 0;
     }
 
     /**
@@ -67,6 +97,9 @@ public class DotsAndBoxesBoard {
                 verticalEdges[r][c] = new Edge(r, c, false);
             }
         }
+
+        horizontalClaimed = new long[((rows + 1) * cols + 63) >>> 6];
+        verticalClaimed = new long[(rows * (cols + 1) + 63) >>> 6];
     }
 
     /**
@@ -94,6 +127,7 @@ public class DotsAndBoxesBoard {
     public int getCols() { return cols; }
     public int getTotalBoxes() { return totalBoxes; }
     public int getCompletedBoxes() { return completedBoxes; }
+    public ChainTracker getChains() { return chains; }
 
     /**
      * Check if the game has ended, i.e. all boxes are completed
@@ -112,7 +146,14 @@ public class DotsAndBoxesBoard {
      */
     public boolean claimHorizontalEdge(int row, int col, char symbol) {
         if (row < 0 || row > rows || col < 0 || col >= cols) return false;
-        return horizontalEdges[row][col].claim(symbol);
+        if (!horizontalEdges[row][col].claim(symbol)) return false;
+
+        int index = row * cols + col;
+        horizontalClaimed[index >>> 6] |= 1L << index;
+        edgeHash ^= DotsAndBoxesHash.edgeKey(index);
+        claimedEdges++;
+        chains.horizontalEdgeChanged(row, col, true);
+        return true;
     }
 
     /**
@@ -124,7 +165,14 @@ public class DotsAndBoxesBoard {
      */
     public boolean claimVerticalEdge(int row, int col, char symbol) {
         if (row < 0 || row >= rows || col < 0 || col > cols) return false;
-        return verticalEdges[row][col].claim(symbol);
+        if (!verticalEdges[row][col].claim(symbol)) return false;
+
+        int index = row * (cols + 1) + col;
+        verticalClaimed[index >>> 6] |= 1L << index;
+        edgeHash ^= DotsAndBoxesHash.edgeKey((rows + 1) * cols + index);
+        claimedEdges++;
+        chains.verticalEdgeChanged(row, col, true);
+        return true;
     }
 
     /**
@@ -179,6 +227,163 @@ public class DotsAndBoxesBoard {
         return boxesCompletedThisMove;
     }
 
+    /**
+     * Plays a move in one step: claims the edge for the given player and
+     * completes any boxes it closes. The move can be taken back with unmakeMove.
+     *
+     * @param move encoded move (see DotsAndBoxesMove)
+     * @param symbol player symbol making the move
+     * @return number of boxes completed (the player moves again if above 0),
+     *         or -1 if the move is not legal
+     */
+    public int makeMove(int move, char symbol) {
+        if (!isLegalMove(move)) return -1;
+
+        boolean horizontal = DotsAndBoxesMove.isHorizontal(move);
+        int row = DotsAndBoxesMove.getRow(move);
+        int col = DotsAndBoxesMove.getCol(move);
+        if (horizontal) {
+            claimHorizontalEdge(row, col, symbol);
+        } else {
+            claimVerticalEdge(row, col, symbol);
+        }
+
+        int flags = 0;
+        Box first = horizontal ? getBox(row - 1, col) : getBox(row, col - 1);
+        Box second = getBox(row, col);
+        if (first != null && first.checkAndComplete()) flags |= 1;
+        if (second != null && second.checkAndComplete()) flags |= 2;
+
+        int completed = Integer.bitCount(flags);
+        completedBoxes += completed;
+
+        undoMoves[undoSize] = move;
+        undoFlags[undoSize] = (byte) flags;
+        undoSymbols[undoSize] = symbol;
+        undoSize++;
+        return completed;
+    }
+
+    /**
+     * Takes back the most recent makeMove: releases the edge, un-completes
+     * the boxes it closed and restores the completed box count.
+     *
+     * @return symbol of the player who made the undone move, i.e. whose turn
+     *         it is again, or a space if there is nothing to undo
+     */
+    public char unmakeMove() {
+        if (undoSize == 0) return ' ';
+        undoSize--;
+
+        int move = undoMoves[undoSize];
+        int flags = undoFlags[undoSize];
+        boolean horizontal = DotsAndBoxesMove.isHorizontal(move);
+        int row = DotsAndBoxesMove.getRow(move);
+        int col = DotsAndBoxesMove.getCol(move);
+
+        int index;
+        if (horizontal) {
+            horizontalEdges[row][col].unclaim();
+            index = row * cols + col;
+            horizontalClaimed[index >>> 6] &= ~(1L << index);
+            edgeHash ^= DotsAndBoxesHash.edgeKey(index);
+            chains.horizontalEdgeChanged(row, col, false);
+        } else {
+            verticalEdges[row][col].unclaim();
+            index = row * (cols + 1) + col;
+            verticalClaimed[index >>> 6] &= ~(1L << index);
+            edgeHash ^= DotsAndBoxesHash.edgeKey((rows + 1) * cols + index);
+            chains.verticalEdgeChanged(row, col, false);
+        }
+        claimedEdges--;
+
+        if ((flags & 1) != 0) {
+            (horizontal ? boxes[row - 1][col] : boxes[row][col - 1]).uncomplete();
+            completedBoxes--;
+        }
+        if ((flags & 2) != 0) {
+            boxes[row][col].uncomplete();
+            completedBoxes--;
+        }
+
+        return undoSymbols[undoSize];
+    }
+
+    /**
+     * Gets the Zobrist hash of the claimed edges. Kept up to date by every
+     * claim and undo, so reading it is O(1).
+     * @return 64-bit hash of the claimed edges
+     */
+    public long getHash() {
+        return edgeHash;
+    }
+
+    /**
+     * Gets the position hash including whose turn it is and the score.
+     * Matches DotsAndBoxesBitBoard.getHashWithScore() for the same position.
+     *
+     * @param secondPlayerToMove true if the second player is to move
+     * @param scoreDifference first player's boxes minus second player's boxes
+     * @return 64-bit position hash
+     */
+    public long getHash(boolean secondPlayerToMove, int scoreDifference) {
+        long hash = edgeHash ^ DotsAndBoxesHash.scoreKey(scoreDifference);
+        return secondPlayerToMove ? hash ^ DotsAndBoxesHash.SIDE_TO_MOVE_KEY : hash;
+    }
+
+    /**
+     * Gets the number of moves that unmakeMove can still take back
+     * @return undo history length
+     */
+    public int getUndoDepth() {
+        return undoSize;
+    }
+
+    /**
+     * Gets the number of edges on the board, i.e. the most moves a game can have
+     * @return total edge count, a safe size for a generateMoves buffer
+     */
+    public int getMaxMoves() {
+        return (rows + 1) * cols + rows * (cols + 1);
+    }
+
+    /**
+     * Gets the number of edges that are still unclaimed
+     * @return number of legal moves
+     */
+    public int getRemainingMoves() {
+        return getMaxMoves() - claimedEdges;
+    }
+
+    /**
+     * Fills a buffer with every legal move (see DotsAndBoxesMove), horizontal
+     * edges first. Nothing is allocated, so the buffer can be reused.
+     *
+     * @param moves buffer with room for at least getRemainingMoves() moves
+     * @return number of moves written
+     */
+    public int generateMoves(int[] moves) {
+        int count = DotsAndBoxesMove.collectFreeEdges(
+                horizontalClaimed, (rows + 1) * cols, cols, true, moves, 0);
+        return DotsAndBoxesMove.collectFreeEdges(
+                verticalClaimed, rows * (cols + 1), cols + 1, false, moves, count);
+    }
+
+    /**
+     * Checks whether an encoded move is an unclaimed edge on this board
+     * @param move encoded move
+     * @return true if the move can be played
+     */
+    public boolean isLegalMove(int move) {
+        if (move < 0) return false;
+        int row = DotsAndBoxesMove.getRow(move);
+        int col = DotsAndBoxesMove.getCol(move);
+        Edge edge = DotsAndBoxesMove.isHorizontal(move)
+                ? getHorizontalEdge(row, col)
+                : getVerticalEdge(row, col);
+        return edge != null && !edge.isClaimed();
+    }
+
     // Getter methods for edges and boxes with bounds checking
 
     public Edge getHorizontalEdge(int row, int col) {
@@ -197,65 +402,69 @@ public class DotsAndBoxesBoard {
     }
 
     /**
-     * Displays the current state of the board on the console.
+     * Displays the current state of the board on the console, as one write.
      */
     public void display() {
-        System.out.println();
+        if (renderer == null) renderer = new FrameRenderer();
+        render(renderer);
+        renderer.flush();
+    }
+
+    /**
+     * Unpins the board from the top of the screen after incremental
+     * redraws (see FrameRenderer), so the terminal scrolls normally again.
+     */
+    public void releaseDisplay() {
+        if (renderer != null) renderer.release();
+    }
 
-        // Display column numbers
-        System.out.print("    ");
+    /**
+     * Appends the board, with row and column numbers, to a frame.
+     *
+     * @param frame renderer to append to
+     */
+    public void render(FrameRenderer frame) {
+        frame.newLine();
+
+        // Column numbers
+        frame.append("    ");
         for (int c = 0; c < cols; c++) {
-            System.out.print("  " + c + "   ");
+            frame.append("  " + c + "   ");
         }
-        System.out.println();
+        frame.newLine();
 
         for (int r = 0; r <= rows; r++) {
             // Row label at start of line
-            if (r < rows) {
-                System.out.print("  " + r + " ");
-            } else {
-                System.out.print("    ");
-            }
+            frame.append(r < rows ? "  " + r + " " : "    ");
 
             // Dots and horizontal edges
             for (int c = 0; c < cols; c++) {
-                ColorPrinter.printYellow("●");
+                frame.append(ColorPrinter.YELLOW, "●");
                 if (horizontalEdges[r][c].isClaimed()) {
-                    ColorPrinter.printGreen("─────");
+                    frame.append(ColorPrinter.GREEN, "─────");
                 } else {
-                    System.out.print("     ");
+                    frame.append("     ");
                 }
             }
-            ColorPrinter.printlnYellow("●");
+            frame.append(ColorPrinter.YELLOW, "●").newLine();
 
             // Vertical edges and box contents, skip after last line
             if (r < rows) {
-                System.out.print("    ");
+                frame.append("    ");
                 for (int c = 0; c <= cols; c++) {
-                    // For all columns except one past the last box
+                    frame.append(ColorPrinter.GREEN, verticalEdges[r][c].isClaimed() ? "│" : " ");
+                    // Every column but the one past the last box has a box
                     if (c < cols) {
-                        if (verticalEdges[r][c].isClaimed()) {
-                            ColorPrinter.printGreen("│");
-                        } else {
-                            System.out.print(" ");
-                        }
-
                         if (boxes[r][c].isCompleted()) {
-                            ColorPrinter.printCyan("  " + boxes[r][c].getCompletedBy() + "  ");
-                        } else {
-                            System.out.print("     ");
-                        }
-
-                    } else { // Rightmost vertical edge
-                        if (verticalEdges[r][c].isClaimed()) {
-                            ColorPrinter.printlnGreen("│");
+                            frame.append(ColorPrinter.CYAN, "  " + boxes[r][c].getCompletedBy() + "  ");
                         } else {
-                            System.out.println(" ");
+                            frame.append("     ");
                         }
                     }
                 }
+                frame.newLine();
             }
         }
-        System.out.println();
+        frame.newLine();
     }
 }
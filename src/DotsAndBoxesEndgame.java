@@ -0,0 +1,860 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DotsAndBoxesEndgame.java
+ *
+ * Exact values for the loony endgame of Dots and Boxes: positions with no
+ * safe move left, where every move hands boxes to the opponent.
+ *
+ * Boxes on offer are settled first. A box is simply taken unless it is one
+ * of the last two boxes of a chain or the last four of a loop; there both
+ * taking them and declining them with a double-dealing move are tried, the
+ * decline on whichever such group is taken last. What is left splits into
+ * independent components: chains, loops, and components with junctions
+ * (boxes with three or four open sides, where strings of two-sided boxes
+ * meet).
+ *
+ * The player to move then has to open a component. However it is opened,
+ * taking everything captures the same n boxes and leaves the same rest of
+ * the component; the opening only decides whether the opponent can also
+ * keep control by handing back the last h boxes (2 of a chain, 4 of a
+ * loop). Writing V(S) for the net boxes the player to move wins from
+ * components S:
+ *
+ *   V(empty) = 0
+ *   V(S) = max over openings of a component c of -(best reply), where the
+ *     reply is n + V(S'), or n - 2h - V(S') when the opening can be
+ *     declined, and S' is S with c replaced by what the opening leaves of it
+ *
+ * A chain of n opens to (n, h = 2) for n >= 3 and (n, no decline) below
+ * that, as a two-chain is opened in the middle; a loop of n opens to
+ * (n, h = 4). The openings of a component with junctions are worked out by
+ * playing each of its edges on a small board of its own, once per shape:
+ * shapes are cached under a canonical form, the claimed sides of the boxes
+ * of their bounding box turned and mirrored to the smallest of the eight
+ * orientations, so the same shape anywhere on any board reuses them.
+ *
+ * Component lists are canonical too (a chain is its length, a loop minus
+ * its length, a shape a code below every loop), and V is memoized under the
+ * sorted list in one cache shared by every board, game and search thread of
+ * the process. DotsAndBoxesEndgameCheck compares the results with
+ * exhaustive search on small boards.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.1
+ */
+public final class DotsAndBoxesEndgame {
+    /** Returned when a position is not a loony endgame or is too large to solve */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final int MAX_CACHE_ENTRIES = 1 << 20;
+    private static final int MAX_COMPONENTS = 256;
+    private static final long MAX_SUBSETS = 1L << 18;
+    // Components with junctions above this size are left to the search
+    private static final int MAX_SHAPE_BOXES = 32;
+    private static final int MAX_SHAPES = 1 << 16;
+    // Code of the shape with id k, below the code of any loop
+    private static final int SHAPE_BASE = -(1 << 30);
+    // Position counts above this are all just "too many"
+    private static final long REACH_CAP = 1L << 40;
+
+    // Side bits of a box
+    private static final int TOP = 1;
+    private static final int BOTTOM = 2;
+    private static final int LEFT = 4;
+    private static final int RIGHT = 8;
+    private static final int ALL_SIDES = TOP | BOTTOM | LEFT | RIGHT;
+
+    // Kinds of box on offer; a decision's kind is the number of boxes declining hands back
+    private static final int TAKE = 0;
+    private static final int LAST_TWO = 2;
+    private static final int LAST_FOUR = 4;
+
+    // Canonical form (sorted component codes) -> value
+    private static final ConcurrentHashMap<Key, Integer> CACHE = new ConcurrentHashMap<>();
+    // Canonical shape -> shape, and shape id -> shape
+    private static final ConcurrentHashMap<Key, Shape> SHAPES = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<Shape> SHAPES_BY_ID = new AtomicReferenceArray<>(MAX_SHAPES);
+    private static final AtomicInteger SHAPE_COUNT = new AtomicInteger();
+
+    private DotsAndBoxesEndgame() {
+        // static helpers only
+    }
+
+    /**
+     * Gets the exact value of a board for the player to move. Checking costs
+     * O(1) on positions that still have a safe move, so the search can call
+     * this at each node.
+     * @param board board to value; changed while solving and restored before returning
+     * @return net boxes the player to move wins from the remaining boxes,
+     *         or UNKNOWN if a safe move is left
+     */
+    public static int solve(DotsAndBoxesBitBoard board) {
+        return solve(board, MAX_SUBSETS);
+    }
+
+    /**
+     * Gets the exact value of a board, giving up on component mixes whose
+     * first solution would take more than about maxSubsets steps
+     * @param board board to value; changed while solving and restored before returning
+     * @param maxSubsets work limit for positions that are not cached yet
+     * @return net boxes the player to move wins from the remaining boxes, or UNKNOWN
+     */
+    public static int solve(DotsAndBoxesBitBoard board, long maxSubsets) {
+        if (board.isGameOver()) return 0;
+        if (!isLoonyEndgame(board)) return UNKNOWN;
+        return resolve(board, maxSubsets);
+    }
+
+    /**
+     * Checks in O(1) whether every move left hands boxes over, i.e. whether
+     * solve can value the board
+     * @param board board to check
+     * @return true if no safe move is left
+     */
+    public static boolean isLoonyEndgame(DotsAndBoxesBitBoard board) {
+        return board.getSafeMoveCount() == 0;
+    }
+
+    /**
+     * Checks in O(1) whether every unfinished box has two claimed sides,
+     * i.e. whether the board is only chains and loops with nothing on offer
+     * @param board board to check
+     * @return true if the board is only chains and loops (or finished)
+     */
+    public static boolean isChainsAndLoops(DotsAndBoxesBitBoard board) {
+        return board.getTwoSidedBoxCount() == board.getTotalBoxes() - board.getCompletedBoxes();
+    }
+
+    /**
+     * Gets the exact value of the chains and loops of a tracker, assuming
+     * they are all the boxes left and no box can be taken right now
+     * @param chains tracker describing the components
+     * @return net boxes the player to move wins, or UNKNOWN if there are
+     *         too many different components to solve quickly
+     */
+    public static int solve(ChainTracker chains) {
+        int count = chains.getChainCount() + chains.getLoopCount();
+        if (count > MAX_COMPONENTS) return UNKNOWN;
+
+        int[] components = new int[count];
+        int n = 0;
+        for (int length = 1; length <= chains.getMaxLength() && n < count; length++) {
+            for (int i = chains.getChainCount(length); i > 0; i--) components[n++] = length;
+            for (int i = chains.getLoopCount(length); i > 0; i--) components[n++] = -length;
+        }
+        return solve(components, MAX_SUBSETS);
+    }
+
+    /**
+     * Gets the number of memoized positions
+     * @return cache size
+     */
+    public static int getCacheSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * Gets the number of component shapes with junctions seen so far
+     * @return shape count
+     */
+    public static int getShapeCount() {
+        return Math.min(SHAPE_COUNT.get(), MAX_SHAPES);
+    }
+
+    /**
+     * Empties the shared cache of values. Shapes and their openings are
+     * kept: they never change and are bounded by MAX_SHAPES.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    // Boxes on offer
+
+    /**
+     * Settles the boxes on offer for the player to move, then values the rest
+     * @return net boxes the player to move wins from the remaining boxes, or UNKNOWN
+     */
+    private static int resolve(DotsAndBoxesBitBoard board, long maxSubsets) {
+        int start = board.getUndoDepth();
+        int startScore = board.getScoreDifference();
+        int[] decisions = takeOffered(board);
+        int gained = board.getScoreDifference() - startScore;
+        int[] move = new int[4];
+
+        int value;
+        if (decisions.length == 0) {
+            value = solve(components(board), maxSubsets);
+        } else if (decisions.length == 1) {
+            classify(board, decisions[0], move);
+            int boxes = board.makeMove(move[0]);
+            int take = resolve(board, maxSubsets);
+            board.unmakeMove();
+
+            // Declining passes the turn with the boxes still on offer
+            board.makeMove(move[1]);
+            int reply = resolve(board, maxSubsets);
+            board.unmakeMove();
+            value = take == UNKNOWN || reply == UNKNOWN ? UNKNOWN : Math.max(boxes + take, -reply);
+        } else {
+            // Only the group taken last can be declined: try each one last
+            int[] captures = new int[decisions.length];
+            for (int i = 0; i < decisions.length; i++) {
+                classify(board, decisions[i], move);
+                captures[i] = move[0];
+            }
+            value = -Integer.MAX_VALUE;
+            for (int last = 0; last < decisions.length && value != UNKNOWN; last++) {
+                int mark = board.getUndoDepth();
+                int boxes = 0;
+                for (int i = 0; i < decisions.length; i++) {
+                    if (i != last) boxes += Math.max(board.makeMove(captures[i]), 0);
+                }
+                int rest = resolve(board, maxSubsets);
+                while (board.getUndoDepth() > mark) board.unmakeMove();
+                value = rest == UNKNOWN ? UNKNOWN : Math.max(value, boxes + rest);
+            }
+        }
+
+        while (board.getUndoDepth() > start) board.unmakeMove();
+        return value == UNKNOWN ? UNKNOWN : gained + value;
+    }
+
+    /**
+     * Finds the smallest group the player to move can hand back to keep
+     * control while taking the boxes on offer
+     * @return 0 if nothing can be declined, else 2 or 4 boxes
+     */
+    private static int cheapestDecline(DotsAndBoxesBitBoard board) {
+        int start = board.getUndoDepth();
+        int[] decisions = takeOffered(board);
+        int[] move = new int[4];
+        int best = 0;
+
+        if (decisions.length == 1) {
+            best = classify(board, decisions[0], move);
+            board.makeMove(move[0]);
+            best = cheaper(best, cheapestDecline(board));
+        } else if (decisions.length > 1) {
+            int[] captures = new int[decisions.length];
+            for (int i = 0; i < decisions.length; i++) {
+                classify(board, decisions[i], move);
+                captures[i] = move[0];
+            }
+            for (int last = 0; last < decisions.length; last++) {
+                int mark = board.getUndoDepth();
+                for (int i = 0; i < decisions.length; i++) {
+                    if (i != last) board.makeMove(captures[i]);
+                }
+                best = cheaper(best, cheapestDecline(board));
+                while (board.getUndoDepth() > mark) board.unmakeMove();
+            }
+        }
+
+        while (board.getUndoDepth() > start) board.unmakeMove();
+        return best;
+    }
+
+    private static int cheaper(int handback, int other) {
+        if (handback == 0) return other;
+        if (other == 0) return handback;
+        return Math.min(handback, other);
+    }
+
+    /**
+     * Takes every box on offer, declining nothing
+     */
+    private static void takeAll(DotsAndBoxesBitBoard board) {
+        int[] move = new int[4];
+        for (int[] decisions = takeOffered(board); decisions.length > 0; decisions = takeOffered(board)) {
+            for (int box : decisions) {
+                classify(board, box, move);
+                board.makeMove(move[0]);
+            }
+        }
+    }
+
+    /**
+     * Takes every box on offer whose capture cannot be worth declining. The
+     * moves stay on the board's undo history for the caller to take back.
+     * @return one box per decision left: the last two boxes of a chain, or
+     *         one end of the last four of a loop
+     */
+    private static int[] takeOffered(DotsAndBoxesBitBoard board) {
+        int cols = board.getCols();
+        int[] offered = new int[8];
+        int count = 0;
+        for (int box = 0; box < board.getTotalBoxes(); box++) {
+            if (sideCount(board, box) == 3) {
+                if (count == offered.length) offered = Arrays.copyOf(offered, 2 * count);
+                offered[count++] = box;
+            }
+        }
+
+        int[] move = new int[4];
+        boolean took = true;
+        while (took) {
+            took = false;
+            for (int i = 0; i < count && !took; i++) {
+                if (classify(board, offered[i], move) != TAKE) continue;
+                board.makeMove(move[0]);
+                took = true;
+
+                // The box is gone, the box beyond it may be gone too or now on offer
+                int beyond = move[2];
+                int kept = 0;
+                for (int j = 0; j < count; j++) {
+                    if (!board.isBoxCompleted(offered[j] / cols, offered[j] % cols)) offered[kept++] = offered[j];
+                }
+                count = kept;
+                if (beyond >= 0 && sideCount(board, beyond) == 3) {
+                    if (count == offered.length) offered = Arrays.copyOf(offered, 2 * count);
+                    offered[count++] = beyond;
+                }
+            }
+        }
+
+        // Every box left on offer starts a decision; the last four of a loop have two ends
+        int decisions = 0;
+        for (int i = 0; i < count; i++) {
+            if (classify(board, offered[i], move) == LAST_FOUR && move[3] < offered[i]) continue;
+            offered[decisions++] = offered[i];
+        }
+        return Arrays.copyOf(offered, decisions);
+    }
+
+    /**
+     * Looks at a box on offer (three claimed sides) and what taking it leads to.
+     * The box beyond its open side is the next one in line:
+     *
+     *   border, or fewer than two or three claimed sides:  nothing more is offered, take it
+     *   two sides, then the border or a junction:          the last two boxes of a chain
+     *   two sides, two sides, then a box on offer:         the last four of a loop
+     *   anything longer:                                   take it, the decision comes later
+     *
+     * @param out receives the move taking the box, the move declining it,
+     *        the box beyond it (-1 at the border) and, for the last four of
+     *        a loop, the box at the other end
+     * @return TAKE, LAST_TWO or LAST_FOUR
+     */
+    private static int classify(DotsAndBoxesBitBoard board, int box, int[] out) {
+        int side = openSide(board, box, 0);
+        int beyond = neighbour(board, box, side);
+        out[0] = edgeMove(board, box, side);
+        out[1] = DotsAndBoxesMove.NO_MOVE;
+        out[2] = beyond;
+        out[3] = -1;
+        if (beyond < 0 || sideCount(board, beyond) != 2) return TAKE;
+
+        int next = openSide(board, beyond, opposite(side));
+        int third = neighbour(board, beyond, next);
+        out[1] = edgeMove(board, beyond, next);
+        int thirdSides = third < 0 ? 0 : sideCount(board, third);
+        if (thirdSides <= 1) return LAST_TWO;
+        if (thirdSides == 3) return TAKE;
+
+        int fourth = neighbour(board, third, openSide(board, third, opposite(next)));
+        if (fourth >= 0 && sideCount(board, fourth) == 3) {
+            out[3] = fourth;
+            return LAST_FOUR;
+        }
+        return TAKE;
+    }
+
+    // Components
+
+    /**
+     * Splits a board with nothing on offer into its components. A component
+     * of two-sided boxes is a loop unless it opens onto the border, because
+     * every neighbour it opens onto belongs to it too.
+     * @return component codes, or null if a component cannot be solved
+     */
+    private static int[] components(DotsAndBoxesBitBoard board) {
+        int rows = board.getRows();
+        int cols = board.getCols();
+        boolean[] seen = new boolean[rows * cols];
+        int[] stack = new int[rows * cols];
+        int[] boxes = new int[rows * cols];
+        int[] codes = new int[rows * cols];
+        int count = 0;
+
+        for (int start = 0; start < seen.length; start++) {
+            if (seen[start] || board.isBoxCompleted(start / cols, start % cols)) continue;
+
+            int size = 0;
+            int length = 0;
+            boolean border = false;
+            boolean twoSided = true;
+            stack[size++] = start;
+            seen[start] = true;
+            while (size > 0) {
+                int box = stack[--size];
+                boxes[length++] = box;
+                int claimed = claimedSides(board, box);
+                if (Integer.bitCount(claimed) != 2) twoSided = false;
+
+                for (int side = TOP; side <= RIGHT; side <<= 1) {
+                    if ((claimed & side) != 0) continue;
+                    int other = neighbour(board, box, side);
+                    if (other < 0) {
+                        border = true;
+                    } else if (!seen[other]) {
+                        seen[other] = true;
+                        stack[size++] = other;
+                    }
+                }
+            }
+
+            if (count == MAX_COMPONENTS) return null;
+            if (twoSided) {
+                codes[count++] = border ? length : -length;
+            } else {
+                Shape shape = shapeOf(board, boxes, length);
+                if (shape == null) return null;
+                codes[count++] = SHAPE_BASE - shape.id;
+            }
+        }
+        return Arrays.copyOf(codes, count);
+    }
+
+    /**
+     * Finds or registers the shape of a component with junctions
+     * @return the shape, or null if it is too large or too many shapes are known
+     */
+    private static Shape shapeOf(DotsAndBoxesBitBoard board, int[] boxes, int length) {
+        if (length > MAX_SHAPE_BOXES) return null;
+        int cols = board.getCols();
+        int top = Integer.MAX_VALUE;
+        int left = Integer.MAX_VALUE;
+        int bottom = 0;
+        int right = 0;
+        for (int i = 0; i < length; i++) {
+            top = Math.min(top, boxes[i] / cols);
+            bottom = Math.max(bottom, boxes[i] / cols);
+            left = Math.min(left, boxes[i] % cols);
+            right = Math.max(right, boxes[i] % cols);
+        }
+        int height = bottom - top + 1;
+        int width = right - left + 1;
+        // A junction has three open sides, which a single row or column cannot give it
+        if (height < DotsAndBoxesBitBoard.MIN_SIZE || width < DotsAndBoxesBitBoard.MIN_SIZE) return null;
+
+        // Boxes of the bounding box outside the component count as finished
+        int[] grid = new int[height * width];
+        Arrays.fill(grid, ALL_SIDES);
+        for (int i = 0; i < length; i++) {
+            grid[(boxes[i] / cols - top) * width + boxes[i] % cols - left] = claimedSides(board, boxes[i]);
+        }
+        int[] form = canonicalForm(height, width, grid);
+
+        Key key = new Key(form);
+        Shape shape = SHAPES.get(key);
+        if (shape != null || SHAPE_COUNT.get() >= MAX_SHAPES) return shape;
+        return SHAPES.computeIfAbsent(key, k -> {
+            int id = SHAPE_COUNT.getAndIncrement();
+            if (id >= MAX_SHAPES) return null;
+            Shape created = new Shape(id, form);
+            SHAPES_BY_ID.set(id, created);
+            return created;
+        });
+    }
+
+    /**
+     * Picks the smallest of the eight turned and mirrored versions of a grid
+     * @return height, width, then the claimed sides of each box row by row
+     */
+    private static int[] canonicalForm(int height, int width, int[] grid) {
+        int[] best = null;
+        for (int mirrored = 0; mirrored < 2; mirrored++) {
+            for (int turn = 0; turn < 4; turn++) {
+                int[] form = new int[grid.length + 2];
+                form[0] = height;
+                form[1] = width;
+                System.arraycopy(grid, 0, form, 2, grid.length);
+                if (best == null || compare(form, best) < 0) best = form;
+
+                // Quarter turn clockwise: (r, c) moves to (c, height - 1 - r)
+                int[] turned = new int[grid.length];
+                for (int r = 0; r < height; r++) {
+                    for (int c = 0; c < width; c++) {
+                        turned[c * height + height - 1 - r] = turnSides(grid[r * width + c]);
+                    }
+                }
+                grid = turned;
+                int swap = height;
+                height = width;
+                width = swap;
+            }
+            int[] flipped = new int[grid.length];
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    flipped[r * width + width - 1 - c] = flipSides(grid[r * width + c]);
+                }
+            }
+            grid = flipped;
+        }
+        return best;
+    }
+
+    private static int turnSides(int sides) {
+        int turned = 0;
+        if ((sides & TOP) != 0) turned |= RIGHT;
+        if ((sides & RIGHT) != 0) turned |= BOTTOM;
+        if ((sides & BOTTOM) != 0) turned |= LEFT;
+        if ((sides & LEFT) != 0) turned |= TOP;
+        return turned;
+    }
+
+    private static int flipSides(int sides) {
+        int flipped = sides & (TOP | BOTTOM);
+        if ((sides & LEFT) != 0) flipped |= RIGHT;
+        if ((sides & RIGHT) != 0) flipped |= LEFT;
+        return flipped;
+    }
+
+    private static int compare(int[] a, int[] b) {
+        if (a.length != b.length) return a.length - b.length;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return a[i] - b[i];
+        }
+        return 0;
+    }
+
+    // Sums of components
+
+    /**
+     * Canonicalizes a component list and values it
+     * @param components component codes, or null if they could not be found
+     */
+    private static int solve(int[] components, long maxSubsets) {
+        if (components == null || components.length > MAX_COMPONENTS) return UNKNOWN;
+        Arrays.sort(components);
+
+        // Distinct sub-sums the recursion may visit: a run of k equal chains
+        // or loops leaves 0 to k of them, and each copy of a shape any of its
+        // reachable remainders
+        long subsets = 1;
+        int run = 1;
+        for (int i = 1; i <= components.length; i++) {
+            if (i < components.length && components[i] == components[i - 1]) {
+                run++;
+                continue;
+            }
+            int code = components[i - 1];
+            if (code > SHAPE_BASE) {
+                subsets = times(subsets, run + 1);
+            } else {
+                long reach = reach(code);
+                for (int k = 0; k < run; k++) subsets = times(subsets, reach);
+            }
+            if (subsets > maxSubsets) return UNKNOWN;
+            run = 1;
+        }
+        return value(components);
+    }
+
+    /**
+     * Value of a sorted component list
+     */
+    private static int value(int[] components) {
+        if (components.length == 0) return 0;
+
+        Key key = new Key(components);
+        Integer cached = CACHE.get(key);
+        if (cached != null) return cached;
+
+        int best = -Integer.MAX_VALUE;
+        for (int i = 0; i < components.length; i++) {
+            // Equal components give the same result, open one of each only
+            if (i > 0 && components[i] == components[i - 1]) continue;
+
+            int code = components[i];
+            int[] others = without(components, i);
+            if (code > SHAPE_BASE) {
+                int length = Math.abs(code);
+                int handback = code < 0 ? LAST_FOUR : length >= 3 ? LAST_TWO : 0;
+                int rest = value(others);
+                if (rest == UNKNOWN) return UNKNOWN;
+                best = Math.max(best, -reply(length, handback, rest));
+            } else {
+                Opening[] openings = SHAPES_BY_ID.get(SHAPE_BASE - code).openings();
+                if (openings == null) return UNKNOWN;
+                for (Opening opening : openings) {
+                    int rest = value(merge(others, opening.rest));
+                    if (rest == UNKNOWN) return UNKNOWN;
+                    best = Math.max(best, -reply(opening.taken, opening.handback, rest));
+                }
+            }
+        }
+
+        if (CACHE.size() >= MAX_CACHE_ENTRIES) {
+            CACHE.clear();
+        }
+        CACHE.put(key, best);
+        return best;
+    }
+
+    /**
+     * Best result for the player taking an opened component
+     * @param taken boxes the component gives up
+     * @param handback boxes declining hands back, 0 if it cannot be declined
+     * @param rest value of what is left for whoever moves next
+     */
+    private static int reply(int taken, int handback, int rest) {
+        int reply = taken + rest;
+        if (handback > 0) reply = Math.max(reply, taken - 2 * handback - rest);
+        return reply;
+    }
+
+    /**
+     * Upper bound on the component lists a component can turn into
+     */
+    private static long reach(int code) {
+        if (code > SHAPE_BASE) return 2;
+        Shape shape = SHAPES_BY_ID.get(SHAPE_BASE - code);
+        long reach = shape.reach;
+        if (reach == 0) {
+            Opening[] openings = shape.openings();
+            reach = 1;
+            if (openings == null) {
+                reach = REACH_CAP;
+            } else {
+                for (Opening opening : openings) {
+                    long product = 1;
+                    for (int rest : opening.rest) product = times(product, reach(rest));
+                    reach = Math.min(REACH_CAP, reach + product);
+                }
+            }
+            shape.reach = reach;
+        }
+        return reach;
+    }
+
+    private static long times(long a, long b) {
+        return a > REACH_CAP / b ? REACH_CAP : a * b;
+    }
+
+    private static int[] without(int[] components, int index) {
+        int[] rest = new int[components.length - 1];
+        System.arraycopy(components, 0, rest, 0, index);
+        System.arraycopy(components, index + 1, rest, index, rest.length - index);
+        return rest;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        if (b.length == 0) return a;
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            merged[k] = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+        }
+        return merged;
+    }
+
+    // Box helpers
+
+    private static int claimedSides(DotsAndBoxesBitBoard board, int box) {
+        int cols = board.getCols();
+        int row = box / cols;
+        int col = box % cols;
+        int sides = 0;
+        if (board.isHorizontalEdgeClaimed(row, col)) sides |= TOP;
+        if (board.isHorizontalEdgeClaimed(row + 1, col)) sides |= BOTTOM;
+        if (board.isVerticalEdgeClaimed(row, col)) sides |= LEFT;
+        if (board.isVerticalEdgeClaimed(row, col + 1)) sides |= RIGHT;
+        return sides;
+    }
+
+    private static int sideCount(DotsAndBoxesBitBoard board, int box) {
+        int cols = board.getCols();
+        return board.getClaimedEdgeCount(box / cols, box % cols);
+    }
+
+    /**
+     * Gets an unclaimed side of a box other than the one given
+     */
+    private static int openSide(DotsAndBoxesBitBoard board, int box, int except) {
+        int claimed = claimedSides(board, box);
+        for (int side = TOP; side <= RIGHT; side <<= 1) {
+            if ((claimed & side) == 0 && side != except) return side;
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the box across one side of a box
+     * @return box index, or -1 at the border
+     */
+    private static int neighbour(DotsAndBoxesBitBoard board, int box, int side) {
+        int cols = board.getCols();
+        int row = box / cols;
+        int col = box % cols;
+        switch (side) {
+            case TOP: return row > 0 ? box - cols : -1;
+            case BOTTOM: return row < board.getRows() - 1 ? box + cols : -1;
+            case LEFT: return col > 0 ? box - 1 : -1;
+            default: return col < cols - 1 ? box + 1 : -1;
+        }
+    }
+
+    private static int edgeMove(DotsAndBoxesBitBoard board, int box, int side) {
+        int cols = board.getCols();
+        int row = box / cols;
+        int col = box % cols;
+        switch (side) {
+            case TOP: return DotsAndBoxesMove.encode(true, row, col);
+            case BOTTOM: return DotsAndBoxesMove.encode(true, row + 1, col);
+            case LEFT: return DotsAndBoxesMove.encode(false, row, col);
+            default: return DotsAndBoxesMove.encode(false, row, col + 1);
+        }
+    }
+
+    private static int opposite(int side) {
+        return side <= BOTTOM ? side ^ (TOP | BOTTOM) : side ^ (LEFT | RIGHT);
+    }
+
+    /**
+     * What opening a component leads to once the opponent has taken it
+     */
+    private static final class Opening {
+        final int taken;
+        final int handback;
+        final int[] rest;
+
+        Opening(int taken, int handback, int[] rest) {
+            this.taken = taken;
+            this.handback = handback;
+            this.rest = rest;
+        }
+    }
+
+    /**
+     * A component with junctions, stored as its canonical form
+     */
+    private static final class Shape {
+        final int id;
+        // Height, width, then the claimed sides of each box of the bounding box
+        final int[] form;
+        private volatile Opening[] openings;
+        private volatile boolean unsolvable;
+        volatile long reach;
+
+        Shape(int id, int[] form) {
+            this.id = id;
+            this.form = form;
+        }
+
+        /**
+         * Gets the distinct results of opening each edge, worked out on first use
+         * @return the openings, or null if a remainder cannot be solved
+         */
+        Opening[] openings() {
+            Opening[] result = openings;
+            if (result == null && !unsolvable) {
+                result = findOpenings();
+                if (result == null) {
+                    unsolvable = true;
+                } else {
+                    openings = result;
+                }
+            }
+            return result;
+        }
+
+        private Opening[] findOpenings() {
+            DotsAndBoxesBitBoard board = createBoard();
+            int[] moves = new int[board.getMaxMoves()];
+            int count = board.generateMoves(moves);
+            List<Opening> found = new ArrayList<>();
+
+            for (int i = 0; i < count; i++) {
+                int start = board.getUndoDepth();
+                board.makeMove(moves[i]);
+                int before = board.getCompletedBoxes();
+                int handback = cheapestDecline(board);
+                takeAll(board);
+                int taken = board.getCompletedBoxes() - before;
+                int[] rest = components(board);
+                while (board.getUndoDepth() > start) board.unmakeMove();
+
+                // An edge giving nothing away would be a safe move: not a loony endgame
+                if (taken == 0 || rest == null) return null;
+                Arrays.sort(rest);
+                add(found, new Opening(taken, handback, rest));
+            }
+            return found.toArray(new Opening[0]);
+        }
+
+        /**
+         * Keeps one opening per result, the one hardest to decline:
+         * no decline, then handing back four, then two
+         */
+        private static void add(List<Opening> found, Opening opening) {
+            for (int i = 0; i < found.size(); i++) {
+                Opening other = found.get(i);
+                if (other.taken == opening.taken && Arrays.equals(other.rest, opening.rest)) {
+                    if (rank(opening.handback) > rank(other.handback)) found.set(i, opening);
+                    return;
+                }
+            }
+            found.add(opening);
+        }
+
+        private static int rank(int handback) {
+            return handback == 0 ? 2 : handback == LAST_FOUR ? 1 : 0;
+        }
+
+        /**
+         * Builds a board holding only this component
+         */
+        private DotsAndBoxesBitBoard createBoard() {
+            int height = form[0];
+            int width = form[1];
+            DotsAndBoxesBitBoard board = DotsAndBoxesBitBoard.createLarge(height, width);
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    int sides = form[2 + r * width + c];
+                    claim(board, sides, TOP, DotsAndBoxesMove.encode(true, r, c));
+                    claim(board, sides, BOTTOM, DotsAndBoxesMove.encode(true, r + 1, c));
+                    claim(board, sides, LEFT, DotsAndBoxesMove.encode(false, r, c));
+                    claim(board, sides, RIGHT, DotsAndBoxesMove.encode(false, r, c + 1));
+                }
+            }
+            return board;
+        }
+
+        private static void claim(DotsAndBoxesBitBoard board, int sides, int side, int move) {
+            if ((sides & side) != 0 && board.isLegalMove(move)) board.makeMove(move);
+        }
+    }
+
+    /**
+     * Cache key wrapping a sorted component list or a shape's canonical form
+     */
+    private static final class Key {
+        private final int[] components;
+        private final int hash;
+
+        Key(int[] components) {
+            this.components = components;
+            this.hash = Arrays.hashCode(components);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(components, ((Key) other).components);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
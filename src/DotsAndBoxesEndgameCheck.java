@@ -0,0 +1,146 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * DotsAndBoxesEndgameCheck.java
+ *
+ * Checks DotsAndBoxesEndgame against exhaustive search. Random games are
+ * played on small boards with safe moves until none is left, then on to
+ * the end with random moves, so the positions include junctions, boxes on
+ * offer and half-taken chains. Every position from the first one without a
+ * safe move is valued both by DotsAndBoxesEndgame.solve and by plain
+ * negamax over every move, and each difference is printed.
+ *
+ * Usage: java DotsAndBoxesEndgameCheck [games per size] [seed]
+ * Exits with status 1 if any position disagrees.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public class DotsAndBoxesEndgameCheck {
+    private static final int[][] SIZES = { { 2, 2 }, { 2, 3 }, { 2, 4 }, { 3, 3 }, { 3, 4 } };
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        Random random = new Random(seed);
+
+        ColorPrinter.printlnCyan("Dots and Boxes endgame check: " + games + " games per size, seed " + seed);
+        System.out.printf("%6s %10s %10s %10s %10s %10s%n",
+                "size", "positions", "on offer", "junctions", "unknown", "wrong");
+        int wrongTotal = 0;
+        for (int[] size : SIZES) {
+            int positions = 0;
+            int offered = 0;
+            int junctions = 0;
+            int unknown = 0;
+            int wrong = 0;
+
+            for (int game = 0; game < games; game++) {
+                DotsAndBoxesBitBoard board = new DotsAndBoxesBitBoard(size[0], size[1]);
+                int[] moves = new int[board.getMaxMoves()];
+                Map<Long, Integer> values = new HashMap<>();
+                playSafeMoves(board, moves, random);
+
+                while (!board.isGameOver()) {
+                    int expected = negamax(board, values);
+                    int actual = DotsAndBoxesEndgame.solve(board, Long.MAX_VALUE);
+                    positions++;
+                    if (hasBoxWithSides(board, 3)) offered++;
+                    if (hasBoxWithSides(board, 0) || hasBoxWithSides(board, 1)) junctions++;
+                    if (actual == DotsAndBoxesEndgame.UNKNOWN) {
+                        unknown++;
+                    } else if (actual != expected) {
+                        wrong++;
+                        ColorPrinter.printlnRed("Expected " + expected + ", solved " + actual + ":");
+                        System.out.println(describe(board));
+                    }
+
+                    int count = board.generateMoves(moves);
+                    board.makeMove(moves[random.nextInt(count)]);
+                }
+            }
+
+            wrongTotal += wrong;
+            System.out.printf("%6s %10d %10d %10d %10d %10d%n", size[0] + "x" + size[1],
+                    positions, offered, junctions, unknown, wrong);
+        }
+
+        System.out.println(DotsAndBoxesEndgame.getCacheSize() + " component lists and " +
+                DotsAndBoxesEndgame.getShapeCount() + " shapes cached");
+        if (wrongTotal > 0) {
+            ColorPrinter.printlnRed(wrongTotal + " positions disagree");
+            System.exit(1);
+        }
+        ColorPrinter.printlnGreen("All positions agree");
+    }
+
+    /**
+     * Plays random safe moves until none is left
+     */
+    private static void playSafeMoves(DotsAndBoxesBitBoard board, int[] moves, Random random) {
+        while (board.getSafeMoveCount() > 0) {
+            int count = board.generateMoves(moves);
+            int safe = 0;
+            for (int i = 0; i < count; i++) {
+                if (board.isSafeMove(moves[i])) moves[safe++] = moves[i];
+            }
+            board.makeMove(moves[random.nextInt(safe)]);
+        }
+    }
+
+    /**
+     * Net boxes the player to move wins with best play by both sides,
+     * trying every move
+     */
+    private static int negamax(DotsAndBoxesBitBoard board, Map<Long, Integer> values) {
+        if (board.isGameOver()) return 0;
+        Integer known = values.get(board.getHash());
+        if (known != null) return known;
+
+        int[] moves = new int[board.getRemainingMoves()];
+        int count = board.generateMoves(moves);
+        int best = -Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int boxes = board.makeMove(moves[i]);
+            int value = boxes > 0 ? boxes + negamax(board, values) : -negamax(board, values);
+            board.unmakeMove();
+            best = Math.max(best, value);
+        }
+        values.put(board.getHash(), best);
+        return best;
+    }
+
+    private static boolean hasBoxWithSides(DotsAndBoxesBitBoard board, int sides) {
+        for (int r = 0; r < board.getRows(); r++) {
+            for (int c = 0; c < board.getCols(); c++) {
+                if (board.getClaimedEdgeCount(r, c) == sides) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Draws the claimed edges, one text row per row of dots and of boxes
+     */
+    private static String describe(DotsAndBoxesBitBoard board) {
+        StringBuilder text = new StringBuilder();
+        for (int r = 0; r <= board.getRows(); r++) {
+            for (int c = 0; c < board.getCols(); c++) {
+                text.append(board.isHorizontalEdgeClaimed(r, c) ? "+---" : "+   ");
+            }
+            text.append("+\n");
+            if (r == board.getRows()) break;
+            for (int c = 0; c <= board.getCols(); c++) {
+                text.append(board.isVerticalEdgeClaimed(r, c) ? "|" : " ");
+                if (c < board.getCols()) {
+                    char owner = board.getBoxOwner(r, c);
+                    text.append(' ').append(owner).append(' ');
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * DotsAndBoxesEngine.java
+ *
+ * A way of choosing Dots and Boxes moves for a ComputerPlayer. Implemented
+ * by the alpha-beta search (DotsAndBoxesAI) and the Monte Carlo tree
+ * search (DotsAndBoxesMCTS).
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public interface DotsAndBoxesEngine {
+    /**
+     * Finds a move for the player to move; the board is left as it was
+     * @param position position to search
+     * @return chosen move (see DotsAndBoxesMove), or NO_MOVE if the game is over
+     */
+    int chooseMove(DotsAndBoxesBitBoard position);
+
+    /**
+     * Sets how many threads work on each move
+     * @param threads number of threads
+     * @throws IllegalArgumentException if the count is not supported
+     */
+    void setThreadCount(int threads);
+
+    /**
+     * Stops any helper threads; they are started again when needed
+     */
+    void shutdown();
+
+    /**
+     * Describes the work done for the last move, for display
+     * @return short summary such as "depth 7, 120000 positions, 950 ms"
+     */
+    String getLastSummary();
+}
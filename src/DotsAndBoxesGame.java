@@ -1,8 +1,16 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * DotsAndBoxesGame.java
  * Manages the game flow for a single Dots and Boxes match.
+ * A headless game is played by two computer players without printing or
+ * reading anything, so simulations can run many games in a row. The human
+ * players' moves can also come from a move script instead of the keyboard,
+ * for replays and load tests; nothing is prompted for then. Every move
+ * can be recorded into a game record file (see GameRecord).
  * @author Priyanshu and Lyu
- * @version 1.0
+ * @version 1.3
  */
 public class DotsAndBoxesGame {
     private DotsAndBoxesBoard board;
@@ -12,6 +20,11 @@ public class DotsAndBoxesGame {
     private InputHandler inputHandler;
     private PlayerStatistics statistics;
     private boolean gameActive;
+    private final boolean headless;
+    private final MoveScriptReader script;
+    private Player winner;
+    private Path recordFile;
+    private GameRecordWriter recorder;
 
     /**
      * Constructor - creates a new game instance
@@ -23,13 +36,50 @@ public class DotsAndBoxesGame {
      */
     public DotsAndBoxesGame(Player player1, Player player2, int rows, int cols,
                             PlayerStatistics statistics) {
+        this(player1, player2, rows, cols, statistics, false);
+    }
+
+    /**
+     * Creates a game, optionally without any console input or output
+     * @param player1 first player
+     * @param player2 second player
+     * @param rows number of box rows
+     * @param cols number of box columns
+     * @param statistics statistics tracker
+     * @param headless true to play silently; both players must then be computer players
+     * @throws IllegalArgumentException if a headless game has a human player
+     */
+    public DotsAndBoxesGame(Player player1, Player player2, int rows, int cols,
+                            PlayerStatistics statistics, boolean headless) {
+        this(player1, player2, rows, cols, statistics, headless, null);
+    }
+
+    /**
+     * Creates a game whose human players' moves are read from a script
+     * @param player1 first player
+     * @param player2 second player
+     * @param rows number of box rows
+     * @param cols number of box columns
+     * @param statistics statistics tracker
+     * @param headless true to play silently
+     * @param script moves of the human players, or null to ask for them
+     * @throws IllegalArgumentException if a headless game has a human player and no script
+     */
+    public DotsAndBoxesGame(Player player1, Player player2, int rows, int cols,
+                            PlayerStatistics statistics, boolean headless, MoveScriptReader script) {
+        if (headless && script == null
+                && !(player1 instanceof ComputerPlayer && player2 instanceof ComputerPlayer)) {
+            throw new IllegalArgumentException("A headless game needs a move script or two computer players");
+        }
         this.board = new DotsAndBoxesBoard(rows, cols);
         this.player1 = player1;
         this.player2 = player2;
         this.currentPlayer = player1;
-        this.inputHandler = new InputHandler();
+        this.inputHandler = headless || script != null ? null : new InputHandler();
         this.statistics = statistics;
         this.gameActive = true;
+        this.headless = headless;
+        this.script = script;
 
         // Reset scores for new game
         player1.resetScore();
@@ -40,30 +90,56 @@ public class DotsAndBoxesGame {
      * Main game loop
      */
     public void play() {
-        displayGameStart();
-        board.display();
-
-        // Main game loop
-        while (gameActive && !board.isGameOver()) {
-            displayCurrentTurn();
-
-            boolean validMove = false;
-            while (!validMove && gameActive) {
-                validMove = makeMove();
-            }
+        if (!headless) {
+            // An incremental redraw clears the screen, so pin the board before the introduction
+            if (FrameRenderer.isIncrementalByDefault()) board.display();
+            displayGameStart();
+            board.display();
+        }
 
-            // Check if game was quit
-            if (!gameActive) {
-                break;
+        startRecording();
+        try {
+            // Main game loop
+            while (gameActive && !board.isGameOver()) {
+                if (!headless) displayCurrentTurn();
+
+                boolean validMove = false;
+                while (!validMove && gameActive) {
+                    validMove = makeMove();
+                }
+
+                // Check if game was quit
+                if (!gameActive) {
+                    break;
+                }
             }
+        } finally {
+            stopRecording();
         }
 
         // End game handling
         if (gameActive) {
             endGame();
-        } else {
+        } else if (!headless) {
             handleQuit();
         }
+        board.releaseDisplay();
+    }
+
+    /**
+     * Checks whether every edge has been claimed
+     * @return true if the game was played to the end
+     */
+    public boolean isGameOver() {
+        return board.isGameOver();
+    }
+
+    /**
+     * Gets the winner of a finished game
+     * @return the winner, or null for a tie or an unfinished game
+     */
+    public Player getWinner() {
+        return winner;
     }
 
     /**
@@ -101,6 +177,13 @@ public class DotsAndBoxesGame {
      * @return true if move was valid and completed, false otherwise
      */
     private boolean makeMove() {
+        if (currentPlayer instanceof ComputerPlayer) {
+            return makeComputerMove((ComputerPlayer) currentPlayer);
+        }
+        if (script != null) {
+            return makeScriptedMove();
+        }
+
         // Get edge type (horizontal or vertical)
         System.out.print("\nEnter edge type (H/V) or 'quit': ");
         String edgeType = inputHandler.getString("").toUpperCase();
@@ -135,6 +218,70 @@ public class DotsAndBoxesGame {
             return true;
         }
 
+        return applyMove(row, col, isHorizontal);
+    }
+
+    /**
+     * Lets a computer player pick and play its move
+     * @param computer player to move
+     * @return true once the move has been played
+     * @throws IllegalStateException if the engine chose an illegal move
+     */
+    private boolean makeComputerMove(ComputerPlayer computer) {
+        Player opponent = (computer == player1) ? player2 : player1;
+        int move = computer.chooseMove(board, opponent.getSymbol());
+        // Asking the engine again would only repeat the same move forever
+        if (!board.isLegalMove(move)) {
+            throw new IllegalStateException(computer.getName() + " chose an illegal move: " +
+                    DotsAndBoxesMove.toString(move));
+        }
+
+        if (!headless) {
+            ColorPrinter.printlnCyan("\n" + computer.getName() + " plays " + DotsAndBoxesMove.toString(move) +
+                    " (" + computer.getEngine().getLastSummary() + ")");
+        }
+        return applyMove(DotsAndBoxesMove.getRow(move), DotsAndBoxesMove.getCol(move),
+                DotsAndBoxesMove.isHorizontal(move));
+    }
+
+    /**
+     * Plays the next move of the script; the game ends like a quit if the
+     * script ends first
+     * @return true once the move has been played
+     * @throws IllegalArgumentException naming the script line of a malformed or illegal move
+     * @throws IllegalStateException if the script cannot be read
+     */
+    private boolean makeScriptedMove() {
+        int move;
+        try {
+            move = script.nextMove();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the move script", e);
+        }
+        if (move == DotsAndBoxesMove.NO_MOVE) {
+            gameActive = false;
+            return true;
+        }
+        if (!board.isLegalMove(move)) {
+            throw new IllegalArgumentException("Line " + script.getLineNumber() + ": " +
+                    DotsAndBoxesMove.toString(move) + " is not a free edge");
+        }
+
+        if (!headless) {
+            ColorPrinter.printlnCyan("\n" + currentPlayer.getName() + " plays " + DotsAndBoxesMove.toString(move));
+        }
+        return applyMove(DotsAndBoxesMove.getRow(move), DotsAndBoxesMove.getCol(move),
+                DotsAndBoxesMove.isHorizontal(move));
+    }
+
+    /**
+     * Claims an edge for the current player and handles scoring and turns
+     * @param row edge row
+     * @param col edge column
+     * @param isHorizontal true for a horizontal edge
+     * @return true if the edge was claimed, false if it was already taken
+     */
+    private boolean applyMove(int row, int col, boolean isHorizontal) {
         // Attempt to claim the edge
         boolean claimed;
         if (isHorizontal) {
@@ -150,13 +297,20 @@ public class DotsAndBoxesGame {
 
         // Check if any boxes were completed
         int boxesCompleted = board.checkForCompletedBoxes(row, col, isHorizontal);
+        recordMove(DotsAndBoxesMove.encode(isHorizontal, row, col));
+
+        if (headless) {
+            for (int i = 0; i < boxesCompleted; i++) currentPlayer.incrementScore();
+            if (boxesCompleted == 0) switchPlayer();
+            return true;
+        }
 
         // Update display
         board.display();
 
         // Handle box completion
         if (boxesCompleted > 0) {
-            currentPlayer.incrementScore();
+            for (int i = 0; i < boxesCompleted; i++) currentPlayer.incrementScore();
 
             if (boxesCompleted == 1) {
                 ColorPrinter.printlnGreen("★ " + currentPlayer.getName() +
@@ -175,6 +329,68 @@ public class DotsAndBoxesGame {
         return true;
     }
 
+    /**
+     * Records the moves of this game into a file instead of a new file in
+     * the record directory (see GameRecordWriter.setDirectory)
+     * @param file record to write when the game is played
+     */
+    public void setRecordFile(Path file) {
+        this.recordFile = file;
+    }
+
+    /**
+     * Opens the game record, if this game is to be recorded
+     */
+    private void startRecording() {
+        try {
+            Path file = recordFile;
+            if (file == null) {
+                if (GameRecordWriter.getDirectory() == null) return;
+                file = GameRecordWriter.newFile("dots");
+            }
+            recorder = GameRecordWriter.forDotsAndBoxes(file, board.getRows(), board.getCols(),
+                    player1, player2, GameRecord.DEFAULT_CHECKPOINT_INTERVAL);
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    private void recordMove(int move) {
+        if (recorder == null) return;
+        try {
+            recorder.recordMove(move);
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    private void stopRecording() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+            recorder = null;
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    /**
+     * Stops a headless game, or lets an interactive one go on unrecorded
+     */
+    private void recordingFailed(IOException e) {
+        GameRecordWriter failed = recorder;
+        recorder = null;
+        if (failed != null) {
+            try {
+                failed.close();
+            } catch (IOException ignored) {
+                // Already reporting the first failure
+            }
+        }
+        if (headless) throw new IllegalStateException("Could not write the game record", e);
+        ColorPrinter.printlnRed("Could not write the game record, recording stopped: " + e.getMessage());
+    }
+
     /**
      * Switches the current player
      */
@@ -182,10 +398,34 @@ public class DotsAndBoxesGame {
         currentPlayer = (currentPlayer == player1) ? player2 : player1;
     }
 
+    /**
+     * Decides the winner and records the game in the players' and the shared statistics
+     * @return the winner, or null for a tie
+     */
+    private Player recordResult() {
+        if (player1.getScore() > player2.getScore()) {
+            winner = player1;
+        } else if (player2.getScore() > player1.getScore()) {
+            winner = player2;
+        }
+
+        player1.recordGame();
+        player2.recordGame();
+        if (winner != null) {
+            winner.recordWin();
+        }
+
+        statistics.recordGame(player1, player2, winner);
+        return winner;
+    }
+
     /**
      * Handles end of game
      */
     private void endGame() {
+        recordResult();
+        if (headless) return;
+
         ColorPrinter.printlnCyan("\n╔═══════════════════════════════════════╗");
         ColorPrinter.printlnCyan("║            GAME OVER!                ║");
         ColorPrinter.printlnCyan("╚═══════════════════════════════════════╝");
@@ -195,28 +435,14 @@ public class DotsAndBoxesGame {
         System.out.println(player1.getName() + ": " + player1.getScore());
         System.out.println(player2.getName() + ": " + player2.getScore());
 
-        // Determine winner
-        Player winner = null;
-        if (player1.getScore() > player2.getScore()) {
-            winner = player1;
-            ColorPrinter.printlnGreen("\n🎉 " + player1.getName() + " WINS! 🎉");
-        } else if (player2.getScore() > player1.getScore()) {
-            winner = player2;
-            ColorPrinter.printlnGreen("\n🎉 " + player2.getName() + " WINS! 🎉");
+        if (winner != null) {
+            ColorPrinter.printlnGreen("\n🎉 " + winner.getName() + " WINS! 🎉");
         } else {
             ColorPrinter.printlnYellow("\n🤝 It's a TIE! 🤝");
         }
 
-        // Update statistics
-        player1.recordGame();
-        player2.recordGame();
-        if (winner != null) {
-            winner.recordWin();
-        }
-
-        statistics.recordGame(player1, player2, winner);
-
-        // Ask to play again
+        // Ask to play again, unless the moves come from a script
+        if (script != null) return;
         System.out.println();
         if (inputHandler.getYesNo("Would you like to play again?")) {
             // Create new game with same players
@@ -0,0 +1,57 @@
+/**
+ * DotsAndBoxesHash.java
+ *
+ * Zobrist keys for Dots and Boxes positions. A position hash is the XOR of
+ * the keys of its claimed edges, optionally combined with the side-to-move
+ * key and a score key, so boards can update it in O(1) per claim or undo.
+ *
+ * Keys are derived from the edge number with a SplitMix64 finalizer instead
+ * of being stored in a table, which keeps them free for large boards and
+ * identical on every board of the same size.
+ *
+ * Edges are numbered horizontals first (row * cols + col), then verticals
+ * ((rows + 1) * cols + row * (cols + 1) + col).
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public final class DotsAndBoxesHash {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long EDGE_SEED = 0x2545F4914F6CDD1DL;
+    private static final long SCORE_SEED = 0x6A09E667F3BCC909L;
+
+    /** XORed in when the second player is to move */
+    public static final long SIDE_TO_MOVE_KEY = mix(0x5851F42D4C957F2DL);
+
+    private DotsAndBoxesHash() {
+        // static helpers only
+    }
+
+    /**
+     * Gets the key of one edge
+     * @param edge edge number (see class comment)
+     * @return 64-bit key
+     */
+    public static long edgeKey(int edge) {
+        return mix(EDGE_SEED + edge * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Gets the key for a score difference; a level score contributes nothing
+     * @param scoreDifference first player's boxes minus second player's boxes
+     * @return 64-bit key
+     */
+    public static long scoreKey(int scoreDifference) {
+        if (scoreDifference == 0) return 0L;
+        return mix(SCORE_SEED + scoreDifference * GOLDEN_GAMMA);
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads every input bit over the whole result
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,708 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * DotsAndBoxesMCTS.java
+ *
+ * Monte Carlo tree search for Dots and Boxes, meant for boards too large
+ * for the alpha-beta search to see far ahead. Each iteration walks down the
+ * tree with UCT, grows it by one node's children, plays the rest of the game
+ * out with a fast random policy and credits the result to every node on
+ * the path.
+ *
+ * All threads share one tree without locks: visit and reward counters are
+ * updated atomically, a node's children are published with a single
+ * compare-and-set (a thread that loses the race just uses the winner's
+ * array), and each visit is counted on the way down as a "virtual loss" so
+ * concurrent threads spread over different branches.
+ *
+ * The tree only offers captures and safe moves while a safe move is left,
+ * and skips decisions that cannot matter: a box whose capture hands
+ * nothing to anyone (its last side is on the border or next to a box with
+ * fewer than two claimed sides, or it completes two boxes at once) is
+ * always taken on the way down, and a position made only of chains and
+ * loops is a leaf whose value DotsAndBoxesEndgame knows exactly.
+ *
+ * Playouts run on each thread's own DotsAndBoxesBitBoard with
+ * makeMove/unmakeMove, so they allocate nothing and cost O(edges). The
+ * playout policy takes any box on offer, otherwise plays a random safe move,
+ * otherwise a random move; once no safe move is left the playout is
+ * finished with the exact DotsAndBoxesEndgame value when it is cheap enough.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public class DotsAndBoxesMCTS implements DotsAndBoxesEngine {
+    public static final int DEFAULT_TIME_LIMIT_MS = 1000;
+    public static final int DEFAULT_MAX_NODES = 1_000_000;
+    public static final int MAX_THREADS = 64;
+
+    private static final double EXPLORATION = 1.4;
+    private static final int EXPAND_AFTER_VISITS = 2;
+    private static final int CHECK_INTERVAL = 16;
+    // Endgames needing more work than this are played out instead of solved
+    private static final long PLAYOUT_SOLVE_LIMIT = 1 << 10;
+    // Playout policy: sacrifices compared per decision, and the fewest
+    // two-sided boxes left for which handing back two boxes is worth it
+    private static final int SACRIFICE_SAMPLES = 8;
+    private static final int KEEP_CONTROL_MIN_BOXES = 4;
+
+    private static final AtomicLongFieldUpdater<Node> VISITS =
+            AtomicLongFieldUpdater.newUpdater(Node.class, "visits");
+    private static final AtomicLongFieldUpdater<Node> REWARD =
+            AtomicLongFieldUpdater.newUpdater(Node.class, "reward");
+    private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+    private final long timeLimitNanos;
+    private final long playoutLimit;
+    private final int maxNodes;
+    private final SplittableRandom seeds;
+    private int threadCount;
+    private ExecutorService helperPool;
+
+    // Shared by all workers of the running search
+    private volatile boolean stopped;
+    private long deadline;
+    // Largest playout reward, see Worker.rewardFor
+    private long rewardScale;
+    private final AtomicLong sharedPlayouts = new AtomicLong();
+    private final AtomicInteger treeSize = new AtomicInteger();
+
+    // Results of the last search
+    private long lastPlayouts;
+    private long lastTimeNanos;
+    private int lastTreeSize;
+    private int lastTreeDepth;
+    private double lastExpectedResult;
+
+    /**
+     * Creates a player with the default one second budget per move
+     */
+    public DotsAndBoxesMCTS() {
+        this(DEFAULT_TIME_LIMIT_MS, 0);
+    }
+
+    /**
+     * Creates a player with the given budget per move
+     * @param timeLimitMs thinking time per move in milliseconds (0 for no time limit)
+     * @param playoutLimit playouts per move (0 for no playout limit)
+     * @throws IllegalArgumentException if both limits are 0 or either is negative
+     */
+    public DotsAndBoxesMCTS(int timeLimitMs, long playoutLimit) {
+        this(timeLimitMs, playoutLimit, DEFAULT_MAX_NODES, System.nanoTime());
+    }
+
+    /**
+     * Creates a player with the given budget, tree size limit and random seed
+     * @param timeLimitMs thinking time per move in milliseconds (0 for no time limit)
+     * @param playoutLimit playouts per move (0 for no playout limit)
+     * @param maxNodes largest tree to grow; later playouts start from leaves
+     * @param seed seed of the playout random numbers
+     * @throws IllegalArgumentException if both limits are 0, either is negative,
+     *         or maxNodes is not positive
+     */
+    public DotsAndBoxesMCTS(int timeLimitMs, long playoutLimit, int maxNodes, long seed) {
+        if (timeLimitMs < 0 || playoutLimit < 0 || (timeLimitMs == 0 && playoutLimit == 0)) {
+            throw new IllegalArgumentException("MCTS needs a time or playout limit");
+        }
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException("The tree must allow at least one node");
+        }
+        this.timeLimitNanos = timeLimitMs * 1_000_000L;
+        this.playoutLimit = playoutLimit;
+        this.maxNodes = maxNodes;
+        this.seeds = new SplittableRandom(seed);
+        this.threadCount = 1;
+    }
+
+    /**
+     * Sets how many threads run playouts for each move
+     * @param threads number of threads (1 to MAX_THREADS)
+     * @throws IllegalArgumentException if the count is out of range
+     */
+    @Override
+    public void setThreadCount(int threads) {
+        if (threads < 1 || threads > MAX_THREADS) {
+            throw new IllegalArgumentException("Thread count must be between 1 and " + MAX_THREADS);
+        }
+        if (threads != threadCount) {
+            shutdown();
+            threadCount = threads;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+            helperPool = null;
+        }
+    }
+
+    /**
+     * Runs playouts from the given position until the budget is used up
+     * and picks the most visited move
+     *
+     * @param position position to search, left unchanged
+     * @return chosen move (see DotsAndBoxesMove), or NO_MOVE if the game is over
+     */
+    @Override
+    public int chooseMove(DotsAndBoxesBitBoard position) {
+        long start = System.nanoTime();
+        deadline = start + timeLimitNanos;
+        stopped = false;
+        sharedPlayouts.set(0);
+        treeSize.set(1);
+        rewardScale = 4L * position.getTotalBoxes();
+
+        int forced = forcedCapture(position, new int[position.getMaxMoves()]);
+        if (forced != DotsAndBoxesMove.NO_MOVE) {
+            lastPlayouts = 0;
+            lastTimeNanos = System.nanoTime() - start;
+            lastTreeSize = 0;
+            lastTreeDepth = 0;
+            lastExpectedResult = 0;
+            return forced;
+        }
+
+        Node root = new Node(DotsAndBoxesMove.NO_MOVE, false);
+        List<Future<?>> helpers = new ArrayList<>();
+        List<Worker> workers = new ArrayList<>();
+        if (threadCount > 1 && !position.isGameOver()) {
+            if (helperPool == null) {
+                helperPool = Executors.newFixedThreadPool(threadCount - 1, runnable -> {
+                    Thread thread = new Thread(runnable, "dots-and-boxes-mcts");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            for (int id = 1; id < threadCount; id++) {
+                Worker helper = new Worker(root, position, seeds.split());
+                workers.add(helper);
+                helpers.add(helperPool.submit(helper::run));
+            }
+        }
+
+        Worker main = new Worker(root, position, seeds.split());
+        workers.add(main);
+        if (!position.isGameOver()) {
+            main.run();
+        }
+        stopped = true;
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Playout thread failed", e.getCause());
+            }
+        }
+
+        long playouts = 0;
+        int depth = 0;
+        for (Worker worker : workers) {
+            playouts += worker.playouts;
+            depth = Math.max(depth, worker.maxDepth);
+        }
+        lastPlayouts = playouts;
+        lastTimeNanos = System.nanoTime() - start;
+        lastTreeSize = treeSize.get();
+        lastTreeDepth = depth;
+
+        Node best = mostVisitedChild(root);
+        if (best == null) {
+            lastExpectedResult = 0;
+            return firstLegalMove(position);
+        }
+        lastExpectedResult = best.visits == 0 ? 0 : best.reward / (double) (rewardScale * best.visits);
+        return best.move;
+    }
+
+    private Node mostVisitedChild(Node node) {
+        Node[] children = node.children;
+        if (children == null) return null;
+        Node best = null;
+        for (Node child : children) {
+            if (best == null || child.visits > best.visits) best = child;
+        }
+        return best;
+    }
+
+    /**
+     * Finds a capture that is never wrong to take: its box's last side is on
+     * the border, next to a box with fewer than two claimed sides, or next
+     * to another box it completes. Only a capture that opens the next box of
+     * a chain can be worth declining.
+     * @param board position to look at
+     * @param moves scratch buffer of at least getMaxMoves() entries
+     * @return such a capture, or NO_MOVE
+     */
+    private static int forcedCapture(DotsAndBoxesBitBoard board, int[] moves) {
+        int count = board.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int row = DotsAndBoxesMove.getRow(move);
+            int col = DotsAndBoxesMove.getCol(move);
+            int first;
+            int second;
+            if (DotsAndBoxesMove.isHorizontal(move)) {
+                first = row > 0 ? board.getClaimedEdgeCount(row - 1, col) : -1;
+                second = row < board.getRows() ? board.getClaimedEdgeCount(row, col) : -1;
+            } else {
+                first = col > 0 ? board.getClaimedEdgeCount(row, col - 1) : -1;
+                second = col < board.getCols() ? board.getClaimedEdgeCount(row, col) : -1;
+            }
+            if ((first == 3 && second != 2) || (second == 3 && first != 2)) {
+                return move;
+            }
+        }
+        return DotsAndBoxesMove.NO_MOVE;
+    }
+
+    /**
+     * Generates the moves worth a tree node: while a safe move exists,
+     * giving boxes away is almost never right, so only captures and safe
+     * moves are kept; after that every move is a candidate
+     * @return number of moves in the buffer
+     */
+    private static int candidateMoves(DotsAndBoxesBitBoard board, int[] moves) {
+        int count = board.generateMoves(moves);
+        int kept = 0;
+        boolean safeFound = false;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            boolean safe = board.isSafeMove(move);
+            if (safe || board.countBoxesCompletedBy(move) > 0) {
+                moves[kept++] = move;
+                safeFound |= safe;
+            }
+        }
+        return safeFound ? kept : board.generateMoves(moves);
+    }
+
+    private int firstLegalMove(DotsAndBoxesBitBoard position) {
+        int[] moves = new int[position.getMaxMoves()];
+        return position.generateMoves(moves) > 0 ? moves[0] : DotsAndBoxesMove.NO_MOVE;
+    }
+
+    /**
+     * One tree node. The reward is counted for the player who made the
+     * move leading here, since a capture keeps the turn with the same player.
+     */
+    private static final class Node {
+        final int move;
+        final boolean byRootPlayer;
+        volatile long visits;
+        volatile long reward;
+        volatile Node[] children;
+
+        Node(int move, boolean byRootPlayer) {
+            this.move = move;
+            this.byRootPlayer = byRootPlayer;
+        }
+    }
+
+    /**
+     * One playout thread with its own board, path and random numbers
+     */
+    private class Worker {
+        private final Node root;
+        private final DotsAndBoxesBitBoard board;
+        private final char rootSymbol;
+        private final SplittableRandom random;
+        private final Node[] path;
+        private final int[] moves;
+        private final int[] captures;
+        private long playouts;
+        private int maxDepth;
+
+        Worker(Node root, DotsAndBoxesBitBoard position, SplittableRandom random) {
+            this.root = root;
+            this.board = position.copy();
+            this.rootSymbol = position.getSymbolToMove();
+            this.random = random;
+            this.path = new Node[board.getRemainingMoves() + 1];
+            this.moves = new int[board.getMaxMoves()];
+            this.captures = new int[2 * board.getMaxMoves()];
+        }
+
+        void run() {
+            while (!stopped) {
+                iterate();
+                playouts++;
+                if (playouts % CHECK_INTERVAL == 0) checkBudget();
+            }
+        }
+
+        private void checkBudget() {
+            long total = sharedPlayouts.addAndGet(CHECK_INTERVAL);
+            if (playoutLimit > 0 && total >= playoutLimit) {
+                stopped = true;
+            } else if (timeLimitNanos > 0 && System.nanoTime() >= deadline) {
+                stopped = true;
+            }
+        }
+
+        /**
+         * Selection, expansion, playout and backup for one playout
+         */
+        private void iterate() {
+            int length = 0;
+            Node node = root;
+            VISITS.incrementAndGet(node);
+            path[length++] = node;
+
+            // Below the root a chain and loop endgame is valued by the playout
+            while (!board.isGameOver()
+                    && (node == root || !DotsAndBoxesEndgame.isChainsAndLoops(board))) {
+                Node[] children = node.children;
+                if (children == null) {
+                    if (node.visits < EXPAND_AFTER_VISITS && node != root) break;
+                    children = expand(node);
+                    if (children == null) break;
+                }
+                node = select(node, children);
+                VISITS.incrementAndGet(node);
+                board.makeMove(node.move);
+                path[length++] = node;
+
+                int forced;
+                while ((forced = forcedCapture(board, moves)) != DotsAndBoxesMove.NO_MOVE) {
+                    board.makeMove(forced);
+                }
+            }
+            if (length > maxDepth) maxDepth = length;
+
+            long result = playout();
+            for (int i = 0; i < length; i++) {
+                Node visited = path[i];
+                REWARD.addAndGet(visited, visited.byRootPlayer ? result : rewardScale - result);
+            }
+            while (board.getUndoDepth() > 0) {
+                board.unmakeMove();
+            }
+        }
+
+        /**
+         * Creates the children of a node and publishes them, unless another
+         * thread already did or the tree is full
+         * @return the node's children, or null if the tree is full
+         */
+        private Node[] expand(Node node) {
+            int count = candidateMoves(board, moves);
+            if (treeSize.addAndGet(count) > maxNodes) {
+                treeSize.addAndGet(-count);
+                return null;
+            }
+            boolean byRootPlayer = board.getSymbolToMove() == rootSymbol;
+            Node[] children = new Node[count];
+            for (int i = 0; i < count; i++) {
+                children[i] = new Node(moves[i], byRootPlayer);
+            }
+            if (CHILDREN.compareAndSet(node, null, children)) {
+                return children;
+            }
+            treeSize.addAndGet(-count);
+            return node.children;
+        }
+
+        /**
+         * UCT: best mean reward for the player to move plus an exploration
+         * bonus; unvisited children are tried first, from a random start
+         */
+        private Node select(Node parent, Node[] children) {
+            double logParent = Math.log(Math.max(1, parent.visits));
+            int offset = random.nextInt(children.length);
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+
+            for (int n = 0; n < children.length; n++) {
+                Node child = children[(n + offset) % children.length];
+                long visits = child.visits;
+                if (visits == 0) return child;
+
+                double mean = child.reward / (double) (rewardScale * visits);
+                double score = mean + EXPLORATION * Math.sqrt(logParent / visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Plays the game out from the current board in O(edges): the free
+         * edges are shuffled once, a move found unsafe stays unsafe for the
+         * rest of the game, and boxes on offer are found from the edge just
+         * played instead of by scanning the board.
+         *
+         * Once the safe moves are gone the policy plays like a sensible human:
+         * it gives away the smallest of a few sampled sacrifices, and keeps
+         * control by handing back the last two boxes of a chain while other
+         * chains are still to come.
+         * @return reward of the result for the player who was to move at the root
+         */
+        private long playout() {
+            int count = board.generateMoves(moves);
+            int captureCount = 0;
+            for (int i = count - 1; i >= 0; i--) {
+                int j = random.nextInt(i + 1);
+                int move = moves[j];
+                moves[j] = moves[i];
+                moves[i] = move;
+                if (board.countBoxesCompletedBy(move) > 0) captures[captureCount++] = move;
+            }
+
+            int safeCursor = 0;
+            int unsafeCount = 0;
+            int unsafeCursor = 0;
+            while (!board.isGameOver()) {
+                int chosen = DotsAndBoxesMove.NO_MOVE;
+                while (chosen == DotsAndBoxesMove.NO_MOVE && captureCount > 0) {
+                    int move = captures[--captureCount];
+                    if (board.isLegalMove(move)) chosen = move;
+                }
+                if (chosen != DotsAndBoxesMove.NO_MOVE && safeCursor == count) {
+                    int decline = doubleDealing(chosen);
+                    if (decline != DotsAndBoxesMove.NO_MOVE) chosen = decline;
+                }
+
+                // Boxes on offer are taken before the endgame is solved
+                if (chosen == DotsAndBoxesMove.NO_MOVE) {
+                    int endgame = DotsAndBoxesEndgame.solve(board, PLAYOUT_SOLVE_LIMIT);
+                    if (endgame != DotsAndBoxesEndgame.UNKNOWN) {
+                        return rewardFor(board.getScoreDifference() + endgame);
+                    }
+                }
+                while (chosen == DotsAndBoxesMove.NO_MOVE && safeCursor < count) {
+                    int move = moves[safeCursor++];
+                    if (!board.isLegalMove(move)) continue;
+                    if (board.isSafeMove(move)) {
+                        chosen = move;
+                    } else {
+                        moves[unsafeCount++] = move;
+                    }
+                }
+                if (chosen == DotsAndBoxesMove.NO_MOVE) {
+                    while (!board.isLegalMove(moves[unsafeCursor])) unsafeCursor++;
+                    chosen = smallestSacrifice(unsafeCursor, unsafeCount);
+                    unsafeCursor++;
+                }
+
+                board.makeMove(chosen);
+                captureCount = addCaptures(chosen, captureCount);
+            }
+            return rewardFor(board.getScoreDifference());
+        }
+
+        /**
+         * Looks at up to SACRIFICE_SAMPLES legal moves of the unsafe list
+         * from the given position and moves the one giving away the fewest
+         * boxes to the front
+         * @return that move
+         */
+        private int smallestSacrifice(int first, int end) {
+            int best = first;
+            int bestCost = Integer.MAX_VALUE;
+            int sampled = 0;
+            for (int i = first; i < end && sampled < SACRIFICE_SAMPLES; i++) {
+                int move = moves[i];
+                if (!board.isLegalMove(move)) continue;
+                sampled++;
+                int cost = boxesGivenAway(move);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = i;
+                }
+            }
+            int move = moves[best];
+            moves[best] = moves[first];
+            moves[first] = move;
+            return move;
+        }
+
+        /**
+         * Counts the boxes the opponent could take in a row after the move,
+         * by following the chain of two-sided boxes on each side of it
+         */
+        private int boxesGivenAway(int move) {
+            int total = 0;
+            for (int side = 0; side < 2; side++) {
+                int start = boxBeside(move, side == 0);
+                if (start < 0 || claimedSides(start) != 2) continue;
+
+                int box = start;
+                int entry = move;
+                int length = 0;
+                while (length < board.getTotalBoxes()) {
+                    length++;
+                    int exit = otherFreeSide(box, entry);
+                    int next = exit == DotsAndBoxesMove.NO_MOVE ? -1 : boxAcross(box, exit);
+                    if (next < 0 || next == start || claimedSides(next) != 2) break;
+                    box = next;
+                    entry = exit;
+                }
+                total += length;
+            }
+            return total;
+        }
+
+        /**
+         * Decides whether to decline a capture: when it would open the last
+         * two boxes of a chain and more two-sided boxes remain elsewhere,
+         * the policy claims the far side of the pair instead, handing both
+         * boxes over to keep control
+         * @return the double-dealing move, or NO_MOVE to take the capture
+         */
+        private int doubleDealing(int capture) {
+            int first = boxBeside(capture, true);
+            int second = boxBeside(capture, false);
+            int pair;
+            if (first >= 0 && claimedSides(first) == 3) {
+                pair = second;
+            } else {
+                pair = first;
+            }
+            if (pair < 0 || claimedSides(pair) != 2) return DotsAndBoxesMove.NO_MOVE;
+            if (board.getTwoSidedBoxCount() <= KEEP_CONTROL_MIN_BOXES) return DotsAndBoxesMove.NO_MOVE;
+
+            int farSide = otherFreeSide(pair, capture);
+            if (farSide == DotsAndBoxesMove.NO_MOVE) return DotsAndBoxesMove.NO_MOVE;
+            int beyond = boxAcross(pair, farSide);
+            if (beyond >= 0 && claimedSides(beyond) >= 2) return DotsAndBoxesMove.NO_MOVE;
+            return farSide;
+        }
+
+        // Box helpers for the playout policy; boxes are row * cols + col
+
+        private int claimedSides(int box) {
+            return board.getClaimedEdgeCount(box / board.getCols(), box % board.getCols());
+        }
+
+        /**
+         * Gets the box above / left of an edge (first) or below / right of it
+         * @return box index, or -1 on the border
+         */
+        private int boxBeside(int move, boolean first) {
+            int row = DotsAndBoxesMove.getRow(move);
+            int col = DotsAndBoxesMove.getCol(move);
+            if (DotsAndBoxesMove.isHorizontal(move)) {
+                if (first) row--;
+                if (row < 0 || row >= board.getRows()) return -1;
+            } else {
+                if (first) col--;
+                if (col < 0 || col >= board.getCols()) return -1;
+            }
+            return row * board.getCols() + col;
+        }
+
+        /**
+         * Gets the box on the other side of one of a box's edges
+         * @return box index, or -1 on the border
+         */
+        private int boxAcross(int box, int move) {
+            int first = boxBeside(move, true);
+            return first == box ? boxBeside(move, false) : first;
+        }
+
+        /**
+         * Gets a free side of a box other than the given one
+         * @return that edge, or NO_MOVE if there is none
+         */
+        private int otherFreeSide(int box, int except) {
+            int row = box / board.getCols();
+            int col = box % board.getCols();
+            for (int side = 0; side < 4; side++) {
+                int move = side < 2
+                        ? DotsAndBoxesMove.encode(true, row + side, col)
+                        : DotsAndBoxesMove.encode(false, row, col + side - 2);
+                if (move != except && board.isLegalMove(move)) return move;
+            }
+            return DotsAndBoxesMove.NO_MOVE;
+        }
+
+        /**
+         * Queues the last free side of any box next to the edge just played
+         * that now has three sides claimed
+         */
+        private int addCaptures(int move, int captureCount) {
+            int row = DotsAndBoxesMove.getRow(move);
+            int col = DotsAndBoxesMove.getCol(move);
+            if (DotsAndBoxesMove.isHorizontal(move)) {
+                if (row > 0) captureCount = addCapture(row - 1, col, captureCount);
+                if (row < board.getRows()) captureCount = addCapture(row, col, captureCount);
+            } else {
+                if (col > 0) captureCount = addCapture(row, col - 1, captureCount);
+                if (col < board.getCols()) captureCount = addCapture(row, col, captureCount);
+            }
+            return captureCount;
+        }
+
+        private int addCapture(int row, int col, int captureCount) {
+            if (board.getClaimedEdgeCount(row, col) != 3) return captureCount;
+            int move;
+            if (!board.isHorizontalEdgeClaimed(row, col)) {
+                move = DotsAndBoxesMove.encode(true, row, col);
+            } else if (!board.isHorizontalEdgeClaimed(row + 1, col)) {
+                move = DotsAndBoxesMove.encode(true, row + 1, col);
+            } else if (!board.isVerticalEdgeClaimed(row, col)) {
+                move = DotsAndBoxesMove.encode(false, row, col);
+            } else {
+                move = DotsAndBoxesMove.encode(false, row, col + 1);
+            }
+            captures[captureCount++] = move;
+            return captureCount;
+        }
+
+        /**
+         * Turns a final margin for the player to move into a reward for the
+         * root player. Winning counts most and the margin breaks ties, so a
+         * lost or won position still prefers the moves that keep more boxes:
+         * with B boxes, a loss scores 0 to B - 1, a draw 2B and a win 3B + 1
+         * to 4B (rewardScale).
+         */
+        private long rewardFor(int marginForSideToMove) {
+            int margin = board.getSymbolToMove() == rootSymbol
+                    ? marginForSideToMove : -marginForSideToMove;
+            long boxes = rewardScale / 4;
+            int outcome = margin > 0 ? 2 : margin == 0 ? 1 : 0;
+            return outcome * boxes + margin + boxes;
+        }
+    }
+
+    // Statistics about the last call to chooseMove
+
+    public int getThreadCount() { return threadCount; }
+    public long getLastPlayouts() { return lastPlayouts; }
+    public int getLastTreeSize() { return lastTreeSize; }
+    public int getLastTreeDepth() { return lastTreeDepth; }
+    public double getLastExpectedResult() { return lastExpectedResult; }
+    public long getLastTimeMillis() { return lastTimeNanos / 1_000_000L; }
+
+    /**
+     * Gets the playout rate of the last search over all threads
+     * @return playouts per second
+     */
+    public double getLastPlayoutsPerSecond() {
+        return lastTimeNanos == 0 ? 0 : lastPlayouts / (lastTimeNanos / 1e9);
+    }
+
+    @Override
+    public String getLastSummary() {
+        return lastPlayouts + " playouts (" + Math.round(getLastPlayoutsPerSecond()) + "/s), " +
+                lastTreeSize + " nodes, expected " + Math.round(lastExpectedResult * 100) + "%, " +
+                getLastTimeMillis() + " ms";
+    }
+}
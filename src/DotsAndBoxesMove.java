@@ -0,0 +1,92 @@
+/**
+ * DotsAndBoxesMove.java
+ *
+ * Helpers for Dots and Boxes moves packed into a single int, so move lists
+ * can live in plain int[] buffers with no objects at all.
+ *
+ * Encoding: bit 30 is the orientation (1 = horizontal), bits 15-29 hold the
+ * row and bits 0-14 the column of the edge. Valid moves are never negative,
+ * so NO_MOVE (-1) can be used as a sentinel.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public final class DotsAndBoxesMove {
+    public static final int NO_MOVE = -1;
+
+    private static final int HORIZONTAL_FLAG = 1 << 30;
+    private static final int COORD_BITS = 15;
+    private static final int COORD_MASK = (1 << COORD_BITS) - 1;
+
+    private DotsAndBoxesMove() {
+        // static helpers only
+    }
+
+    /**
+     * Packs an edge into a move
+     * @param horizontal true for a horizontal edge, false for vertical
+     * @param row edge row
+     * @param col edge column
+     * @return encoded move
+     */
+    public static int encode(boolean horizontal, int row, int col) {
+        return (horizontal ? HORIZONTAL_FLAG : 0) | (row << COORD_BITS) | col;
+    }
+
+    public static boolean isHorizontal(int move) {
+        return (move & HORIZONTAL_FLAG) != 0;
+    }
+
+    public static int getRow(int move) {
+        return (move >>> COORD_BITS) & COORD_MASK;
+    }
+
+    public static int getCol(int move) {
+        return move & COORD_MASK;
+    }
+
+    /**
+     * Formats a move the way players type it, e.g. "H 0 1"
+     * @param move encoded move
+     * @return readable move
+     */
+    public static String toString(int move) {
+        if (move == NO_MOVE) return "none";
+        return (isHorizontal(move) ? "H " : "V ") + getRow(move) + " " + getCol(move);
+    }
+
+    /**
+     * Writes a move for every clear bit of an edge mask into a buffer.
+     * Whole words are skipped at once and each free edge costs one
+     * trailing-zero count, so the work is proportional to the number of
+     * words plus the number of moves found.
+     *
+     * @param claimedMask bit mask of claimed edges (bit = row * width + col)
+     * @param edgeCount number of edges the mask covers
+     * @param width edges per row
+     * @param horizontal orientation of the edges in the mask
+     * @param moves buffer receiving the moves
+     * @param count number of moves already in the buffer
+     * @return new number of moves in the buffer
+     */
+    static int collectFreeEdges(long[] claimedMask, int edgeCount, int width,
+                                boolean horizontal, int[] moves, int count) {
+        int orientation = horizontal ? HORIZONTAL_FLAG : 0;
+        int words = (edgeCount + 63) >>> 6;
+
+        for (int w = 0; w < words; w++) {
+            long free = ~claimedMask[w];
+            int remaining = edgeCount - (w << 6);
+            if (remaining < 64) {
+                free &= (1L << remaining) - 1;
+            }
+
+            while (free != 0) {
+                int index = (w << 6) + Long.numberOfTrailingZeros(free);
+                free &= free - 1;
+                moves[count++] = orientation | ((index / width) << COORD_BITS) | (index % width);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.SplittableRandom;
+
+/**
+ * DotsAndBoxesRandomEngine.java
+ *
+ * A Dots and Boxes player that does not search, for simulating many games
+ * quickly. The random policy plays any legal edge. The greedy policy is the
+ * one Monte Carlo playouts use: take a box when one is on offer, otherwise
+ * play a random safe move, otherwise a random move. Either way a move costs
+ * one pass over the free edges.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public class DotsAndBoxesRandomEngine implements DotsAndBoxesEngine {
+    private final boolean greedy;
+    private final SplittableRandom random;
+    private int[] moves = new int[0];
+    private int[] safeMoves = new int[0];
+    private String lastSummary = "";
+
+    /**
+     * Creates a player with its own random numbers
+     * @param greedy true to take boxes and avoid offering them while it can,
+     *        false to play any edge
+     * @param seed seed of the random choices
+     */
+    public DotsAndBoxesRandomEngine(boolean greedy, long seed) {
+        this.greedy = greedy;
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int chooseMove(DotsAndBoxesBitBoard position) {
+        if (position.isGameOver()) return DotsAndBoxesMove.NO_MOVE;
+        if (moves.length < position.getMaxMoves()) {
+            moves = new int[position.getMaxMoves()];
+            safeMoves = new int[position.getMaxMoves()];
+        }
+
+        int count = position.generateMoves(moves);
+        if (!greedy) {
+            lastSummary = "random";
+            return moves[random.nextInt(count)];
+        }
+
+        int safe = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (position.countBoxesCompletedBy(move) > 0) {
+                lastSummary = "takes a box";
+                return move;
+            }
+            if (position.isSafeMove(move)) safeMoves[safe++] = move;
+        }
+        if (safe > 0) {
+            lastSummary = "safe move";
+            return safeMoves[random.nextInt(safe)];
+        }
+        lastSummary = "no safe move";
+        return moves[random.nextInt(count)];
+    }
+
+    /**
+     * Accepts only one thread: a move is too cheap to split up
+     */
+    @Override
+    public void setThreadCount(int threads) {
+        if (threads != 1) throw new IllegalArgumentException("Random players use one thread");
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public String getLastSummary() {
+        return lastSummary;
+    }
+}
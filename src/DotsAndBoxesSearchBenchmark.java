@@ -0,0 +1,83 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * DotsAndBoxesSearchBenchmark.java
+ *
+ * Measures how the Dots and Boxes search scales with threads. A fixed set
+ * of seeded mid-game positions is searched to a fixed depth with 1, 2, 4,
+ * 8 and 16 threads, and the wall time, node rate and speedup over one
+ * thread are printed for each count.
+ *
+ * Usage: java DotsAndBoxesSearchBenchmark [depth] [positions] [rows] [cols]
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public class DotsAndBoxesSearchBenchmark {
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16 };
+    private static final long SEED = 611L;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int positionCount = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        List<DotsAndBoxesBitBoard> positions = createPositions(positionCount, rows, cols);
+        ColorPrinter.printlnCyan("Dots and Boxes search: " + positionCount + " positions, " +
+                rows + "x" + cols + ", depth " + depth + ", " +
+                Runtime.getRuntime().availableProcessors() + " cores available");
+        System.out.printf("%8s %12s %14s %10s%n", "threads", "time (ms)", "nodes/sec", "speedup");
+
+        double baseline = 0;
+        for (int threads : THREAD_COUNTS) {
+            TranspositionTable table = new TranspositionTable(64);
+            DotsAndBoxesAI ai = new DotsAndBoxesAI(Integer.MAX_VALUE, 0, table);
+            ai.setThreadCount(threads);
+            ai.setDepthLimit(depth);
+
+            long nodes = 0;
+            long nanos = 0;
+            for (DotsAndBoxesBitBoard position : positions) {
+                table.clear();
+                ai.chooseMove(position);
+                nodes += ai.getLastNodes();
+                nanos += ai.getLastTimeNanos();
+            }
+            ai.shutdown();
+
+            double millis = nanos / 1e6;
+            if (threads == 1) baseline = millis;
+            System.out.printf("%8d %12.1f %14.0f %9.2fx%n",
+                    threads, millis, nodes / (nanos / 1e9), baseline / millis);
+        }
+    }
+
+    /**
+     * Plays random safe moves from an empty board, a third of all moves or
+     * until none is left, to get reproducible positions that are still far
+     * from the endgame
+     */
+    private static List<DotsAndBoxesBitBoard> createPositions(int count, int rows, int cols) {
+        Random random = new Random(SEED);
+        List<DotsAndBoxesBitBoard> positions = new ArrayList<>();
+        int[] moves = new int[rows * (cols + 1) + (rows + 1) * cols];
+
+        while (positions.size() < count) {
+            DotsAndBoxesBitBoard board = new DotsAndBoxesBitBoard(rows, cols);
+            int target = moves.length / 3;
+            for (int played = 0; played < target && board.getSafeMoveCount() > 0; played++) {
+                int n = board.generateMoves(moves);
+                int safe = 0;
+                for (int i = 0; i < n; i++) {
+                    if (board.isSafeMove(moves[i])) moves[safe++] = moves[i];
+                }
+                board.makeMove(moves[random.nextInt(safe)]);
+            }
+            positions.add(board.copy());
+        }
+        return positions;
+    }
+}
@@ -81,6 +81,14 @@ public class Edge {
         return true;
     }
 
+    /**
+     * Releases this edge again, used when a move is taken back
+     */
+    public void unclaim() {
+        this.isClaimed = false;
+        this.claimedBy = ' ';
+    }
+
     /**
      * Returns string representation of the edge
      * @return formatted edge info
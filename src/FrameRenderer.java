@@ -0,0 +1,316 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FrameRenderer.java
+ *
+ * Builds a whole screen of colored text in one buffer and writes it at once.
+ *
+ * Printing a board piece by piece costs one synchronized write per dot,
+ * edge or tile, each wrapped in its own color and reset codes. The renderer
+ * instead appends the pieces to a StringBuilder that is kept between frames,
+ * only switches color when the color actually changes, and lets whitespace
+ * continue the current color run, since spaces look the same in any
+ * foreground color. flush() then closes the open color and hands the frame
+ * to the stream in a single print, which reaches the terminal as one write
+ * for any frame that fits the stream's buffer.
+ *
+ * In incremental mode the renderer also keeps every character of the frame
+ * on screen with its color. The first frame clears the screen, is drawn at
+ * the top and pinned there by limiting the terminal's scrolling region to
+ * the lines below it, so the game's other output scrolls underneath. Later
+ * frames of the same height are compared with the one on screen, and only
+ * the changed characters are written, each run behind a cursor-positioning
+ * sequence, with the cursor saved and restored around them. A move then
+ * costs a few dozen bytes however large the board is. release() unpins the
+ * frame when the game is over.
+ *
+ * Author: Priyanshu and Lyu
+ * Version: 1.1
+ */
+public class FrameRenderer {
+    private static final String ESC = "\u001B";
+    // Save and restore the cursor position (DECSC / DECRC)
+    private static final String SAVE_CURSOR = ESC + "7";
+    private static final String RESTORE_CURSOR = ESC + "8";
+
+    private static volatile boolean incrementalByDefault;
+
+    private final PrintStream out;
+    private final boolean incremental;
+    private final StringBuilder frame = new StringBuilder(4096);
+    // ANSI code of the open color run, or null for the terminal's default
+    private String currentColor;
+
+    // Incremental mode: characters and color numbers (0 = default, n = colors[n - 1])
+    // of each line of the frame being built and of the frame on screen
+    private final List<String> colors = new ArrayList<>();
+    private List<StringBuilder> chars = new ArrayList<>();
+    private List<StringBuilder> colorNumbers = new ArrayList<>();
+    private int lineCount;
+    private List<StringBuilder> shownChars = new ArrayList<>();
+    private List<StringBuilder> shownColorNumbers = new ArrayList<>();
+    // Lines of the pinned frame, or 0 if nothing is pinned
+    private int shownLineCount;
+
+    /**
+     * Creates a renderer writing to standard output, incremental if that is
+     * the default (see setIncrementalByDefault)
+     */
+    public FrameRenderer() {
+        this(System.out, incrementalByDefault);
+    }
+
+    /**
+     * Creates a renderer that writes whole frames to a stream
+     * @param out stream that receives the finished frames
+     */
+    public FrameRenderer(PrintStream out) {
+        this(out, false);
+    }
+
+    /**
+     * Creates a renderer writing to a stream
+     * @param out stream that receives the frames
+     * @param incremental true to pin the frame on screen and redraw only
+     *        what changed; needs an ANSI terminal
+     */
+    public FrameRenderer(PrintStream out, boolean incremental) {
+        this.out = out;
+        this.incremental = incremental;
+        startLine();
+    }
+
+    /**
+     * Sets whether renderers made with the no-argument constructor, such as
+     * the ones the boards display with, redraw incrementally
+     * @param incremental true for incremental redraw
+     */
+    public static void setIncrementalByDefault(boolean incremental) {
+        incrementalByDefault = incremental;
+    }
+
+    public static boolean isIncrementalByDefault() {
+        return incrementalByDefault;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Appends text in the default color
+     * @param text text to append
+     * @return this renderer
+     */
+    public FrameRenderer append(String text) {
+        if (currentColor != null && !isBlank(text)) {
+            frame.append(ColorPrinter.RESET);
+            currentColor = null;
+        }
+        frame.append(text);
+        if (incremental) record(text, 0);
+        return this;
+    }
+
+    /**
+     * Appends text in a color, continuing the current run if it has the same color
+     * @param color ANSI code from ColorPrinter
+     * @param text text to append
+     * @return this renderer
+     */
+    public FrameRenderer append(String color, String text) {
+        if (!color.equals(currentColor) && !isBlank(text)) {
+            frame.append(color);
+            currentColor = color;
+        }
+        frame.append(text);
+        if (incremental) record(text, colorNumber(color));
+        return this;
+    }
+
+    /**
+     * Appends a number right-aligned in a field, without formatting through String.format
+     * @param color ANSI code from ColorPrinter, or null for the default color
+     * @param value number to append
+     * @param width field width
+     * @return this renderer
+     */
+    public FrameRenderer appendPadded(String color, int value, int width) {
+        String digits = Integer.toString(value);
+        if (digits.length() < width) {
+            append(" ".repeat(width - digits.length()));
+        }
+        return color == null ? append(digits) : append(color, digits);
+    }
+
+    /**
+     * Ends the current line
+     * @return this renderer
+     */
+    public FrameRenderer newLine() {
+        frame.append(System.lineSeparator());
+        if (incremental) {
+            lineCount++;
+            startLine();
+        }
+        return this;
+    }
+
+    /**
+     * Writes the frame and starts an empty one, keeping the buffers. Whole
+     * frames go out in one print; in incremental mode a frame as tall as
+     * the one on screen only writes the characters that changed.
+     */
+    public void flush() {
+        if (currentColor != null) {
+            frame.append(ColorPrinter.RESET);
+            currentColor = null;
+        }
+        if (!incremental) {
+            out.print(frame);
+        } else if (shownLineCount != lineCount || lineCount == 0) {
+            pin();
+        } else {
+            String changes = changes();
+            if (!changes.isEmpty()) out.print(changes);
+            swapFrames();
+        }
+        out.flush();
+        frame.setLength(0);
+    }
+
+    /**
+     * Unpins the frame on screen so the terminal scrolls normally again.
+     * The next frame is drawn in full. Does nothing outside incremental mode.
+     */
+    public void release() {
+        if (!incremental || shownLineCount == 0) return;
+        // Resetting the scrolling region homes the cursor; send it back to the bottom
+        out.print(ESC + "[r" + ESC + "[999;1H");
+        out.println();
+        out.flush();
+        shownLineCount = 0;
+    }
+
+    /**
+     * Gets the frame built so far, e.g. for tests or logs
+     * @return text of the unflushed frame, color codes included
+     */
+    public String getFrame() {
+        return frame.toString();
+    }
+
+    /**
+     * Draws the frame in full at the top of a cleared screen and keeps the
+     * lines below it as the scrolling region
+     */
+    private void pin() {
+        StringBuilder text = new StringBuilder(frame.length() + 32);
+        text.append(ESC).append("[r").append(ESC).append("[H").append(ESC).append("[2J");
+        text.append(frame);
+        // Setting the region homes the cursor; put it back under the frame
+        text.append(ESC).append('[').append(lineCount + 1).append('r');
+        text.append(ESC).append('[').append(lineCount + 1).append(";1H");
+        out.print(text);
+        swapFrames();
+    }
+
+    /**
+     * Lists the characters that differ from the frame on screen
+     * @return cursor moves and text that update the screen, or "" if nothing changed
+     */
+    private String changes() {
+        StringBuilder text = new StringBuilder();
+        int shownColor = 0;
+        for (int line = 0; line < lineCount; line++) {
+            StringBuilder newChars = chars.get(line);
+            StringBuilder newColors = colorNumbers.get(line);
+            StringBuilder oldChars = shownChars.get(line);
+            StringBuilder oldColors = shownColorNumbers.get(line);
+            int width = Math.max(newChars.length(), oldChars.length());
+
+            boolean inRun = false;
+            for (int col = 0; col < width; col++) {
+                char c = col < newChars.length() ? newChars.charAt(col) : ' ';
+                int color = col < newColors.length() ? newColors.charAt(col) : 0;
+                char before = col < oldChars.length() ? oldChars.charAt(col) : ' ';
+                int colorBefore = col < oldColors.length() ? oldColors.charAt(col) : 0;
+                if (c == before && color == colorBefore) {
+                    inRun = false;
+                    continue;
+                }
+
+                if (text.length() == 0) text.append(SAVE_CURSOR);
+                if (!inRun) {
+                    text.append(ESC).append('[').append(line + 1).append(';').append(col + 1).append('H');
+                    inRun = true;
+                }
+                if (color != shownColor) {
+                    text.append(color == 0 ? ColorPrinter.RESET : colors.get(color - 1));
+                    shownColor = color;
+                }
+                text.append(c);
+            }
+        }
+        if (text.length() == 0) return "";
+        if (shownColor != 0) text.append(ColorPrinter.RESET);
+        return text.append(RESTORE_CURSOR).toString();
+    }
+
+    /**
+     * Makes the frame just built the one on screen and starts the next
+     */
+    private void swapFrames() {
+        List<StringBuilder> swap = shownChars;
+        shownChars = chars;
+        chars = swap;
+        swap = shownColorNumbers;
+        shownColorNumbers = colorNumbers;
+        colorNumbers = swap;
+        shownLineCount = lineCount;
+        lineCount = 0;
+        startLine();
+    }
+
+    private void startLine() {
+        if (!incremental) return;
+        while (chars.size() <= lineCount) {
+            chars.add(new StringBuilder());
+            colorNumbers.add(new StringBuilder());
+        }
+        chars.get(lineCount).setLength(0);
+        colorNumbers.get(lineCount).setLength(0);
+    }
+
+    /**
+     * Stores the characters of appended text; spaces always get the default
+     * color, since their color does not show
+     */
+    private void record(String text, int color) {
+        StringBuilder lineChars = chars.get(lineCount);
+        StringBuilder lineColors = colorNumbers.get(lineCount);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            lineChars.append(c);
+            lineColors.append((char) (c == ' ' ? 0 : color));
+        }
+    }
+
+    private int colorNumber(String color) {
+        int index = colors.indexOf(color);
+        if (index < 0) {
+            colors.add(color);
+            index = colors.size() - 1;
+        }
+        return index + 1;
+    }
+
+    private static boolean isBlank(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != ' ') return false;
+        }
+        return true;
+    }
+}
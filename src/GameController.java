@@ -10,6 +10,9 @@ public class GameController {
     private InputHandler inputHandler;
     private PlayerStatistics statistics;
 
+    // Largest scramble distance offered for boards too big to list every position
+    private static final int MAX_SCRAMBLE_MOVES = 150;
+
     private static final String WELCOME_MESSAGE =
             "\n" +
                     "╔═══════════════════════════════════════════════════╗\n" +
@@ -93,11 +96,22 @@ public class GameController {
                 "Enter number of columns (2-10): ",
                 PuzzleBoard.MIN_SIZE, PuzzleBoard.MAX_SIZE);
 
+        int scrambleMoves = 0;
+        if (inputHandler.getYesNo("Choose how many moves the puzzle takes to solve?")) {
+            int limit = PuzzleScrambler.getMaxDistance(rows, cols);
+            if (limit < 0) limit = Math.min(2 * rows * cols, MAX_SCRAMBLE_MOVES);
+            scrambleMoves = inputHandler.getIntInRange(
+                    "Moves from solved (1-" + limit + "): ", 1, limit);
+            if (scrambleMoves == -1) scrambleMoves = 0;
+        }
+
         try {
-            SlidingPuzzleGame game = new SlidingPuzzleGame(rows, cols, playerName, statistics);
+            SlidingPuzzleGame game = new SlidingPuzzleGame(rows, cols, scrambleMoves, playerName, statistics);
             game.play();
         } catch (IllegalArgumentException e) {
             ColorPrinter.printlnRed("Oops! Invalid board setup: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            ColorPrinter.printlnRed("Oops! " + e.getMessage());
         }
     }
 
@@ -113,11 +127,23 @@ public class GameController {
         System.out.print("Player 1 name: ");
         String p1Name = inputHandler.getNonEmptyString();
 
-        System.out.print("Player 2 name: ");
-        String p2Name = inputHandler.getNonEmptyString();
-
         Player player1 = new Player(p1Name, 'X');
-        Player player2 = new Player(p2Name, 'O');
+        Player player2;
+
+        if (inputHandler.getYesNo("Play against the computer?")) {
+            if (inputHandler.getYesNo("Use Monte Carlo search (better on large boards)?")) {
+                DotsAndBoxesMCTS mcts = new DotsAndBoxesMCTS();
+                int cores = Runtime.getRuntime().availableProcessors();
+                mcts.setThreadCount(Math.min(cores, DotsAndBoxesMCTS.MAX_THREADS));
+                player2 = new ComputerPlayer("Computer", 'O', mcts);
+            } else {
+                player2 = new ComputerPlayer("Computer", 'O');
+            }
+        } else {
+            System.out.print("Player 2 name: ");
+            String p2Name = inputHandler.getNonEmptyString();
+            player2 = new Player(p2Name, 'O');
+        }
 
         ColorPrinter.printlnYellow("\n--- Board Setup ---");
         int rows = inputHandler.getIntInRange(
@@ -0,0 +1,355 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * GameRecord.java
+ * A recorded game loaded for replay.
+ *
+ * A record file holds one game of either kind and is only ever appended to:
+ *
+ *   header      "GREC", format version, game, rows, columns, checkpoint
+ *               interval and the players (symbol, name); a puzzle also
+ *               stores its starting tiles, one byte each
+ *   entries     a move is a varint of its code plus one: the edge index
+ *               (horizontal edges first, then vertical, as in
+ *               DotsAndBoxesBitBoard) or the cell of the tile slid. A zero
+ *               byte starts a checkpoint: the number of moves so far, the
+ *               length of the position and the position itself.
+ *
+ * Varints carry seven bits per byte, so a move takes one byte on boards of
+ * up to 127 edges or cells and two above that. Checkpoints come every
+ * checkpointInterval moves (DEFAULT_CHECKPOINT_INTERVAL by default).
+ *
+ * Loading reads the file into memory and finds the checkpoints in one pass
+ * over the bytes, without playing any move. seek(n) then starts from the
+ * last checkpoint at or before move n and plays at most one interval of
+ * moves, and nextMove() plays the record forward one move at a time on a
+ * DotsAndBoxesBitBoard or PuzzleBoard. A record cut short by a crash is
+ * read up to its last complete entry.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class GameRecord {
+    public static final int DOTS_AND_BOXES = 1;
+    public static final int SLIDING_PUZZLE = 2;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 64;
+    public static final String FILE_EXTENSION = ".grec";
+
+    static final int MAGIC = 0x47524543;  // "GREC"
+    static final int VERSION = 1;
+    static final int CHECKPOINT = 0;
+
+    private final Path file;
+    private final byte[] data;
+    private final int game;
+    private final int rows;
+    private final int cols;
+    private final int checkpointInterval;
+    private final String[] playerNames;
+    private final char[] symbols;
+    private final int[] startTiles;
+    private final int movesOffset;
+    private final int moveCount;
+    // Moves before each checkpoint and the offset of its marker byte; entry 0 is the start
+    private final int[] checkpointMoves;
+    private final int[] checkpointOffsets;
+
+    // Replay state: board after `position` moves, next entry at `offset`
+    private DotsAndBoxesBitBoard dotsBoard;
+    private PuzzleBoard puzzleBoard;
+    private int position;
+    private int offset;
+    // Read cursor of the header and index parsers
+    private int cursor;
+
+    private GameRecord(Path file, byte[] data) throws IOException {
+        this.file = file;
+        this.data = data;
+        try {
+            if (data.length < 6 || readInt(0) != MAGIC) throw corrupt("not a game record");
+            if (data[4] != VERSION) throw corrupt("unsupported version " + data[4]);
+            game = data[5];
+            if (game != DOTS_AND_BOXES && game != SLIDING_PUZZLE) throw corrupt("unknown game " + game);
+            cursor = 6;
+            rows = readVarint();
+            cols = readVarint();
+            checkpointInterval = readVarint();
+            if (checkpointInterval < 1) throw corrupt("bad checkpoint interval");
+
+            int players = game == DOTS_AND_BOXES ? DotsAndBoxesBitBoard.PLAYER_COUNT : 1;
+            playerNames = new String[players];
+            symbols = new char[players];
+            for (int p = 0; p < players; p++) {
+                symbols[p] = (char) readVarint();
+                int length = readVarint();
+                if (length > data.length - cursor) throw corrupt("truncated header");
+                playerNames[p] = new String(data, cursor, length, StandardCharsets.UTF_8);
+                cursor += length;
+            }
+
+            if (game == SLIDING_PUZZLE) {
+                if (rows * cols > data.length - cursor) throw corrupt("truncated header");
+                startTiles = new int[rows * cols];
+                for (int pos = 0; pos < startTiles.length; pos++) {
+                    startTiles[pos] = data[cursor++] & 0xFF;
+                }
+            } else {
+                startTiles = null;
+            }
+            movesOffset = cursor;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw corrupt("truncated header");
+        }
+
+        // Index the checkpoints without playing the moves
+        int[] moves = new int[8];
+        int[] offsets = new int[8];
+        int checkpoints = 1;
+        offsets[0] = movesOffset;
+        int count = 0;
+        cursor = movesOffset;
+        try {
+            while (cursor < data.length) {
+                int start = cursor;
+                if (data[cursor] == CHECKPOINT) {
+                    cursor++;
+                    int at = readVarint();
+                    int length = readVarint();
+                    if (length > data.length - cursor) break;
+                    if (at != count) throw corrupt("checkpoint at move " + at + " follows move " + count);
+                    if (checkpoints == moves.length) {
+                        moves = Arrays.copyOf(moves, 2 * checkpoints);
+                        offsets = Arrays.copyOf(offsets, 2 * checkpoints);
+                    }
+                    moves[checkpoints] = at;
+                    offsets[checkpoints++] = start;
+                    cursor += length;
+                } else {
+                    readVarint();
+                    count++;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // The last entry was cut short; keep everything before it
+        }
+        moveCount = count;
+        checkpointMoves = Arrays.copyOf(moves, checkpoints);
+        checkpointOffsets = Arrays.copyOf(offsets, checkpoints);
+
+        try {
+            restore(0);
+        } catch (IllegalArgumentException e) {
+            throw corrupt(e.getMessage());
+        }
+    }
+
+    /**
+     * Loads a record file
+     * @param file file written by GameRecordWriter
+     * @return the record, positioned before its first move
+     * @throws IOException if the file cannot be read or is not a game record
+     */
+    public static GameRecord load(Path file) throws IOException {
+        return new GameRecord(file, Files.readAllBytes(file));
+    }
+
+    public int getGame() { return game; }
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getCheckpointInterval() { return checkpointInterval; }
+    public int getMoveCount() { return moveCount; }
+
+    /**
+     * Gets the player names, the player who moved first first
+     * @return copy of the names
+     */
+    public String[] getPlayerNames() {
+        return playerNames.clone();
+    }
+
+    /**
+     * Gets how many moves have been replayed
+     * @return moves played on the replay board
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the replay board of a Dots and Boxes record
+     * @return board after getPosition() moves; changes as the replay moves on
+     * @throws IllegalStateException if this is a puzzle record
+     */
+    public DotsAndBoxesBitBoard getDotsAndBoxesBoard() {
+        if (game != DOTS_AND_BOXES) throw new IllegalStateException("Not a Dots and Boxes record");
+        return dotsBoard;
+    }
+
+    /**
+     * Gets the replay board of a sliding puzzle record
+     * @return board after getPosition() moves; changes as the replay moves on
+     * @throws IllegalStateException if this is a Dots and Boxes record
+     */
+    public PuzzleBoard getPuzzleBoard() {
+        if (game != SLIDING_PUZZLE) throw new IllegalStateException("Not a sliding puzzle record");
+        return puzzleBoard;
+    }
+
+    /**
+     * Plays the next recorded move on the replay board
+     * @return the move (Dots and Boxes: see DotsAndBoxesMove; puzzle: cell
+     *         of the tile slid), or -1 at the end of the record
+     * @throws IllegalStateException if the recorded move is not legal
+     */
+    public int nextMove() {
+        if (position == moveCount) return -1;
+        byte[] bytes = data;
+        int at = offset;
+        while (bytes[at] == CHECKPOINT) at = skipCheckpoint(at);
+
+        // Moves of one byte are by far the most common
+        int value = bytes[at++];
+        if (value < 0) {
+            value &= 0x7F;
+            int shift = 7;
+            int b;
+            do {
+                b = bytes[at++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+        }
+        offset = at;
+        int code = value - 1;
+
+        if (game == DOTS_AND_BOXES) {
+            int move = moveOfEdge(code, rows, cols);
+            if (dotsBoard.makeMove(move) < 0) throw illegal();
+            position++;
+            return move;
+        }
+        if (!puzzleBoard.slideTileAt(code)) throw illegal();
+        position++;
+        return code;
+    }
+
+    /**
+     * Moves the replay to just after a move, from the nearest checkpoint
+     * or the current position, whichever is closer
+     * @param move number of moves to have played, 0 to getMoveCount()
+     * @throws IllegalArgumentException if the move is out of range
+     * @throws IllegalStateException if the record is corrupt
+     */
+    public void seek(int move) {
+        if (move < 0 || move > moveCount) {
+            throw new IllegalArgumentException("Move must be between 0 and " + moveCount);
+        }
+        int index = Arrays.binarySearch(checkpointMoves, move);
+        if (index < 0) index = -index - 2;
+        if (move < position || checkpointMoves[index] > position) {
+            restore(index);
+        }
+        while (position < move) nextMove();
+    }
+
+    /**
+     * Sets the replay board to a checkpoint
+     */
+    private void restore(int index) {
+        // nextMove steps over the checkpoint itself
+        offset = checkpointOffsets[index];
+        position = checkpointMoves[index];
+        if (index == 0) {
+            if (game == DOTS_AND_BOXES) {
+                dotsBoard = DotsAndBoxesBitBoard.createLarge(rows, cols, symbols[0], symbols[1]);
+            } else {
+                puzzleBoard = new PuzzleBoard(rows, cols, startTiles);
+            }
+            return;
+        }
+
+        cursor = offset + 1;
+        readVarint();
+        int length = readVarint();
+        int at = cursor;
+        try {
+            if (game == DOTS_AND_BOXES) {
+                dotsBoard = DotsAndBoxesBitBoard.readPosition(rows, cols, symbols[0], symbols[1],
+                        new DataInputStream(new ByteArrayInputStream(data, at, length)));
+            } else {
+                int[] tiles = new int[rows * cols];
+                for (int pos = 0; pos < tiles.length; pos++) {
+                    tiles[pos] = data[at + pos] & 0xFF;
+                }
+                puzzleBoard = new PuzzleBoard(rows, cols, tiles);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Corrupt checkpoint at move " + position + " in " + file, e);
+        }
+    }
+
+    /**
+     * Skips a checkpoint entry
+     * @return offset of the entry after it
+     */
+    private int skipCheckpoint(int at) {
+        cursor = at + 1;
+        readVarint();
+        int length = readVarint();
+        return cursor + length;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = data[cursor++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 35);
+        return value;
+    }
+
+    private int readInt(int at) {
+        return (data[at] & 0xFF) << 24 | (data[at + 1] & 0xFF) << 16 | (data[at + 2] & 0xFF) << 8 | (data[at + 3] & 0xFF);
+    }
+
+    private IOException corrupt(String message) {
+        return new IOException("Corrupt game record (" + message + "): " + file);
+    }
+
+    private IllegalStateException illegal() {
+        return new IllegalStateException("Corrupt game record, move " + (position + 1) + " is not legal: " + file);
+    }
+
+    /**
+     * Numbers a Dots and Boxes move as an edge index, horizontal edges first
+     * @param move encoded move (see DotsAndBoxesMove)
+     * @param rows number of box rows
+     * @param cols number of box columns
+     * @return edge index
+     */
+    static int edgeOf(int move, int rows, int cols) {
+        int row = DotsAndBoxesMove.getRow(move);
+        int col = DotsAndBoxesMove.getCol(move);
+        if (DotsAndBoxesMove.isHorizontal(move)) return row * cols + col;
+        return (rows + 1) * cols + row * (cols + 1) + col;
+    }
+
+    /**
+     * Turns an edge index back into a move
+     */
+    static int moveOfEdge(int edge, int rows, int cols) {
+        int horizontalCount = (rows + 1) * cols;
+        if (edge < horizontalCount) return DotsAndBoxesMove.encode(true, edge / cols, edge % cols);
+        edge -= horizontalCount;
+        return DotsAndBoxesMove.encode(false, edge / (cols + 1), edge % (cols + 1));
+    }
+}
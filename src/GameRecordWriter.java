@@ -0,0 +1,215 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GameRecordWriter.java
+ * Writes a game record (see GameRecord for the format) move by move.
+ *
+ * The writer plays every move on its own copy of the board, so it rejects
+ * moves that are not legal and can write a checkpoint of the position
+ * after every checkpointInterval moves. Moves and checkpoints are only
+ * ever appended, through a buffer that close() flushes.
+ *
+ * Games record into a directory set with setDirectory (Main's --record
+ * option), or into a file given to the game.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class GameRecordWriter implements Closeable {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final AtomicInteger FILE_COUNTER = new AtomicInteger();
+    private static volatile Path directory;
+
+    private final DataOutputStream out;
+    private final int game;
+    private final int checkpointInterval;
+    private final int rows;
+    private final int cols;
+    private final DotsAndBoxesBitBoard dotsBoard;
+    private final PuzzleBoard puzzleBoard;
+    // Checkpoint being built, so its length can be written before it
+    private final ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+    private final DataOutputStream checkpointOut = new DataOutputStream(checkpoint);
+    private int moveCount;
+
+    private GameRecordWriter(Path file, int game, int rows, int cols, int checkpointInterval,
+                             DotsAndBoxesBitBoard dotsBoard, PuzzleBoard puzzleBoard) throws IOException {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 1 << 13));
+        this.game = game;
+        this.rows = rows;
+        this.cols = cols;
+        this.checkpointInterval = checkpointInterval;
+        this.dotsBoard = dotsBoard;
+        this.puzzleBoard = puzzleBoard;
+
+        out.writeInt(GameRecord.MAGIC);
+        out.writeByte(GameRecord.VERSION);
+        out.writeByte(game);
+        writeVarint(out, rows);
+        writeVarint(out, cols);
+        writeVarint(out, checkpointInterval);
+    }
+
+    /**
+     * Starts the record of a Dots and Boxes game
+     * @param file file to write, replaced if it exists
+     * @param rows number of box rows
+     * @param cols number of box columns
+     * @param first player who moves first
+     * @param second other player
+     * @param checkpointInterval moves between checkpoints
+     * @return writer for the game's moves
+     * @throws IllegalArgumentException if the size, symbols or interval are invalid
+     * @throws IOException if the file cannot be written
+     */
+    public static GameRecordWriter forDotsAndBoxes(Path file, int rows, int cols, Player first, Player second,
+                                                   int checkpointInterval) throws IOException {
+        DotsAndBoxesBitBoard board = new DotsAndBoxesBitBoard(rows, cols, first.getSymbol(), second.getSymbol());
+        GameRecordWriter writer = new GameRecordWriter(file, GameRecord.DOTS_AND_BOXES, rows, cols,
+                checkpointInterval, board, null);
+        writer.writePlayer(first.getName(), first.getSymbol());
+        writer.writePlayer(second.getName(), second.getSymbol());
+        return writer;
+    }
+
+    /**
+     * Starts the record of a sliding puzzle game
+     * @param file file to write, replaced if it exists
+     * @param start board the game starts from
+     * @param playerName name of the player
+     * @param checkpointInterval moves between checkpoints
+     * @return writer for the game's moves
+     * @throws IllegalArgumentException if the interval is invalid
+     * @throws IOException if the file cannot be written
+     */
+    public static GameRecordWriter forPuzzle(Path file, PuzzleBoard start, String playerName,
+                                             int checkpointInterval) throws IOException {
+        PuzzleBoard board = new PuzzleBoard(start);
+        GameRecordWriter writer = new GameRecordWriter(file, GameRecord.SLIDING_PUZZLE,
+                board.getRowCount(), board.getColCount(), checkpointInterval, null, board);
+        writer.writePlayer(playerName, ' ');
+        writer.writeTiles(writer.out);
+        return writer;
+    }
+
+    /**
+     * Sets the directory games record into when they are not given a file
+     * @param path directory, created when the first record is written, or null to stop recording
+     */
+    public static void setDirectory(Path path) {
+        directory = path;
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Picks a new file in the record directory, e.g. dots-20260101-120000-1.grec
+     * @param prefix name of the game
+     * @return path of a file that does not exist yet
+     * @throws IllegalStateException if no directory is set
+     * @throws IOException if the directory cannot be created
+     */
+    public static Path newFile(String prefix) throws IOException {
+        Path dir = directory;
+        if (dir == null) throw new IllegalStateException("No record directory set");
+        Files.createDirectories(dir);
+        String time = LocalDateTime.now().format(FILE_TIME);
+        Path file;
+        do {
+            file = dir.resolve(prefix + "-" + time + "-" + FILE_COUNTER.incrementAndGet() + GameRecord.FILE_EXTENSION);
+        } while (Files.exists(file));
+        return file;
+    }
+
+    /**
+     * Appends a move, and a checkpoint if one is due
+     * @param move Dots and Boxes: encoded move (see DotsAndBoxesMove);
+     *        sliding puzzle: cell position of the tile slid
+     * @throws IllegalArgumentException if the move is not legal in the recorded game
+     * @throws IOException if writing fails
+     */
+    public void recordMove(int move) throws IOException {
+        int code;
+        if (game == GameRecord.DOTS_AND_BOXES) {
+            if (dotsBoard.makeMove(move) < 0) {
+                throw new IllegalArgumentException("Not a free edge: " + DotsAndBoxesMove.toString(move));
+            }
+            code = GameRecord.edgeOf(move, rows, cols);
+        } else {
+            if (!puzzleBoard.slideTileAt(move)) {
+                throw new IllegalArgumentException("Tile at " + move + " cannot slide");
+            }
+            code = move;
+        }
+        writeVarint(out, code + 1);
+        moveCount++;
+
+        if (moveCount % checkpointInterval == 0) {
+            checkpoint.reset();
+            if (game == GameRecord.DOTS_AND_BOXES) {
+                dotsBoard.writePosition(checkpointOut);
+            } else {
+                writeTiles(checkpointOut);
+            }
+            out.writeByte(GameRecord.CHECKPOINT);
+            writeVarint(out, moveCount);
+            writeVarint(out, checkpoint.size());
+            checkpoint.writeTo(out);
+        }
+    }
+
+    /**
+     * Gets how many moves have been recorded
+     * @return move count
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writePlayer(String name, char symbol) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, symbol);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeTiles(DataOutputStream target) throws IOException {
+        for (int pos = 0; pos < rows * cols; pos++) {
+            target.writeByte(puzzleBoard.getTileAt(pos));
+        }
+    }
+
+    /**
+     * Writes an unsigned number seven bits at a time, low bits first, with
+     * the top bit of each byte set when more bytes follow
+     */
+    private static void writeVarint(DataOutputStream target, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            target.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target.writeByte(value);
+    }
+}
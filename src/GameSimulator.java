@@ -0,0 +1,357 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * GameSimulator.java
+ *
+ * Plays many headless games in a row and prints the combined results:
+ * wins, ties and average boxes for Dots and Boxes, solved puzzles and move
+ * counts for the Sliding Puzzle, and the games per second. Nothing is
+ * drawn or asked during the games, so the time is spent on the moves.
+ *
+ * Dots and Boxes players: random, greedy (takes boxes, avoids offering
+ * them) or mcts (Monte Carlo search, 1000 playouts a move, a few games a
+ * second). Puzzle players: optimal (shortest solution, instant up to 10
+ * cells) or reduction (the first pass of PuzzleReductionSolver).
+ *
+ * Dots and Boxes games can also be replayed from a move script (see
+ * MoveScriptReader), one game after another until the script ends, and
+ * a script of random games can be written for load tests. With "show"
+ * the replayed games are drawn as in normal play.
+ *
+ * Simulated games can be saved as game records (see GameRecord) in a
+ * directory, and a directory of records replayed and sought through.
+ *
+ * Usage: java GameSimulator dots [games] [rows] [cols] [player1] [player2] [recordDir]
+ *        java GameSimulator puzzle [games] [rows] [cols] [player] [scrambleMoves] [recordDir]
+ *        java GameSimulator replay <file or -> [rows] [cols] [show]
+ *        java GameSimulator script [games] [rows] [cols] > file
+ *        java GameSimulator archive <recordDir>
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class GameSimulator {
+    private static final long SEED = 611L;
+    private static final int MCTS_PLAYOUTS = 1000;
+    // Puzzle players give up after this many moves per cell
+    private static final int MOVES_PER_CELL = 50;
+
+    public static void main(String[] args) throws IOException {
+        String game = args.length > 0 ? args[0] : "dots";
+        if (game.equals("replay")) {
+            if (args.length < 2) {
+                System.out.println("Usage: java GameSimulator replay <file or -> [rows] [cols] [show]");
+                return;
+            }
+            int rows = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+            int cols = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+            try (MoveScriptReader script = MoveScriptReader.open(args[1])) {
+                replay(script, rows, cols, args.length > 4 && args[4].equals("show"));
+            }
+            return;
+        }
+        if (game.equals("archive")) {
+            if (args.length < 2) {
+                System.out.println("Usage: java GameSimulator archive <recordDir>");
+                return;
+            }
+            replayArchive(Paths.get(args[1]));
+            return;
+        }
+
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        if (game.equals("dots")) {
+            String first = args.length > 4 ? args[4] : "greedy";
+            String second = args.length > 5 ? args[5] : "random";
+            Path recordDir = args.length > 6 ? Paths.get(args[6]) : null;
+            simulateDotsAndBoxes(games, rows, cols, first, second, recordDir);
+        } else if (game.equals("puzzle")) {
+            String player = args.length > 4 ? args[4] : "optimal";
+            int scrambleMoves = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+            Path recordDir = args.length > 6 ? Paths.get(args[6]) : null;
+            simulatePuzzles(games, rows, cols, player, scrambleMoves, recordDir);
+        } else if (game.equals("script")) {
+            writeScript(games, rows, cols, new SplittableRandom(SEED), System.out);
+        } else {
+            throw new IllegalArgumentException("Unknown game: " + game + " (use dots, puzzle, replay, archive or script)");
+        }
+    }
+
+    /**
+     * Plays Dots and Boxes games between two computer players, who take
+     * turns starting
+     * @param games number of games
+     * @param rows box rows
+     * @param cols box columns
+     * @param first kind of the first player
+     * @param second kind of the second player
+     * @param recordDir directory to save each game in, or null
+     * @throws IOException if the record directory cannot be created
+     */
+    public static void simulateDotsAndBoxes(int games, int rows, int cols, String first, String second,
+                                            Path recordDir) throws IOException {
+        if (recordDir != null) Files.createDirectories(recordDir);
+        ComputerPlayer player1 = new ComputerPlayer("1: " + first, 'X', createEngine(first, SEED));
+        ComputerPlayer player2 = new ComputerPlayer("2: " + second, 'O', createEngine(second, SEED + 1));
+        PlayerStatistics statistics = new PlayerStatistics();
+
+        int wins1 = 0;
+        int wins2 = 0;
+        long boxes1 = 0;
+        long boxes2 = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            boolean swap = i % 2 == 1;
+            DotsAndBoxesGame match = new DotsAndBoxesGame(swap ? player2 : player1, swap ? player1 : player2,
+                    rows, cols, statistics, true);
+            if (recordDir != null) match.setRecordFile(recordDir.resolve(recordName("dots", i)));
+            match.play();
+            Player winner = match.getWinner();
+            if (winner == player1) wins1++;
+            if (winner == player2) wins2++;
+            boxes1 += player1.getScore();
+            boxes2 += player2.getScore();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        player1.getEngine().shutdown();
+        player2.getEngine().shutdown();
+
+        ColorPrinter.printlnCyan("Dots and Boxes: " + games + " games, " + rows + "x" + cols +
+                ", " + first + " vs " + second + ", first move alternating");
+        System.out.printf("%-14s %8s %8s %12s%n", "player", "wins", "win %", "avg boxes");
+        System.out.printf("%-14s %8d %7.1f%% %12.2f%n", player1.getName(), wins1, 100.0 * wins1 / games,
+                (double) boxes1 / games);
+        System.out.printf("%-14s %8d %7.1f%% %12.2f%n", player2.getName(), wins2, 100.0 * wins2 / games,
+                (double) boxes2 / games);
+        System.out.printf("ties %d, %.0f games/sec%n", games - wins1 - wins2, games / seconds);
+    }
+
+    /**
+     * Plays seeded puzzles with a computer player
+     * @param games number of puzzles
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param player kind of player
+     * @param scrambleMoves optimal solution length of each puzzle, or 0 for random puzzles
+     * @param recordDir directory to save each game in, or null
+     * @throws IOException if the record directory cannot be created
+     */
+    public static void simulatePuzzles(int games, int rows, int cols, String player, int scrambleMoves,
+                                       Path recordDir) throws IOException {
+        if (recordDir != null) Files.createDirectories(recordDir);
+        PuzzleMoveSource source = createMoveSource(player);
+        SplittableRandom random = new SplittableRandom(SEED);
+        PlayerStatistics statistics = new PlayerStatistics();
+        int moveLimit = MOVES_PER_CELL * rows * cols;
+
+        int solved = 0;
+        long totalMoves = 0;
+        int fewest = Integer.MAX_VALUE;
+        int most = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            PuzzleBoard board = scrambleMoves > 0
+                    ? PuzzleBoard.scrambled(rows, cols, scrambleMoves, random)
+                    : new PuzzleBoard(rows, cols, random);
+            SlidingPuzzleGame puzzle = new SlidingPuzzleGame(board, source, moveLimit, player, statistics);
+            if (recordDir != null) puzzle.setRecordFile(recordDir.resolve(recordName("puzzle", i)));
+            puzzle.play();
+            if (!puzzle.isSolved()) continue;
+
+            int moves = puzzle.getMovesMade();
+            solved++;
+            totalMoves += moves;
+            fewest = Math.min(fewest, moves);
+            most = Math.max(most, moves);
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        ColorPrinter.printlnCyan("Sliding puzzle: " + games + " puzzles, " + rows + "x" + cols + ", " +
+                (scrambleMoves > 0 ? scrambleMoves + " moves from solved" : "random") + ", " + player + " player");
+        System.out.printf("solved %d (%.1f%%), moves avg %.2f, fewest %d, most %d%n", solved,
+                100.0 * solved / games, solved > 0 ? (double) totalMoves / solved : 0.0,
+                solved > 0 ? fewest : 0, most);
+        System.out.printf("%.0f games/sec%n", games / seconds);
+    }
+
+    /**
+     * Plays Dots and Boxes games from a move script until it runs out
+     * @param script moves of both players, game after game
+     * @param rows box rows
+     * @param cols box columns
+     * @param show true to draw the games, false to play them headless
+     * @throws IllegalArgumentException naming the line of a malformed or illegal move
+     */
+    public static void replay(MoveScriptReader script, int rows, int cols, boolean show) {
+        Player player1 = new Player("Player 1", 'X');
+        Player player2 = new Player("Player 2", 'O');
+        PlayerStatistics statistics = new PlayerStatistics();
+
+        int games = 0;
+        int wins1 = 0;
+        int wins2 = 0;
+        long startTime = System.nanoTime();
+        while (true) {
+            DotsAndBoxesGame match = new DotsAndBoxesGame(player1, player2, rows, cols, statistics, !show, script);
+            match.play();
+            // A game the script did not finish means the script is over
+            if (!match.isGameOver()) break;
+            games++;
+            if (match.getWinner() == player1) wins1++;
+            if (match.getWinner() == player2) wins2++;
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        ColorPrinter.printlnCyan("Replayed " + games + " games, " + rows + "x" + cols + ", " +
+                script.getMoveCount() + " moves");
+        System.out.printf("player 1 wins %d, player 2 wins %d, ties %d%n", wins1, wins2, games - wins1 - wins2);
+        System.out.printf("%.0f games/sec, %.0f moves/sec%n", games / seconds, script.getMoveCount() / seconds);
+    }
+
+    /**
+     * Writes a move script of random complete games; any order of the
+     * edges is a legal game
+     * @param games number of games
+     * @param rows box rows
+     * @param cols box columns
+     * @param random source of the move orders
+     * @param out stream receiving the script
+     */
+    public static void writeScript(int games, int rows, int cols, SplittableRandom random, PrintStream out) {
+        DotsAndBoxesBitBoard board = new DotsAndBoxesBitBoard(rows, cols);
+        int[] moves = new int[board.getMaxMoves()];
+        int count = board.generateMoves(moves);
+        PrintStream script = new PrintStream(new BufferedOutputStream(out, 1 << 16), false);
+
+        for (int game = 0; game < games; game++) {
+            script.println("# game " + (game + 1));
+            for (int i = count - 1; i >= 0; i--) {
+                int j = random.nextInt(i + 1);
+                int move = moves[j];
+                moves[j] = moves[i];
+                moves[i] = move;
+                script.println(DotsAndBoxesMove.toString(move));
+            }
+        }
+        script.flush();
+    }
+
+    /**
+     * Replays every game record in a directory to the end, then seeks each
+     * one to random moves, and prints the moves and seeks per second
+     * @param dir directory of records
+     * @throws IOException if a record cannot be read
+     */
+    public static void replayArchive(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + GameRecord.FILE_EXTENSION)) {
+            for (Path file : stream) files.add(file);
+        }
+        Collections.sort(files);
+
+        long startTime = System.nanoTime();
+        List<GameRecord> records = new ArrayList<>();
+        for (Path file : files) records.add(GameRecord.load(file));
+        double loadSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        long moves = 0;
+        int finished = 0;
+        startTime = System.nanoTime();
+        for (GameRecord record : records) {
+            while (record.nextMove() >= 0) moves++;
+            boolean over = record.getGame() == GameRecord.DOTS_AND_BOXES
+                    ? record.getDotsAndBoxesBoard().isGameOver()
+                    : record.getPuzzleBoard().isSolved();
+            if (over) finished++;
+        }
+        double replaySeconds = (System.nanoTime() - startTime) / 1e9;
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        int seeks = 0;
+        startTime = System.nanoTime();
+        for (GameRecord record : records) {
+            for (int i = 0; i < 10; i++) {
+                record.seek(random.nextInt(record.getMoveCount() + 1));
+                seeks++;
+            }
+        }
+        double seekSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        ColorPrinter.printlnCyan("Game records in " + dir + ": " + records.size() + " games, " +
+                moves + " moves, " + finished + " played to the end");
+        System.out.printf("load %.0f ms, replay %.0f moves/sec, seek %.2f us average%n",
+                loadSeconds * 1e3, moves / replaySeconds, seeks > 0 ? seekSeconds * 1e6 / seeks : 0.0);
+    }
+
+    private static String recordName(String game, int index) {
+        return String.format("%s-%06d%s", game, index + 1, GameRecord.FILE_EXTENSION);
+    }
+
+    private static DotsAndBoxesEngine createEngine(String kind, long seed) {
+        switch (kind) {
+            case "random":
+                return new DotsAndBoxesRandomEngine(false, seed);
+            case "greedy":
+                return new DotsAndBoxesRandomEngine(true, seed);
+            case "mcts":
+                return new DotsAndBoxesMCTS(0, MCTS_PLAYOUTS, DotsAndBoxesMCTS.DEFAULT_MAX_NODES, seed);
+            default:
+                throw new IllegalArgumentException("Unknown Dots and Boxes player: " + kind +
+                        " (use random, greedy or mcts)");
+        }
+    }
+
+    private static PuzzleMoveSource createMoveSource(String kind) {
+        switch (kind) {
+            case "optimal":
+                return new PuzzleSolver()::getHint;
+            case "reduction":
+                PuzzleReductionSolver solver = new PuzzleReductionSolver(SEED);
+                return new PathFollower(board -> solver.solve(board, 0));
+            default:
+                throw new IllegalArgumentException("Unknown puzzle player: " + kind +
+                        " (use optimal or reduction)");
+        }
+    }
+
+    /**
+     * Plays a whole solution found at the first move of each game, one
+     * move per call
+     */
+    private static final class PathFollower implements PuzzleMoveSource {
+        private final Function<PuzzleBoard, int[]> planner;
+        private PuzzleBoard game;
+        private int[] path;
+        private int next;
+
+        PathFollower(Function<PuzzleBoard, int[]> planner) {
+            this.planner = planner;
+        }
+
+        @Override
+        public int chooseMove(PuzzleBoard board) {
+            // Every game plays on its own board, so a new board means a new game
+            if (board != game || path == null || next == path.length) {
+                game = board;
+                path = planner.apply(board);
+                next = 0;
+                if (path == null || path.length == 0) return PuzzleSolver.NO_MOVE;
+            }
+            return path[next++];
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.nio.file.Paths;
+
 /**
  * Main.java
  * Entry point for the Dots and Boxes game application.
@@ -9,9 +11,17 @@
 public class Main {
     /**
      * Main entry point - no logic here, just initialization
-     * @param args command line arguments (unused)
+     * @param args command line arguments: --incremental redraws only the
+     *             parts of a board that changed (for remote terminals);
+     *             --record <directory> saves every game as a game record
      */
     public static void main(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--incremental")) FrameRenderer.setIncrementalByDefault(true);
+            if (args[i].equals("--record") && i + 1 < args.length) {
+                GameRecordWriter.setDirectory(Paths.get(args[++i]));
+            }
+        }
         GameController controller = new GameController();
         controller.start();
     }
@@ -0,0 +1,176 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * MoveScriptReader.java
+ *
+ * Reads Dots and Boxes moves from a file or pipe, one per line, written the
+ * way players type them and DotsAndBoxesMove.toString prints them:
+ *
+ *   # comment lines and blank lines are skipped
+ *   H 0 1
+ *   v 2 3   # orientation in either case, trailing comments allowed
+ *
+ * The script is scanned byte by byte out of one reusable buffer, and each
+ * move comes back as an encoded int, so reading a move allocates nothing:
+ * no lines, no tokens, no boxed numbers. Several games can follow each
+ * other in one script; each game just reads the moves it needs.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public class MoveScriptReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Largest row or column a move can hold
+    private static final int MAX_COORDINATE = (1 << 15) - 1;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    // Line being scanned, and the line of the last move returned
+    private int lineNumber = 1;
+    private int moveLine;
+    private long moveCount;
+
+    /**
+     * Creates a reader over a stream; the stream is read in large blocks,
+     * so it needs no buffering of its own
+     * @param in stream of move lines
+     */
+    public MoveScriptReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens a script file, or standard input for "-"
+     * @param path file path, or "-"
+     * @return reader over the script
+     * @throws IOException if the file cannot be opened
+     */
+    public static MoveScriptReader open(String path) throws IOException {
+        return new MoveScriptReader(path.equals("-") ? System.in : new FileInputStream(path));
+    }
+
+    /**
+     * Reads the next move
+     * @return encoded move (see DotsAndBoxesMove), or NO_MOVE at the end of the script
+     * @throws IOException if the script cannot be read
+     * @throws IllegalArgumentException naming the line of a malformed move
+     */
+    public int nextMove() throws IOException {
+        while (true) {
+            int c = skipSpaces();
+            if (c == -1) return DotsAndBoxesMove.NO_MOVE;
+            if (c == '\n') {
+                lineNumber++;
+                continue;
+            }
+            if (c == '#') {
+                skipLine();
+                continue;
+            }
+
+            boolean horizontal;
+            if (c == 'H' || c == 'h') {
+                horizontal = true;
+            } else if (c == 'V' || c == 'v') {
+                horizontal = false;
+            } else {
+                throw invalid("expected H or V, found '" + (char) c + "'");
+            }
+            int row = readCoordinate();
+            int col = readCoordinate();
+            moveLine = lineNumber;
+
+            c = skipSpaces();
+            if (c == '#') {
+                skipLine();
+            } else if (c == '\n') {
+                lineNumber++;
+            } else if (c != -1) {
+                throw invalid("unexpected '" + (char) c + "' after the column");
+            }
+            moveCount++;
+            return DotsAndBoxesMove.encode(horizontal, row, col);
+        }
+    }
+
+    /**
+     * Gets the line of the last move read, e.g. to report a move the board rejects
+     * @return 1-based line number, or 0 before the first move
+     */
+    public int getLineNumber() {
+        return moveLine;
+    }
+
+    /**
+     * Gets how many moves have been read
+     * @return move count
+     */
+    public long getMoveCount() {
+        return moveCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != System.in) in.close();
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Skips spaces, tabs and carriage returns
+     * @return the next other byte, or -1 at the end of the script
+     */
+    private int skipSpaces() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\r');
+        return c;
+    }
+
+    /**
+     * Skips to the start of the next line
+     */
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != '\n' && c != -1);
+        if (c == '\n') lineNumber++;
+    }
+
+    private int readCoordinate() throws IOException {
+        int c = skipSpaces();
+        if (c < '0' || c > '9') {
+            throw invalid(c == -1 || c == '\n' ? "expected a row and a column" : "not a number: '" + (char) c + "'");
+        }
+        int value = 0;
+        do {
+            value = value * 10 + (c - '0');
+            if (value > MAX_COORDINATE) throw invalid("coordinate too large");
+            c = read();
+        } while (c >= '0' && c <= '9');
+        // Give the byte after the number back to the caller
+        if (c != -1) position--;
+        return value;
+    }
+
+    private IllegalArgumentException invalid(String message) {
+        return new IllegalArgumentException("Line " + lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,559 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PatternDatabase.java
+ * Additive pattern databases for the sliding puzzle heuristic.
+ *
+ * The tiles are split into disjoint patterns (6-6-3 on 4x4, 5-5-5-5-4 on
+ * 5x5). For each pattern a table holds, for every placement of its tiles,
+ * the fewest moves of those tiles needed to bring them home while the other
+ * tiles are treated as blanks. Only moves of a pattern's own tiles are
+ * counted, so the values of different patterns can be added and still
+ * never overestimate.
+ *
+ * A table is built once by a breadth-first search backwards from the goal
+ * over (placement, empty cell) states, one layer per pattern tile move,
+ * where moves of other tiles are free. It is then written to disk: a value
+ * always has the parity of the pattern's Manhattan distance and is rarely
+ * far above it, so each entry stores (value - Manhattan) / 2 in 4 bits.
+ * Loading maps the file into memory, which is fast and shares the tables
+ * between all threads; a lookup is the board's Manhattan distance plus
+ * twice the sum of one nibble per pattern.
+ *
+ * Tables are indexed by the rank of the placement as a partial permutation
+ * (a Lehmer code): tile i's digit is its position minus the earlier tiles
+ * in lower positions, read in base cells - i. That leaves no gaps for
+ * tiles sharing a cell, so a 6-tile table on 4x4 has 16!/10! entries
+ * (2.9 MB) instead of 16^6. A slide moves one tile by one cell or one
+ * row, which shifts its digit and those of later tiles it passes, so the
+ * index changes by a multiply-add plus one term per pattern tile in the
+ * cells between (none for a sideways slide); see indexChange.
+ *
+ * Tables are read from the directory named by the puzzle.pdb.dir system
+ * property, or from pdb under the working directory.
+ *
+ * Usage: java [-Dpuzzle.pdb.dir=dir] PatternDatabase [rows] [cols]
+ *        (writes the default tables)
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.1
+ */
+public final class PatternDatabase {
+    /** System property naming the directory get reads table files from */
+    public static final String DIRECTORY_PROPERTY = "puzzle.pdb.dir";
+    /** Where get looks for the table files when DIRECTORY_PROPERTY is not set */
+    public static final String DEFAULT_DIRECTORY = "pdb";
+
+    private static final int MAGIC = 0x50444232;  // "PDB2"
+    // Files of version 1, indexed by position * cells^i
+    private static final int OLD_MAGIC = 0x50444231;
+    private static final int MAX_EXCESS = 15;
+
+    // Tables by file; a file that could not be loaded maps to an empty Optional
+    private static final ConcurrentHashMap<Path, Optional<PatternDatabase>> LOADED = new ConcurrentHashMap<>();
+
+    private final int rows;
+    private final int cols;
+    private final int[][] patterns;
+    // For every tile: its pattern (-1 if none), its place in the pattern
+    // and the multiplier of its digit in that pattern's index
+    private final int[] patternOf;
+    private final int[] orderOf;
+    private final int[] weightOf;
+    // passWeight[tile * cells + other] = index change when tile slides
+    // forward past other, 0 unless both are in the same pattern
+    private final int[] passWeight;
+    private final int[] tableOffsets;
+    private final MappedByteBuffer data;
+
+    private PatternDatabase(int rows, int cols, int[][] patterns, int[] tableOffsets,
+                            MappedByteBuffer data) {
+        this.rows = rows;
+        this.cols = cols;
+        this.patterns = patterns;
+        this.tableOffsets = tableOffsets;
+        this.data = data;
+
+        int cells = rows * cols;
+        patternOf = new int[cells];
+        orderOf = new int[cells];
+        weightOf = new int[cells];
+        Arrays.fill(patternOf, -1);
+        for (int p = 0; p < patterns.length; p++) {
+            int weight = 1;
+            for (int i = patterns[p].length - 1; i >= 0; i--) {
+                int tile = patterns[p][i];
+                patternOf[tile] = p;
+                orderOf[tile] = i;
+                weightOf[tile] = weight;
+                weight *= cells - i;
+            }
+        }
+
+        // Passing an earlier tile lowers the moving tile's digit, passing a later one raises that tile's
+        passWeight = new int[cells * cells];
+        for (int tile = 1; tile < cells; tile++) {
+            for (int other = 1; other < cells; other++) {
+                if (tile == other || patternOf[tile] < 0 || patternOf[tile] != patternOf[other]) continue;
+                passWeight[tile * cells + other] = orderOf[other] < orderOf[tile] ? -weightOf[tile] : weightOf[other];
+            }
+        }
+    }
+
+    /**
+     * Gets the default tile partition for a board size
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return tiles of each pattern, or null if there is no default for the size
+     */
+    public static int[][] defaultPartition(int rows, int cols) {
+        if (rows == 4 && cols == 4) {
+            return new int[][] {
+                    { 1, 2, 3, 5, 6, 7 },
+                    { 4, 8, 11, 12, 14, 15 },
+                    { 9, 10, 13 }
+            };
+        }
+        if (rows == 5 && cols == 5) {
+            return new int[][] {
+                    { 1, 2, 3, 6, 7 },
+                    { 4, 5, 8, 9, 10 },
+                    { 11, 12, 16, 17, 21 },
+                    { 13, 14, 15, 18, 19 },
+                    { 20, 22, 23, 24 }
+            };
+        }
+        return null;
+    }
+
+    /**
+     * Gets the directory get reads table files from
+     * @return the DIRECTORY_PROPERTY directory, or DEFAULT_DIRECTORY if it is not set
+     */
+    public static Path getDirectory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+    }
+
+    /**
+     * Gets the file get reads the tables of a board size from
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return path inside getDirectory()
+     */
+    public static Path defaultFile(int rows, int cols) {
+        return getDirectory().resolve("puzzle-" + rows + "x" + cols + ".pdb");
+    }
+
+    /**
+     * Gets the tables for a board size, mapping the default file the first
+     * time it is asked for. A missing or unreadable file is remembered as
+     * well, so asking again costs one map lookup until build writes a new
+     * file. Never builds tables, which can take minutes.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return shared tables, or null if the file is missing or unreadable
+     */
+    public static PatternDatabase get(int rows, int cols) {
+        return LOADED.computeIfAbsent(defaultFile(rows, cols), file -> {
+            if (!Files.isRegularFile(file)) return Optional.empty();
+            try {
+                PatternDatabase database = load(file);
+                return database.rows == rows && database.cols == cols ? Optional.of(database) : Optional.empty();
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Maps a table file into memory
+     * @param file file written by build
+     * @return tables backed by the mapped file
+     * @throws IOException if the file cannot be read or is not a table file
+     */
+    public static PatternDatabase load(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Pattern database too large: " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            int offset = 0;
+            int magic = data.getInt(offset);
+            if (magic == OLD_MAGIC) {
+                throw new IOException("Pattern database in the old format, rebuild it: " + file);
+            }
+            if (magic != MAGIC) {
+                throw new IOException("Not a pattern database: " + file);
+            }
+            int rows = data.getInt(offset + 4);
+            int cols = data.getInt(offset + 8);
+            int count = data.getInt(offset + 12);
+            offset += 16;
+            if (rows < PuzzleBoard.MIN_SIZE || rows > PuzzleBoard.MAX_SIZE
+                    || cols < PuzzleBoard.MIN_SIZE || cols > PuzzleBoard.MAX_SIZE
+                    || count < 1 || count >= rows * cols) {
+                throw new IOException("Corrupt pattern database header: " + file);
+            }
+
+            int[][] patterns = new int[count][];
+            for (int p = 0; p < count; p++) {
+                int size = data.getInt(offset);
+                offset += 4;
+                if (size < 1 || size >= rows * cols) {
+                    throw new IOException("Corrupt pattern database header: " + file);
+                }
+                patterns[p] = new int[size];
+                for (int i = 0; i < size; i++) {
+                    patterns[p][i] = data.getInt(offset);
+                    offset += 4;
+                }
+            }
+            validate(rows, cols, patterns);
+
+            int[] tableOffsets = new int[count];
+            long end = offset;
+            for (int p = 0; p < count; p++) {
+                tableOffsets[p] = (int) end;
+                end += tableBytes(rows * cols, patterns[p].length);
+            }
+            if (end != data.capacity()) {
+                throw new IOException("Truncated pattern database: " + file);
+            }
+            return new PatternDatabase(rows, cols, patterns, tableOffsets, data);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt pattern database: " + file, e);
+        }
+    }
+
+    /**
+     * Builds the tables of a partition and writes them to a file. The file
+     * is written next to its final name first, so readers never see half of
+     * it, and get forgets what it found before so it looks at the new file.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param patterns disjoint groups of tile numbers
+     * @param file where to write the tables
+     * @throws IllegalArgumentException if the partition is invalid or a pattern is too large
+     * @throws IOException if the file cannot be written
+     */
+    public static void build(int rows, int cols, int[][] patterns, Path file) throws IOException {
+        validate(rows, cols, patterns);
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(patterns.length);
+            for (int[] pattern : patterns) {
+                out.writeInt(pattern.length);
+                for (int tile : pattern) out.writeInt(tile);
+            }
+            for (int[] pattern : patterns) {
+                out.write(buildTable(rows, cols, pattern));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        LOADED.clear();
+    }
+
+    private static void validate(int rows, int cols, int[][] patterns) {
+        int cells = rows * cols;
+        boolean[] used = new boolean[cells];
+        for (int[] pattern : patterns) {
+            if (pattern.length == 0 || pattern.length >= cells) {
+                throw new IllegalArgumentException("Pattern size must be between 1 and " + (cells - 1));
+            }
+            if (pattern.length > 1 && (double) cells * placements(cells, pattern.length) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Pattern of " + pattern.length + " tiles is too large for "
+                        + rows + "x" + cols);
+            }
+            for (int tile : pattern) {
+                if (tile < 1 || tile >= cells || used[tile]) {
+                    throw new IllegalArgumentException("Patterns must hold distinct tiles 1 to " + (cells - 1));
+                }
+                used[tile] = true;
+            }
+        }
+    }
+
+    private static long tableBytes(int cells, int size) {
+        return (placements(cells, size) + 1) / 2;
+    }
+
+    /**
+     * Counts the placements of a pattern: cells! / (cells - size)!
+     */
+    private static long placements(int cells, int size) {
+        long count = 1;
+        for (int i = 0; i < size; i++) count *= cells - i;
+        return count;
+    }
+
+    /**
+     * Ranks a placement, given as the positions of the pattern's tiles in
+     * order, among all placements of that many tiles
+     */
+    private static int rank(int[] positions, int size, int cells) {
+        int rank = 0;
+        for (int i = 0; i < size; i++) {
+            int digit = positions[i];
+            for (int j = 0; j < i; j++) {
+                if (positions[j] < positions[i]) digit--;
+            }
+            rank = rank * (cells - i) + digit;
+        }
+        return rank;
+    }
+
+    /**
+     * Inverse of rank: fills in the positions of a ranked placement
+     */
+    private static void unrank(int rank, int size, int cells, int[] positions) {
+        for (int i = size - 1; i >= 0; i--) {
+            positions[i] = rank % (cells - i);
+            rank /= cells - i;
+        }
+        // A digit d means the d-th free cell: the least p with p = d + (taken cells <= p)
+        for (int i = 1; i < size; i++) {
+            int digit = positions[i];
+            int position = digit;
+            while (true) {
+                int taken = 0;
+                for (int j = 0; j < i; j++) {
+                    if (positions[j] <= position) taken++;
+                }
+                if (digit + taken == position) break;
+                position = digit + taken;
+            }
+            positions[i] = position;
+        }
+    }
+
+    /**
+     * Breadth-first search over (placement rank, empty cell) states,
+     * backwards from the goal. Layer d holds the states that need d moves
+     * of pattern tiles; free moves of other tiles are followed depth-first
+     * inside a layer. A placement's value is the first layer that reaches it.
+     */
+    private static byte[] buildTable(int rows, int cols, int[] pattern) {
+        int cells = rows * cols;
+        int size = pattern.length;
+        int placements = (int) placements(cells, size);
+        int states = placements * cells;
+
+        long[] closed = new long[(states + 63) >>> 6];
+        long[] current = new long[closed.length];
+        long[] next = new long[closed.length];
+        long[] reached = new long[(placements + 63) >>> 6];
+        byte[] table = new byte[(int) tableBytes(cells, size)];
+
+        int[] owner = new int[cells];
+        Arrays.fill(owner, -1);
+        int[] positions = new int[size];
+        int[] stack = new int[4 * cells + 4];
+
+        for (int i = 0; i < size; i++) positions[i] = pattern[i] - 1;
+        int start = rank(positions, size, cells) * cells + cells - 1;
+        current[start >>> 6] |= 1L << start;
+
+        // Placement whose positions and owners are filled in, and its Manhattan distance
+        int decoded = -1;
+        int manhattan = 0;
+        for (int cost = 0; ; cost++) {
+            boolean more = false;
+            for (int word = 0; word < current.length; word++) {
+                long bits = current[word];
+                current[word] = 0;
+                while (bits != 0) {
+                    int seed = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    int top = 0;
+                    stack[top++] = seed;
+                    while (top > 0) {
+                        int state = stack[--top];
+                        if ((closed[state >>> 6] & (1L << state)) != 0) continue;
+                        closed[state >>> 6] |= 1L << state;
+
+                        int placement = state / cells;
+                        int empty = state - placement * cells;
+                        if (placement != decoded) {
+                            if (decoded >= 0) {
+                                for (int i = 0; i < size; i++) owner[positions[i]] = -1;
+                            }
+                            unrank(placement, size, cells, positions);
+                            manhattan = 0;
+                            for (int i = 0; i < size; i++) {
+                                owner[positions[i]] = i;
+                                int home = pattern[i] - 1;
+                                manhattan += Math.abs(home / cols - positions[i] / cols)
+                                        + Math.abs(home % cols - positions[i] % cols);
+                            }
+                            decoded = placement;
+                        }
+                        if ((reached[placement >>> 6] & (1L << placement)) == 0) {
+                            reached[placement >>> 6] |= 1L << placement;
+                            int excess = Math.min((cost - manhattan) / 2, MAX_EXCESS);
+                            table[placement >>> 1] |= (byte) (excess << ((placement & 1) << 2));
+                        }
+
+                        int row = empty / cols;
+                        int col = empty % cols;
+                        for (int dir = 0; dir < 4; dir++) {
+                            int cell;
+                            switch (dir) {
+                                case 0: if (row == 0) continue; cell = empty - cols; break;
+                                case 1: if (row == rows - 1) continue; cell = empty + cols; break;
+                                case 2: if (col == 0) continue; cell = empty - 1; break;
+                                default: if (col == cols - 1) continue; cell = empty + 1; break;
+                            }
+
+                            int tile = owner[cell];
+                            if (tile < 0) {
+                                // Another tile moves: free, same layer
+                                int target = placement * cells + cell;
+                                if ((closed[target >>> 6] & (1L << target)) == 0) stack[top++] = target;
+                            } else {
+                                positions[tile] = empty;
+                                int target = rank(positions, size, cells) * cells + cell;
+                                positions[tile] = cell;
+                                if ((closed[target >>> 6] & (1L << target)) == 0) {
+                                    next[target >>> 6] |= 1L << target;
+                                    more = true;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            if (!more) break;
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+        return table;
+    }
+
+    /**
+     * Gets the number of patterns
+     * @return pattern count
+     */
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    /**
+     * Gets which pattern a tile belongs to
+     * @param tile tile number
+     * @return pattern number, or -1 if the tile is in none
+     */
+    public int getPatternOf(int tile) {
+        return patternOf[tile];
+    }
+
+    /**
+     * Computes the index of a pattern's placement on a board
+     * @param board board to look at
+     * @param pattern pattern number
+     * @return placement index
+     */
+    public int index(PuzzleBoard board, int pattern) {
+        int[] positions = new int[patterns[pattern].length];
+        for (int pos = 0; pos < rows * cols; pos++) {
+            int tile = board.getTileAt(pos);
+            if (tile != 0 && patternOf[tile] == pattern) positions[orderOf[tile]] = pos;
+        }
+        return rank(positions, positions.length, rows * cols);
+    }
+
+    /**
+     * Computes how a pattern's index changes when one of its tiles slides.
+     * Tiles between the two cells tell how the digits shift: an earlier
+     * tile there changes the moving tile's digit, a later one its own.
+     * @param board board before or after the slide
+     * @param tile tile that slides (see getPatternOf)
+     * @param from cell it leaves
+     * @param to cell it enters, which was empty
+     * @return amount to add to the index
+     */
+    public int indexChange(PuzzleBoard board, int tile, int from, int to) {
+        int passed = 0;
+        int row = tile * rows * cols;
+        for (int pos = Math.min(from, to) + 1; pos < Math.max(from, to); pos++) {
+            passed += passWeight[row + board.getTileAt(pos)];
+        }
+        return (to - from) * weightOf[tile] + (to > from ? passed : -passed);
+    }
+
+    /**
+     * Gets the moves a pattern needs beyond its tiles' Manhattan distance
+     * @param pattern pattern number
+     * @param index placement index (see index and indexChange)
+     * @return half of the extra moves, at most 15
+     */
+    public int excess(int pattern, int index) {
+        int packed = data.get(tableOffsets[pattern] + (index >>> 1));
+        return (packed >>> ((index & 1) << 2)) & 0xF;
+    }
+
+    /**
+     * Gets the additive estimate for a board
+     * @param board board to estimate
+     * @return a lower bound on the moves needed to solve the board
+     * @throws IllegalArgumentException if the board has a different size
+     */
+    public int estimate(PuzzleBoard board) {
+        if (board.getRowCount() != rows || board.getColCount() != cols) {
+            throw new IllegalArgumentException("Pattern database is for " + rows + "x" + cols + " boards");
+        }
+        int total = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            total += excess(p, index(board, p));
+        }
+        return board.getManhattanDistance() + 2 * total;
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+
+    /**
+     * Builds the default tables of a board size into getDirectory()
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : rows;
+        int[][] patterns = defaultPartition(rows, cols);
+        if (patterns == null) {
+            ColorPrinter.printlnRed("No default patterns for " + rows + "x" + cols + " boards (try 4x4 or 5x5).");
+            return;
+        }
+
+        Path file = defaultFile(rows, cols);
+        ColorPrinter.printlnCyan("Building " + patterns.length + " pattern tables for " + rows + "x" + cols + "...");
+        long start = System.nanoTime();
+        build(rows, cols, patterns, file);
+        System.out.printf("Wrote %s (%d bytes) in %.1f s%n", file, Files.size(file),
+                (System.nanoTime() - start) / 1e9);
+    }
+}
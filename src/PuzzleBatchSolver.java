@@ -0,0 +1,257 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * PuzzleBatchSolver.java
+ * Solves many sliding puzzles at once on a work-stealing pool.
+ *
+ * The puzzles are split in halves recursively down to single puzzles, so
+ * threads that finish their easy puzzles steal the remaining halves of
+ * busier threads. Each result is handed to a listener as soon as its puzzle
+ * is done, so long runs report progress all the way through.
+ *
+ * Puzzle files hold one puzzle per line: the row count, the column count,
+ * then the tiles row by row with 0 for the empty space, separated by spaces
+ * or commas. Blank lines and lines starting with '#' are skipped.
+ *
+ *   # rows cols tiles...
+ *   3 3  8 6 7 2 5 4 3 0 1
+ *
+ * Usage: java PuzzleBatchSolver <file> [threads] [nodeLimit]
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class PuzzleBatchSolver {
+    public static final long DEFAULT_NODE_LIMIT = 1_000_000_000L;
+
+    private final int threadCount;
+    private final long nodeLimit;
+
+    /**
+     * Creates a batch solver using every core
+     */
+    public PuzzleBatchSolver() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_NODE_LIMIT);
+    }
+
+    /**
+     * Creates a batch solver
+     * @param threads number of solving threads
+     * @param nodeLimit most positions to visit per puzzle
+     * @throws IllegalArgumentException if either value is not positive
+     */
+    public PuzzleBatchSolver(int threads, long nodeLimit) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("Node limit must be positive");
+        }
+        this.threadCount = threads;
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Solves every puzzle, reporting each result as soon as it is known.
+     * Returns once all puzzles are done.
+     * @param puzzles puzzles to solve; they are not changed
+     * @param listener receives the results in completion order, called from
+     *        the solving threads, so it must be thread-safe
+     */
+    public void solveAll(List<PuzzleBoard> puzzles, Consumer<Result> listener) {
+        if (puzzles.isEmpty()) return;
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            pool.invoke(new SolveRange(puzzles, 0, puzzles.size(), listener));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Solves the puzzles from first to end, splitting the range so idle
+     * threads can steal half of it
+     */
+    private final class SolveRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<PuzzleBoard> puzzles;
+        private final int first;
+        private final int end;
+        private final Consumer<Result> listener;
+
+        SolveRange(List<PuzzleBoard> puzzles, int first, int end, Consumer<Result> listener) {
+            this.puzzles = puzzles;
+            this.first = first;
+            this.end = end;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first > 1) {
+                int middle = (first + end) >>> 1;
+                invokeAll(new SolveRange(puzzles, first, middle, listener),
+                        new SolveRange(puzzles, middle, end, listener));
+                return;
+            }
+
+            PuzzleBoard puzzle = puzzles.get(first);
+            if (!puzzle.isSolvable()) {
+                listener.accept(new Result(first, puzzle, Result.UNSOLVABLE, 0, 0));
+                return;
+            }
+            PuzzleSolver solver = new PuzzleSolver(nodeLimit);
+            int[] solution = solver.solve(puzzle);
+            listener.accept(new Result(first, puzzle,
+                    solution == null ? Result.NOT_FOUND : solution.length,
+                    solver.getLastNodes(), solver.getLastTimeNanos()));
+        }
+    }
+
+    /**
+     * Outcome of one puzzle
+     */
+    public static final class Result {
+        /** Moves value of a puzzle that cannot be solved */
+        public static final int UNSOLVABLE = -1;
+        /** Moves value of a puzzle that hit the node limit */
+        public static final int NOT_FOUND = -2;
+
+        private final int index;
+        private final PuzzleBoard puzzle;
+        private final int moves;
+        private final long nodes;
+        private final long timeNanos;
+
+        Result(int index, PuzzleBoard puzzle, int moves, long nodes, long timeNanos) {
+            this.index = index;
+            this.puzzle = puzzle;
+            this.moves = moves;
+            this.nodes = nodes;
+            this.timeNanos = timeNanos;
+        }
+
+        public int getIndex() { return index; }
+        public PuzzleBoard getPuzzle() { return puzzle; }
+        public int getMoves() { return moves; }
+        public long getNodes() { return nodes; }
+        public long getTimeNanos() { return timeNanos; }
+
+        /**
+         * Checks whether an optimal solution was found
+         * @return true if getMoves is the optimal solution length
+         */
+        public boolean isSolved() {
+            return moves >= 0;
+        }
+    }
+
+    /**
+     * Reads a puzzle file (see the class comment for the format)
+     * @param file file to read
+     * @return puzzles in file order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException naming the line of the first invalid puzzle
+     */
+    public static List<PuzzleBoard> readPuzzles(Path file) throws IOException {
+        List<PuzzleBoard> puzzles = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                try {
+                    puzzles.add(parsePuzzle(line));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return puzzles;
+    }
+
+    private static PuzzleBoard parsePuzzle(String line) {
+        String[] fields = line.split("[\\s,]+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("Expected rows, columns and tiles");
+        }
+        int[] numbers = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                numbers[i] = Integer.parseInt(fields[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + fields[i]);
+            }
+        }
+
+        int[] tiles = new int[numbers.length - 2];
+        System.arraycopy(numbers, 2, tiles, 0, tiles.length);
+        return new PuzzleBoard(numbers[0], numbers[1], tiles);
+    }
+
+    /**
+     * Solves a puzzle file, printing each result as it finishes and a
+     * summary at the end
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java PuzzleBatchSolver <file> [threads] [nodeLimit]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long nodeLimit = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_NODE_LIMIT;
+
+        List<PuzzleBoard> puzzles;
+        try {
+            puzzles = readPuzzles(Paths.get(args[0]));
+        } catch (IllegalArgumentException e) {
+            ColorPrinter.printlnRed("Invalid puzzle file: " + e.getMessage());
+            return;
+        }
+
+        ColorPrinter.printlnCyan("Solving " + puzzles.size() + " puzzles on " + threads + " threads");
+        System.out.printf("%6s %6s %10s %14s %12s%n", "puzzle", "size", "moves", "nodes", "time (ms)");
+
+        long[] totals = new long[4];  // solved, unsolvable, not found, nodes
+        long start = System.nanoTime();
+        new PuzzleBatchSolver(threads, nodeLimit).solveAll(puzzles, result -> {
+            String moves;
+            synchronized (totals) {
+                if (result.isSolved()) {
+                    totals[0]++;
+                    moves = String.valueOf(result.getMoves());
+                } else if (result.getMoves() == Result.UNSOLVABLE) {
+                    totals[1]++;
+                    moves = "unsolvable";
+                } else {
+                    totals[2]++;
+                    moves = "limit";
+                }
+                totals[3] += result.getNodes();
+                PuzzleBoard puzzle = result.getPuzzle();
+                System.out.printf("%6d %6s %10s %14d %12.1f%n", result.getIndex() + 1,
+                        puzzle.getRowCount() + "x" + puzzle.getColCount(), moves,
+                        result.getNodes(), result.getTimeNanos() / 1e6);
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Solved %d, unsolvable %d, over the node limit %d; " +
+                        "%.1f s wall time, %.1f puzzles/sec, %.0f nodes/sec%n",
+                totals[0], totals[1], totals[2], seconds, puzzles.size() / seconds, totals[3] / seconds);
+    }
+}
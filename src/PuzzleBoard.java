@@ -1,22 +1,45 @@
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * PuzzleBoard.java
  * Represents the sliding puzzle board with tiles.
  * Handles board generation, scrambling, and move validation.
  *
+ * Cells are numbered row by row (position = row * cols + col). Boards of up
+ * to 16 cells keep every tile as a 4-bit nibble of one long, larger boards
+ * use one byte per cell. The Manhattan distance and the number of misplaced
+ * tiles (the empty space is not counted) are updated by every slide, so
+ * isSolved and both heuristics are O(1).
+ *
  * @author Priyanshu and Lyu
- * @version 1.0
+ * @version 1.1
  */
 public class PuzzleBoard {
-    private final int[][] tiles;
     private final int rowCount;
     private final int colCount;
-    private int emptyRow;
-    private int emptyCol;
+    private final int cellCount;
+    // distances[a * cellCount + b] = moves between cells a and b, one table per board size
+    private final byte[] distances;
+
+    // Tile at position p: nibble p of packed for small boards, cells[p] otherwise
+    private long packed;
+    private final byte[] cells;
+    private int emptyPos;
+
+    // Sum over all tiles of the distance to their goal cell, and tiles not on it
+    private int manhattan;
+    private int misplaced;
+
+    // Reused by display(); not copied with the board
+    private FrameRenderer renderer;
 
     public static final int MIN_SIZE = 2;
     public static final int MAX_SIZE = 10;
+    /** Largest number of cells that fits the packed long representation */
+    public static final int MAX_PACKED_CELLS = 16;
+
+    private static final ConcurrentHashMap<Integer, byte[]> DISTANCES = new ConcurrentHashMap<>();
 
     /**
      * Constructor - creates a puzzle board with specified dimensions
@@ -24,6 +47,117 @@ public class PuzzleBoard {
      * @param cols number of columns
      */
     public PuzzleBoard(int rows, int cols) {
+        this(rows, cols, new SplittableRandom());
+    }
+
+    /**
+     * Creates a board scrambled from a seed, so the same seed always gives
+     * the same puzzle
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param seed seed of the scramble
+     */
+    public PuzzleBoard(int rows, int cols, long seed) {
+        this(rows, cols, new SplittableRandom(seed));
+    }
+
+    /**
+     * Creates a uniformly random solvable, unsolved board. Give each thread
+     * its own random (see SplittableRandom.split) to generate puzzle sets in
+     * parallel that still depend only on the starting seed.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param random source of the scramble
+     */
+    public PuzzleBoard(int rows, int cols, SplittableRandom random) {
+        this(rows, cols, randomTiles(rows, cols, random));
+    }
+
+    /**
+     * Creates a board with the given tiles, which need not be solvable
+     * (see isSolvable)
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles tile numbers row by row, 0 for the empty space
+     * @throws IllegalArgumentException if the size is out of range or the
+     *         tiles are not each of 0 to rows * cols - 1 exactly once
+     */
+    public PuzzleBoard(int rows, int cols, int[] tiles) {
+        checkSize(rows, cols);
+        this.rowCount = rows;
+        this.colCount = cols;
+        this.cellCount = rows * cols;
+        this.cells = cellCount > MAX_PACKED_CELLS ? new byte[cellCount] : null;
+        this.distances = DISTANCES.computeIfAbsent(rows * (MAX_SIZE + 1) + cols, key -> {
+            byte[] table = new byte[cellCount * cellCount];
+            for (int a = 0; a < cellCount; a++) {
+                for (int b = 0; b < cellCount; b++) {
+                    table[a * cellCount + b] = (byte) (Math.abs(a / cols - b / cols) + Math.abs(a % cols - b % cols));
+                }
+            }
+            return table;
+        });
+
+        if (tiles.length != cellCount) {
+            throw new IllegalArgumentException(
+                    "Expected " + cellCount + " tiles but got " + tiles.length
+            );
+        }
+        boolean[] seen = new boolean[cellCount];
+        for (int tile : tiles) {
+            if (tile < 0 || tile >= cellCount || seen[tile]) {
+                throw new IllegalArgumentException(
+                        "Tiles must be the numbers 0 to " + (cellCount - 1) + ", each once"
+                );
+            }
+            seen[tile] = true;
+        }
+
+        manhattan = 0;
+        misplaced = 0;
+        for (int pos = 0; pos < cellCount; pos++) {
+            setTile(pos, tiles[pos]);
+            if (tiles[pos] == 0) {
+                emptyPos = pos;
+            } else {
+                manhattan += distanceToGoal(tiles[pos], pos);
+                if (pos != tiles[pos] - 1) misplaced++;
+            }
+        }
+    }
+
+    /**
+     * Creates a solved board
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return board with every tile home and the empty space in the corner
+     */
+    public static PuzzleBoard solved(int rows, int cols) {
+        checkSize(rows, cols);
+        int[] tiles = new int[rows * cols];
+        for (int pos = 0; pos < tiles.length - 1; pos++) {
+            tiles[pos] = pos + 1;
+        }
+        return new PuzzleBoard(rows, cols, tiles);
+    }
+
+    /**
+     * Creates a board whose shortest solution is exactly the given number
+     * of moves (see PuzzleScrambler)
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param moves optimal distance from the solved board
+     * @param random source of the scramble
+     * @return scrambled board
+     * @throws IllegalArgumentException if no board is that far from solved
+     * @throws IllegalStateException if a large board could not be scrambled
+     *         that far in reasonable time
+     */
+    public static PuzzleBoard scrambled(int rows, int cols, int moves, SplittableRandom random) {
+        return PuzzleScrambler.scramble(rows, cols, moves, random);
+    }
+
+    private static void checkSize(int rows, int cols) {
         if (rows < MIN_SIZE || cols < MIN_SIZE) {
             throw new IllegalArgumentException(
                     "Board too small! Must be at least " + MIN_SIZE + "x" + MIN_SIZE
@@ -34,60 +168,105 @@ public class PuzzleBoard {
                     "Board too large! Maximum is " + MAX_SIZE + "x" + MAX_SIZE
             );
         }
-        this.rowCount = rows;
-        this.colCount = cols;
-        tiles = new int[rows][cols];
-        setupBoard();
-        scrambleBoard();
     }
 
     /**
-     * Sets up the board in solved state
+     * Copy constructor - duplicates the tiles of another board
+     * @param other board to copy
      */
-    private void setupBoard() {
-        int val = 1;
-        for (int i = 0; i < rowCount; i++) {
-            for (int j = 0; j < colCount; j++) {
-                if (i == rowCount - 1 && j == colCount - 1) {
-                    tiles[i][j] = 0;  // Empty spot
-                    emptyRow = i;
-                    emptyCol = j;
-                } else {
-                    tiles[i][j] = val++;
-                }
+    public PuzzleBoard(PuzzleBoard other) {
+        this.rowCount = other.rowCount;
+        this.colCount = other.colCount;
+        this.cellCount = other.cellCount;
+        this.distances = other.distances;
+        this.packed = other.packed;
+        this.cells = other.cells == null ? null : other.cells.clone();
+        this.emptyPos = other.emptyPos;
+        this.manhattan = other.manhattan;
+        this.misplaced = other.misplaced;
+    }
+
+    /**
+     * Scrambles the tiles with a Fisher-Yates shuffle, which makes every
+     * arrangement equally likely in O(cells). Half of all arrangements
+     * cannot be solved; swapping two tiles fixes that, and since the swap
+     * pairs solvable and unsolvable boards one to one, every solvable board
+     * stays equally likely. An already solved board is drawn again.
+     */
+    private static int[] randomTiles(int rows, int cols, SplittableRandom random) {
+        checkSize(rows, cols);
+        int count = rows * cols;
+        int[] tiles = new int[count];
+        do {
+            for (int i = 0; i < count; i++) tiles[i] = i;
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tile = tiles[i];
+                tiles[i] = tiles[j];
+                tiles[j] = tile;
             }
+
+            if (!isSolvable(tiles, rows, cols)) {
+                int first = tiles[0] == 0 ? 1 : 0;
+                int second = tiles[first + 1] == 0 ? first + 2 : first + 1;
+                int tile = tiles[first];
+                tiles[first] = tiles[second];
+                tiles[second] = tile;
+            }
+        } while (isSolved(tiles));
+        return tiles;
+    }
+
+    private static boolean isSolved(int[] tiles) {
+        for (int pos = 0; pos < tiles.length - 1; pos++) {
+            if (tiles[pos] != pos + 1) return false;
         }
+        return true;
     }
 
     /**
-     * Scrambles the board by making random valid moves
-     * This ensures the puzzle is always solvable
+     * Gets the tile at a position
+     * @param pos cell position (row * cols + col)
+     * @return tile number, 0 for the empty space
      */
-    private void scrambleBoard() {
-        Random rnd = new Random();
-        int maxShuffle = rowCount * colCount * 100;
+    private int tileAt(int pos) {
+        if (cells != null) return cells[pos];
+        return (int) (packed >>> (pos << 2)) & 0xF;
+    }
 
-        for (int k = 0; k < maxShuffle; k++) {
-            // Try a random direction for the empty tile to move
-            int dir = rnd.nextInt(4);
-            int newR = emptyRow;
-            int newC = emptyCol;
+    private void setTile(int pos, int tile) {
+        if (cells != null) {
+            cells[pos] = (byte) tile;
+        } else {
+            int shift = pos << 2;
+            packed = (packed & ~(0xFL << shift)) | ((long) tile << shift);
+        }
+    }
 
-            switch (dir) {
-                case 0: newR = emptyRow - 1; break; // up
-                case 1: newR = emptyRow + 1; break; // down
-                case 2: newC = emptyCol - 1; break; // left
-                case 3: newC = emptyCol + 1; break; // right
-            }
+    /**
+     * Distance from a position to where a tile belongs
+     */
+    private int distanceToGoal(int tile, int pos) {
+        return distances[(tile - 1) * cellCount + pos];
+    }
 
-            if (withinBounds(newR, newC)) {
-                // Swap with empty space
-                tiles[emptyRow][emptyCol] = tiles[newR][newC];
-                tiles[newR][newC] = 0;
-                emptyRow = newR;
-                emptyCol = newC;
-            }
+    /**
+     * Slides the tile at pos into the empty space, which must be next to it,
+     * and updates both heuristics from the one tile that moved
+     */
+    private void moveToEmpty(int pos) {
+        int tile = tileAt(pos);
+        manhattan += distanceToGoal(tile, emptyPos) - distanceToGoal(tile, pos);
+        misplaced += (emptyPos == tile - 1 ? 0 : 1) - (pos == tile - 1 ? 0 : 1);
+
+        if (cells != null) {
+            cells[emptyPos] = (byte) tile;
+            cells[pos] = 0;
+        } else {
+            // The empty nibble is 0, so one XOR moves the tile across
+            packed ^= ((long) tile << (pos << 2)) | ((long) tile << (emptyPos << 2));
         }
+        emptyPos = pos;
     }
 
     /**
@@ -108,7 +287,8 @@ public class PuzzleBoard {
      */
     public boolean canSlide(int r, int c) {
         if (!withinBounds(r, c)) return false;
-        if (tiles[r][c] == 0) return false;
+        int emptyRow = emptyPos / colCount;
+        int emptyCol = emptyPos % colCount;
 
         // Must be adjacent to empty tile (orthogonally)
         if ((Math.abs(r - emptyRow) == 1 && c == emptyCol) ||
@@ -127,61 +307,124 @@ public class PuzzleBoard {
     public boolean slideTile(int r, int c) {
         if (!canSlide(r, c)) return false;
 
-        // Swap with empty position
-        tiles[emptyRow][emptyCol] = tiles[r][c];
-        tiles[r][c] = 0;
-        emptyRow = r;
-        emptyCol = c;
+        moveToEmpty(r * colCount + c);
+        return true;
+    }
+
+    /**
+     * Slides the tile at a cell position into the empty space. Cheaper than
+     * slideTile for solvers that already work with positions.
+     * @param pos cell position (row * cols + col)
+     * @return true if successfully slid, false if pos is not next to the empty space
+     */
+    public boolean slideTileAt(int pos) {
+        int diff = pos - emptyPos;
+        boolean adjacent = diff == colCount || diff == -colCount
+                || ((diff == 1 || diff == -1) && pos / colCount == emptyPos / colCount);
+        if (!adjacent || pos < 0 || pos >= cellCount) return false;
+
+        moveToEmpty(pos);
         return true;
     }
 
     /**
-     * Checks if the puzzle is solved
+     * Checks if the puzzle is solved. Every tile being on its own cell also
+     * leaves the empty space in the corner, so this is O(1).
      * @return true if solved, false otherwise
      */
     public boolean isSolved() {
-        int expected = 1;
-        for (int i = 0; i < rowCount; i++) {
-            for (int j = 0; j < colCount; j++) {
-                if (i == rowCount - 1 && j == colCount - 1) {
-                    return tiles[i][j] == 0;
-                }
-                if (tiles[i][j] != expected) {
-                    return false;
-                }
-                expected++;
+        return misplaced == 0;
+    }
+
+    /**
+     * Checks whether the puzzle can be solved at all. Every slide swaps the
+     * empty space with a neighbour, so the parity of the tile permutation
+     * always matches the parity of the empty space's distance from its
+     * corner; boards where they differ can never be solved.
+     * @return true if the puzzle is solvable
+     */
+    public boolean isSolvable() {
+        int[] tiles = new int[cellCount];
+        for (int pos = 0; pos < cellCount; pos++) {
+            tiles[pos] = tileAt(pos);
+        }
+        return isSolvable(tiles, rowCount, colCount);
+    }
+
+    private static boolean isSolvable(int[] tiles, int rows, int cols) {
+        int count = tiles.length;
+
+        // Cell each occupant belongs on, the empty space belonging in the corner
+        int[] home = new int[count];
+        int empty = 0;
+        for (int pos = 0; pos < count; pos++) {
+            home[pos] = tiles[pos] == 0 ? count - 1 : tiles[pos] - 1;
+            if (tiles[pos] == 0) empty = pos;
+        }
+
+        // A cycle of length k takes k - 1 swaps
+        int swaps = 0;
+        boolean[] visited = new boolean[count];
+        for (int start = 0; start < count; start++) {
+            if (visited[start]) continue;
+            int length = 0;
+            for (int pos = start; !visited[pos]; pos = home[pos]) {
+                visited[pos] = true;
+                length++;
             }
+            swaps += length - 1;
         }
-        return true;
+        int emptyDistance = (rows - 1 - empty / cols) + (cols - 1 - empty % cols);
+        return (swaps + emptyDistance) % 2 == 0;
     }
 
     /**
-     * Displays the current board state with colors
+     * Displays the current board state with colors, as one write
      */
     public void display() {
-        System.out.println();
+        if (renderer == null) renderer = new FrameRenderer();
+        render(renderer);
+        renderer.flush();
+    }
+
+    /**
+     * Unpins the board from the top of the screen after incremental
+     * redraws (see FrameRenderer), so the terminal scrolls normally again
+     */
+    public void releaseDisplay() {
+        if (renderer != null) renderer.release();
+    }
 
-        // Print column headers
-        System.out.print("     ");
+    /**
+     * Appends the board, with column and row labels, to a frame
+     * @param frame renderer to append to
+     */
+    public void render(FrameRenderer frame) {
+        frame.newLine();
+
+        // Column headers
+        frame.append("     ");
         for (int j = 0; j < colCount; j++) {
-            System.out.printf(" %2d ", j);
+            frame.append(" ").appendPadded(null, j, 2).append(" ");
         }
-        System.out.println();
-        System.out.println("   " + "─".repeat(colCount * 4 + 1));
+        frame.newLine();
+        frame.append("   " + "─".repeat(colCount * 4 + 1)).newLine();
 
-        // Print board
+        // Board
         for (int i = 0; i < rowCount; i++) {
-            System.out.printf(" %2d │", i);
+            frame.append(" ").appendPadded(null, i, 2).append(" │");
             for (int j = 0; j < colCount; j++) {
-                if (tiles[i][j] == 0) {
-                    ColorPrinter.printYellow("    "); // Empty space
+                int tile = tileAt(i * colCount + j);
+                if (tile == 0) {
+                    frame.append(ColorPrinter.YELLOW, "    "); // Empty space
                 } else {
-                    ColorPrinter.printCyan(String.format(" %2d ", tiles[i][j]));
+                    frame.append(ColorPrinter.CYAN, " ").appendPadded(ColorPrinter.CYAN, tile, 2)
+                            .append(ColorPrinter.CYAN, " ");
                 }
             }
-            System.out.println();
+            frame.newLine();
         }
-        System.out.println();
+        frame.newLine();
     }
 
     /**
@@ -199,4 +442,120 @@ public class PuzzleBoard {
     public int getColCount() {
         return colCount;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the tile at a cell
+     * @param r row index
+     * @param c column index
+     * @return tile number, 0 for the empty space
+     */
+    public int getTile(int r, int c) {
+        if (!withinBounds(r, c)) {
+            throw new IllegalArgumentException("No cell at (" + r + ", " + c + ")");
+        }
+        return tileAt(r * colCount + c);
+    }
+
+    /**
+     * Gets the tile at a cell position
+     * @param pos cell position (row * cols + col)
+     * @return tile number, 0 for the empty space
+     */
+    public int getTileAt(int pos) {
+        if (pos < 0 || pos >= cellCount) {
+            throw new IllegalArgumentException("No cell at position " + pos);
+        }
+        return tileAt(pos);
+    }
+
+    /**
+     * Gets the position of the empty space
+     * @return cell position (row * cols + col)
+     */
+    public int getEmptyPosition() {
+        return emptyPos;
+    }
+
+    /**
+     * Gets the row of the empty space
+     * @return row index
+     */
+    public int getEmptyRow() {
+        return emptyPos / colCount;
+    }
+
+    /**
+     * Gets the column of the empty space
+     * @return column index
+     */
+    public int getEmptyCol() {
+        return emptyPos % colCount;
+    }
+
+    /**
+     * Gets the sum of the distances of all tiles to their goal cells, kept
+     * up to date by every slide
+     * @return Manhattan distance to the solved board
+     */
+    public int getManhattanDistance() {
+        return manhattan;
+    }
+
+    /**
+     * Gets the number of tiles not on their goal cell, kept up to date by
+     * every slide
+     * @return misplaced tile count (the empty space is not counted)
+     */
+    public int getMisplacedCount() {
+        return misplaced;
+    }
+
+    /**
+     * Checks whether the tiles are packed into one long
+     * @return true for boards of at most MAX_PACKED_CELLS cells
+     */
+    public boolean isPacked() {
+        return cells == null;
+    }
+
+    /**
+     * Gets the packed tiles of a small board: the tile at position
+     * row * cols + col is the nibble starting at bit 4 * position
+     * @return packed state
+     * @throws IllegalStateException if the board is too large to be packed
+     */
+    public long getPackedState() {
+        if (cells != null) {
+            throw new IllegalStateException("Boards over " + MAX_PACKED_CELLS + " cells are not packed");
+        }
+        return packed;
+    }
+
+    /**
+     * Gets a 64-bit hash of the size and tiles. Equal boards always hash
+     * alike; packed boards of the same size never collide, and larger
+     * boards only with negligible probability, so the hash can stand in for
+     * the board as a key.
+     * @return state hash
+     */
+    public long getStateHash() {
+        long h = (rowCount * (MAX_SIZE + 1L) + colCount) * 0x9E3779B97F4A7C15L;
+        if (cells == null) return mix(packed ^ h);
+
+        for (int pos = 0; pos < cellCount; pos += 8) {
+            long chunk = 0;
+            for (int i = pos; i < Math.min(pos + 8, cellCount); i++) {
+                chunk = chunk << 8 | cells[i];
+            }
+            h = mix(h ^ chunk);
+        }
+        return h;
+    }
+
+    // Bijective 64-bit finalizer (the one SplittableRandom uses)
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * PuzzleGenerator.java
+ * Generates reproducible sets of random sliding puzzles in parallel.
+ *
+ * Every puzzle of a set gets its own SplittableRandom, split off one root
+ * generator in puzzle order before any work starts. Which thread builds a
+ * puzzle then makes no difference, so a seed always gives the same set no
+ * matter how many cores generate it.
+ *
+ * Usage: java PuzzleGenerator <rows> <cols> <count> [seed]
+ * prints a puzzle file in the format PuzzleBatchSolver reads.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class PuzzleGenerator {
+    private final long seed;
+
+    /**
+     * Creates a generator
+     * @param seed seed the whole set depends on
+     */
+    public PuzzleGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Gives every puzzle of a set its own random, in puzzle order
+     * @param count number of puzzles
+     * @return one independent random per puzzle
+     */
+    public SplittableRandom[] splitRandoms(int count) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[count];
+        for (int i = 0; i < count; i++) {
+            randoms[i] = root.split();
+        }
+        return randoms;
+    }
+
+    /**
+     * Generates uniformly random solvable puzzles on all cores
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param count number of puzzles
+     * @return puzzles, the same for the same seed, size and count
+     * @throws IllegalArgumentException if the size is out of range or count is negative
+     */
+    public List<PuzzleBoard> generate(int rows, int cols, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Puzzle count cannot be negative");
+        }
+        SplittableRandom[] randoms = splitRandoms(count);
+        return IntStream.range(0, count)
+                .parallel()
+                .mapToObj(i -> new PuzzleBoard(rows, cols, randoms[i]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Formats a puzzle as one line of a puzzle file
+     * @param board puzzle to format
+     * @return rows, columns and tiles separated by spaces
+     */
+    public static String toLine(PuzzleBoard board) {
+        int[] numbers = new int[board.getRowCount() * board.getColCount() + 2];
+        numbers[0] = board.getRowCount();
+        numbers[1] = board.getColCount();
+        for (int pos = 0; pos < numbers.length - 2; pos++) {
+            numbers[pos + 2] = board.getTileAt(pos);
+        }
+        return Arrays.stream(numbers).mapToObj(String::valueOf).collect(Collectors.joining(" "));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java PuzzleGenerator <rows> <cols> <count> [seed]");
+            return;
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int count = Integer.parseInt(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        System.out.println("# " + count + " random " + rows + "x" + cols + " puzzles, seed " + seed);
+        for (PuzzleBoard board : new PuzzleGenerator(seed).generate(rows, cols, count)) {
+            System.out.println(toLine(board));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * PuzzleMoveSource.java
+ * Supplies the moves of a sliding puzzle game played without the keyboard,
+ * e.g. by a solver in a headless simulation. PuzzleSolver::getHint is one.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface PuzzleMoveSource {
+    /**
+     * Picks the next move
+     * @param board current board, to be left unchanged
+     * @return cell position of the tile to slide, or PuzzleSolver.NO_MOVE to give up
+     */
+    int chooseMove(PuzzleBoard board);
+}
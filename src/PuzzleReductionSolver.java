@@ -0,0 +1,410 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * PuzzleReductionSolver.java
+ * Finds short, not necessarily shortest, solutions of boards of any size
+ * within a time limit.
+ *
+ * The board is solved the way people do it: finish the top row or the left
+ * column, then the remaining smaller board, until what is left fits a
+ * PuzzleStateTable and is finished optimally. Each placement is a
+ * breadth-first search over the positions of the tiles being placed and the
+ * empty space, with finished cells blocked, so every placement takes the
+ * fewest moves it can. The last two tiles of a line are placed together,
+ * since placing them one at a time would knock the first out again.
+ *
+ * The first pass places single tiles and takes milliseconds even at 10x10.
+ * While time remains, further passes place tiles in pairs, which finds
+ * shorter paths, choosing at random between the row and the column and
+ * among equally short placements. Every pass also cuts out any loop where
+ * the path returns to a position it already passed. The shortest solution
+ * found by the deadline wins.
+ *
+ * Memory is fixed by the board size: the pair searches share arrays of
+ * cells^3 entries, about 9 MB at 10x10, allocated once per solver.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class PuzzleReductionSolver {
+    public static final long DEFAULT_TIME_LIMIT_MS = 2_000L;
+
+    private static final int[] ROW_STEP = {-1, 1, 0, 0};
+    private static final int[] COL_STEP = {0, 0, -1, 1};
+    // Searches look at the clock once per this many positions (plus one)
+    private static final int DEADLINE_CHECK_MASK = 0xFFF;
+    private static final int TIMED_OUT = -2;
+
+    private final SplittableRandom random;
+
+    // State of the running pass
+    private int rows;
+    private int cols;
+    private int cells;
+    private PuzzleBoard board;
+    private boolean[] fixed;
+    private int[] moves;
+    private int moveCount;
+    private boolean randomized;
+    private long deadline;
+    private final int[] directions = {0, 1, 2, 3};
+
+    // Placement search arrays, indexed by (tileA, tileB, empty) positions
+    private int[] seen;
+    private byte[] via;
+    private int[] queue;
+    private int stamp;
+
+    private int lastPasses;
+    private int lastFirstLength;
+    private long lastTimeNanos;
+
+    /**
+     * Creates a solver whose later passes vary at random
+     */
+    public PuzzleReductionSolver() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Creates a solver that makes the same choices for the same seed
+     * @param seed seed of the later passes
+     */
+    public PuzzleReductionSolver(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private PuzzleReductionSolver(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Finds a short solution within a time limit; the board is left as it was
+     * @param start board to solve
+     * @param timeLimitMs time to keep improving the solution; the first
+     *        solution is always finished, even if it takes longer
+     * @return cell positions of the tiles to slide, or null if the board cannot be solved
+     */
+    public int[] solve(PuzzleBoard start, long timeLimitMs) {
+        return solve(start, timeLimitMs, null);
+    }
+
+    /**
+     * Finds a short solution within a time limit, reporting each improvement
+     * @param start board to solve; it is not changed
+     * @param timeLimitMs time to keep improving the solution
+     * @param listener receives every solution shorter than the ones before,
+     *        starting with the first; may be null
+     * @return shortest solution found, or null if the board cannot be solved
+     */
+    public int[] solve(PuzzleBoard start, long timeLimitMs, Consumer<int[]> listener) {
+        long startTime = System.nanoTime();
+        long deadline = startTime + timeLimitMs * 1_000_000L;
+        if (!start.isSolvable()) return null;
+        setUp(start);
+
+        int[] best = removeLoops(start, reduce(start, false, Long.MAX_VALUE));
+        lastFirstLength = best.length;
+        lastPasses = 1;
+        if (listener != null) listener.accept(best.clone());
+
+        // Nothing to improve once the board fits a table
+        while (cells > PuzzleStateTable.MAX_CELLS && System.nanoTime() < deadline) {
+            randomized = lastPasses > 1;
+            int[] candidate = reduce(start, true, deadline);
+            randomized = false;
+            if (candidate == null) break;
+            lastPasses++;
+
+            candidate = removeLoops(start, candidate);
+            if (candidate.length < best.length) {
+                best = candidate;
+                if (listener != null) listener.accept(best.clone());
+            }
+        }
+
+        board = null;
+        lastTimeNanos = System.nanoTime() - startTime;
+        return best;
+    }
+
+    private void setUp(PuzzleBoard start) {
+        rows = start.getRowCount();
+        cols = start.getColCount();
+        int size = rows * cols;
+        if (size != cells || seen == null) {
+            cells = size;
+            int states = cells * cells * cells;
+            seen = new int[states];
+            via = new byte[states];
+            queue = new int[states];
+            stamp = 0;
+        }
+        fixed = new boolean[cells];
+        moves = new int[64];
+    }
+
+    /**
+     * Solves the board line by line
+     * @param pairs true to place tiles two at a time
+     * @param deadline System.nanoTime after which to give up
+     * @return the moves, or null if the deadline passed first
+     */
+    private int[] reduce(PuzzleBoard start, boolean pairs, long deadline) {
+        this.deadline = deadline;
+        board = new PuzzleBoard(start);
+        Arrays.fill(fixed, false);
+        moveCount = 0;
+
+        int top = 0;
+        int left = 0;
+        while ((rows - top) * (cols - left) > PuzzleStateTable.MAX_CELLS) {
+            int height = rows - top;
+            int width = cols - left;
+            // Never leave a region one cell wide, and end on 3x3 where the
+            // board allows, whose table is the quickest to build
+            boolean row;
+            if (height < 3) row = false;
+            else if (width < 3) row = true;
+            else if (randomized && height > 3 && width > 3) row = random.nextBoolean();
+            else row = height >= width;
+
+            int length = row ? width : height;
+            int[] goals = new int[length];
+            for (int i = 0; i < length; i++) {
+                goals[i] = row ? top * cols + left + i : (top + i) * cols + left;
+            }
+            int singles = pairs ? length % 2 : length - 2;
+            for (int i = 0; i < singles; i++) {
+                if (!place(goals[i], -1)) return null;
+            }
+            for (int i = singles; i < length; i += 2) {
+                if (!place(goals[i], goals[i + 1])) return null;
+            }
+
+            if (row) top++;
+            else left++;
+        }
+        finishRegion(top, left);
+        return Arrays.copyOf(moves, moveCount);
+    }
+
+    /**
+     * Moves one or two tiles to their goal cells in the fewest moves that
+     * leave the fixed cells alone, then fixes those cells
+     * @param goalA goal cell of the first tile
+     * @param goalB goal cell of the second tile, or -1 to place one tile
+     * @return false if the deadline passed first
+     */
+    private boolean place(int goalA, int goalB) {
+        boolean pair = goalB >= 0;
+        int a = find(goalA + 1);
+        int b = pair ? find(goalB + 1) : 0;
+        int empty = board.getEmptyPosition();
+
+        if (a != goalA || (pair && b != goalB)) {
+            if (randomized) shuffleDirections();
+            int startState = encode(a, b, empty, pair);
+            int found = search(startState, goalA, goalB, pair);
+            if (found == TIMED_OUT) return false;
+            if (found < 0) {
+                throw new IllegalStateException("Could not place tile " + (goalA + 1));
+            }
+            replay(startState, found, pair);
+        }
+
+        fixed[goalA] = true;
+        if (pair) fixed[goalB] = true;
+        return true;
+    }
+
+    private int search(int startState, int goalA, int goalB, boolean pair) {
+        stamp++;
+        seen[startState] = stamp;
+        queue[0] = startState;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            if ((head & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() > deadline) return TIMED_OUT;
+            int state = queue[head++];
+            int empty = state % cells;
+            int rest = state / cells;
+            int a = pair ? rest / cells : rest;
+            int b = pair ? rest % cells : 0;
+
+            for (int dir : directions) {
+                int next = neighbour(empty, dir);
+                if (next < 0 || fixed[next]) continue;
+                // The tile at next slides into the empty cell
+                int na = a == next ? empty : a;
+                int nb = pair && b == next ? empty : b;
+                int nextState = encode(na, nb, next, pair);
+                if (seen[nextState] == stamp) continue;
+
+                seen[nextState] = stamp;
+                via[nextState] = (byte) dir;
+                if (na == goalA && (!pair || nb == goalB)) return nextState;
+                queue[tail++] = nextState;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Walks the search back from found to the start and plays the moves
+     */
+    private void replay(int startState, int found, boolean pair) {
+        int length = 0;
+        int[] path = new int[16];
+        for (int state = found; state != startState; ) {
+            int empty = state % cells;
+            int rest = state / cells;
+            int a = pair ? rest / cells : rest;
+            int b = pair ? rest % cells : 0;
+            int dir = via[state];
+            int previous = empty - ROW_STEP[dir] * cols - COL_STEP[dir];
+
+            if (length == path.length) path = Arrays.copyOf(path, 2 * length);
+            path[length++] = empty;
+            // A tile now on the old empty cell came from the new one
+            state = encode(a == previous ? empty : a, pair && b == previous ? empty : b, previous, pair);
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            play(path[i]);
+        }
+    }
+
+    /**
+     * Solves the bottom-right region left over by the reduction with its state table
+     */
+    private void finishRegion(int top, int left) {
+        int height = rows - top;
+        int width = cols - left;
+        int[] tiles = new int[height * width];
+        for (int pos = 0; pos < tiles.length; pos++) {
+            int tile = board.getTileAt((top + pos / width) * cols + left + pos % width);
+            if (tile != 0) {
+                int goal = tile - 1;
+                tiles[pos] = (goal / cols - top) * width + goal % cols - left + 1;
+            }
+        }
+        int[] rest = PuzzleStateTable.get(height, width).solve(new PuzzleBoard(height, width, tiles));
+        for (int pos : rest) {
+            play((top + pos / width) * cols + left + pos % width);
+        }
+    }
+
+    /**
+     * Cuts out every stretch of the path that comes back to an earlier position
+     */
+    private static int[] removeLoops(PuzzleBoard start, int[] path) {
+        PuzzleBoard current = new PuzzleBoard(start);
+        Map<Long, Integer> index = new HashMap<>();
+        long[] hashes = new long[path.length + 1];
+        int[] kept = new int[path.length];
+        int length = 0;
+        hashes[0] = current.getStateHash();
+        index.put(hashes[0], 0);
+
+        for (int pos : path) {
+            current.slideTileAt(pos);
+            long hash = current.getStateHash();
+            Integer earlier = index.get(hash);
+            if (earlier != null) {
+                for (int i = earlier + 1; i <= length; i++) index.remove(hashes[i]);
+                length = earlier;
+            } else {
+                kept[length++] = pos;
+                hashes[length] = hash;
+                index.put(hash, length);
+            }
+        }
+
+        // Large boards compare hashes only, so check the shortened path still works
+        PuzzleBoard check = new PuzzleBoard(start);
+        for (int i = 0; i < length; i++) {
+            if (!check.slideTileAt(kept[i])) return path;
+        }
+        return check.isSolved() ? Arrays.copyOf(kept, length) : path;
+    }
+
+    private void play(int pos) {
+        board.slideTileAt(pos);
+        if (moveCount == moves.length) moves = Arrays.copyOf(moves, 2 * moveCount);
+        moves[moveCount++] = pos;
+    }
+
+    private int find(int tile) {
+        int pos = 0;
+        while (board.getTileAt(pos) != tile) pos++;
+        return pos;
+    }
+
+    private int encode(int a, int b, int empty, boolean pair) {
+        return ((pair ? a * cells + b : a) * cells) + empty;
+    }
+
+    private int neighbour(int pos, int dir) {
+        int row = pos / cols + ROW_STEP[dir];
+        int col = pos % cols + COL_STEP[dir];
+        return row < 0 || row >= rows || col < 0 || col >= cols ? -1 : row * cols + col;
+    }
+
+    private void shuffleDirections() {
+        for (int i = directions.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = directions[i];
+            directions[i] = directions[j];
+            directions[j] = swap;
+        }
+    }
+
+    /**
+     * Gets how many passes the last solve completed
+     * @return pass count, at least 1 after a solvable board
+     */
+    public int getLastPasses() {
+        return lastPasses;
+    }
+
+    /**
+     * Gets the length of the first solution of the last solve, before any improvement
+     * @return move count of the first pass
+     */
+    public int getLastFirstLength() {
+        return lastFirstLength;
+    }
+
+    /**
+     * Gets the time the last solve took
+     * @return nanoseconds
+     */
+    public long getLastTimeNanos() {
+        return lastTimeNanos;
+    }
+
+    /**
+     * Solves seeded random boards and prints how the solutions improve
+     * Usage: java PuzzleReductionSolver [rows] [cols] [timeLimitMs] [puzzles]
+     */
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : PuzzleBoard.MAX_SIZE;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : rows;
+        long timeLimitMs = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_TIME_LIMIT_MS;
+        int puzzles = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        PuzzleReductionSolver solver = new PuzzleReductionSolver(611);
+        SplittableRandom random = new SplittableRandom(611);
+        for (int i = 1; i <= puzzles; i++) {
+            PuzzleBoard board = new PuzzleBoard(rows, cols, random.split());
+            int[] solution = solver.solve(board, timeLimitMs);
+            System.out.printf("Puzzle %d: first %d moves, best %d moves after %d passes in %.0f ms%n",
+                    i, solver.getLastFirstLength(), solution.length, solver.getLastPasses(),
+                    solver.getLastTimeNanos() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * PuzzleScrambler.java
+ * Scrambles sliding puzzles to an exact optimal distance from solved.
+ *
+ * Boards small enough for a PuzzleStateTable have every position listed by
+ * its distance, so a scramble is a uniform pick from the wanted distance.
+ *
+ * Larger boards use rejection sampling. A candidate is a walk of the wanted
+ * length from the solved board that moves a tile away from its home cell
+ * whenever it can. When every step did, the Manhattan distance equals the
+ * walk length, which proves the walk is a shortest path; otherwise the
+ * solver checks the candidate and it is kept only if no shorter solution
+ * exists. Candidates are tried in parallel batches, each with its own
+ * random split in order off one child of the caller's, and the first
+ * success in that order wins. The caller's random advances by one split
+ * per scramble whatever the batch size, so a sequence of scrambles from
+ * one random is the same on any core count.
+ * Distances near the largest a board allows are rarely hit by such walks,
+ * so sampling gives up after a time limit.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public final class PuzzleScrambler {
+    private static final long VERIFY_NODE_LIMIT = 1_000_000L;
+    // Sampling gives up after this long, so impossible requests fail in bounded time
+    private static final long SAMPLE_TIME_LIMIT_MS = 10_000;
+
+    private PuzzleScrambler() {
+        // static helpers only
+    }
+
+    /**
+     * Creates a board whose shortest solution is exactly the given number of moves
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param moves optimal distance from the solved board
+     * @param random source of the scramble
+     * @return scrambled board
+     * @throws IllegalArgumentException if no board of this size is that far from solved
+     * @throws IllegalStateException if a large board could not be scrambled that far
+     */
+    public static PuzzleBoard scramble(int rows, int cols, int moves, SplittableRandom random) {
+        if (moves < 0) {
+            throw new IllegalArgumentException("Scramble distance cannot be negative");
+        }
+        PuzzleStateTable table = PuzzleStateTable.get(rows, cols);
+        if (table != null) {
+            return table.randomAtDistance(moves, random);
+        }
+        return sample(rows, cols, moves, random);
+    }
+
+    /**
+     * Gets the largest optimal distance of any board of a size, if known
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return largest distance, or -1 for boards too large to list
+     */
+    public static int getMaxDistance(int rows, int cols) {
+        PuzzleStateTable table = PuzzleStateTable.get(rows, cols);
+        return table == null ? -1 : table.getMaxDistance();
+    }
+
+    /**
+     * Gets the cell next to pos in a direction (up, down, left, right)
+     * @return neighbouring position, or -1 at the edge of the board
+     */
+    private static int neighbour(int pos, int dir, int rows, int cols) {
+        int row = pos / cols;
+        int col = pos % cols;
+        switch (dir) {
+            case 0: return row > 0 ? pos - cols : -1;
+            case 1: return row < rows - 1 ? pos + cols : -1;
+            case 2: return col > 0 ? pos - 1 : -1;
+            default: return col < cols - 1 ? pos + 1 : -1;
+        }
+    }
+
+    private static PuzzleBoard sample(int rows, int cols, int moves, SplittableRandom random) {
+        int batch = 2 * Runtime.getRuntime().availableProcessors();
+        SplittableRandom source = random.split();
+        long deadline = System.nanoTime() + SAMPLE_TIME_LIMIT_MS * 1_000_000L;
+        while (System.nanoTime() < deadline) {
+            SplittableRandom[] randoms = new SplittableRandom[batch];
+            for (int i = 0; i < batch; i++) {
+                randoms[i] = source.split();
+            }
+            PuzzleBoard[] candidates = new PuzzleBoard[batch];
+            IntStream.range(0, batch).parallel()
+                    .forEach(i -> candidates[i] = tryCandidate(rows, cols, moves, randoms[i]));
+
+            for (PuzzleBoard candidate : candidates) {
+                if (candidate != null) return candidate;
+            }
+        }
+        throw new IllegalStateException("Could not scramble a " + rows + "x" + cols + " board to exactly "
+                + moves + " moves; try a smaller distance");
+    }
+
+    /**
+     * Walks away from the solved board, then checks the walk is a shortest path
+     * @return the scrambled board, or null if it is closer than moves to solved
+     */
+    private static PuzzleBoard tryCandidate(int rows, int cols, int moves, SplittableRandom random) {
+        PuzzleBoard board = PuzzleBoard.solved(rows, cols);
+        int[] away = new int[4];
+        int[] any = new int[4];
+        int previous = -1;
+
+        for (int step = 0; step < moves; step++) {
+            int empty = board.getEmptyPosition();
+            int awayCount = 0;
+            int anyCount = 0;
+            for (int dir = 0; dir < 4; dir++) {
+                int pos = neighbour(empty, dir, rows, cols);
+                if (pos < 0 || pos == previous) continue;
+                any[anyCount++] = pos;
+
+                int before = board.getManhattanDistance();
+                board.slideTileAt(pos);
+                if (board.getManhattanDistance() > before) away[awayCount++] = pos;
+                board.slideTileAt(empty);
+            }
+
+            int pos = awayCount > 0 ? away[random.nextInt(awayCount)] : any[random.nextInt(anyCount)];
+            board.slideTileAt(pos);
+            previous = empty;
+        }
+
+        // The Manhattan distance is a lower bound and the walk an upper bound
+        if (board.getManhattanDistance() == moves) return board;
+
+        PuzzleSolver solver = new PuzzleSolver(VERIFY_NODE_LIMIT);
+        if (solver.estimate(board) == moves) return board;
+        int[] solution = solver.solve(board);
+        return solution != null && solution.length == moves ? board : null;
+    }
+}
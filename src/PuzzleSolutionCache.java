@@ -0,0 +1,176 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PuzzleSolutionCache.java
+ * Remembers solved paths so repeated hints do not search again.
+ *
+ * Paths are keyed by PuzzleBoard.getStateHash, so an entry costs a long
+ * and a reference instead of a copy of the board. The cache is bounded by
+ * the number of moves it holds rather than by entries, since one 10x10
+ * path can outweigh hundreds of 3x3 ones. When it is full, entries are
+ * dropped either least recently used first or oldest first.
+ *
+ * A player who follows a hint lands on the next position of the cached
+ * path, so a hit also registers that position with the rest of the path.
+ * The suffix shares the original array; each entry is charged for the
+ * moves it can still hand out, which counts shared paths conservatively.
+ *
+ * All methods are synchronized, so one cache can serve several games or
+ * bots at once.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class PuzzleSolutionCache {
+    /** Default capacity in stored moves */
+    public static final long DEFAULT_CAPACITY = 1_000_000L;
+
+    /** Which entry makes room when the cache is full */
+    public enum Eviction {
+        LEAST_RECENTLY_USED,
+        OLDEST_FIRST
+    }
+
+    private final long capacity;
+    private final Eviction eviction;
+    // Iteration order is eviction order: access order for LRU, insertion order otherwise
+    private final LinkedHashMap<Long, Entry> entries;
+    private long size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a least recently used cache with the default capacity
+     */
+    public PuzzleSolutionCache() {
+        this(DEFAULT_CAPACITY, Eviction.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * Creates a cache
+     * @param capacity most moves to hold over all paths
+     * @param eviction which entries go first when the cache is full
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public PuzzleSolutionCache(long capacity, Eviction eviction) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.eviction = eviction;
+        this.entries = new LinkedHashMap<>(16, 0.75f, eviction == Eviction.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * A path and how much of it is already played
+     */
+    private static final class Entry {
+        final int[] path;
+        final int offset;
+
+        Entry(int[] path, int offset) {
+            this.path = path;
+            this.offset = offset;
+        }
+
+        long weight() {
+            // Solved boards still take a slot
+            return Math.max(1, path.length - offset);
+        }
+    }
+
+    /**
+     * Looks up a shortest solution
+     * @param board board to look up; it is not changed
+     * @return copy of the cached cell positions to slide, or null on a miss
+     */
+    public synchronized int[] get(PuzzleBoard board) {
+        Entry entry = entries.get(board.getStateHash());
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+
+        if (entry.offset < entry.path.length) {
+            PuzzleBoard next = new PuzzleBoard(board);
+            next.slideTileAt(entry.path[entry.offset]);
+            long key = next.getStateHash();
+            if (!entries.containsKey(key)) {
+                insert(key, new Entry(entry.path, entry.offset + 1));
+            }
+        }
+        return Arrays.copyOfRange(entry.path, entry.offset, entry.path.length);
+    }
+
+    /**
+     * Stores a shortest solution, replacing any path cached for the board
+     * @param board solved board; it is not changed
+     * @param solution cell positions to slide from that board
+     */
+    public synchronized void put(PuzzleBoard board, int[] solution) {
+        insert(board.getStateHash(), new Entry(solution.clone(), 0));
+    }
+
+    private void insert(long key, Entry entry) {
+        if (entry.weight() > capacity) return;
+
+        Entry old = entries.put(key, entry);
+        if (old != null) size -= old.weight();
+        size += entry.weight();
+
+        // The new entry is last in either order, so it is never the one dropped
+        Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while (size > capacity) {
+            size -= it.next().getValue().weight();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops every entry; the counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized int getEntryCount() { return entries.size(); }
+    /** @return moves currently held */
+    public synchronized long getSize() { return size; }
+    public long getCapacity() { return capacity; }
+    public Eviction getEviction() { return eviction; }
+
+    /**
+     * Gets the share of lookups that were hits
+     * @return hit rate between 0 and 1, or 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d/%d moves, %d hits, %d misses (%.1f%%), %d evictions",
+                entries.size(), size, capacity, hits, misses, 100 * getHitRate(), evictions);
+    }
+}
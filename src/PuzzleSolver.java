@@ -0,0 +1,436 @@
+/**
+ * PuzzleSolver.java
+ * Finds shortest solutions of the sliding puzzle with IDA*.
+ *
+ * IDA* runs depth-first searches with a growing bound on moves made plus
+ * estimated moves left, so it finds an optimal solution while only keeping
+ * the current path in memory. The estimate is the Manhattan distance plus
+ * linear conflicts: two tiles in their goal row (or column) but in the wrong
+ * order there cannot pass each other, so one of them has to leave the line
+ * and come back, costing two extra moves. Per line this counts the tiles
+ * that are not part of a longest correctly ordered subsequence.
+ *
+ * The search slides tiles on a copy of the board and back again. The board
+ * keeps the Manhattan distance up to date, and a slide can only change the
+ * conflicts of the tile's own goal line, and only when it enters or leaves
+ * it, so most nodes cost O(1), the rest O(size), and the search loop
+ * allocates nothing.
+ *
+ * When pattern database files exist for the board size (see
+ * PatternDatabase), the estimate is the larger of the above and the
+ * additive pattern database value, whose indexes are also kept up to date
+ * one slide at a time.
+ *
+ * Boards of 3x3 to 5x5 can also use walking distance (see WalkingDistance;
+ * projections of five lines of five need its table file): the solver
+ * follows the row and column projections of its board through the tables,
+ * one state step and one distance read per move, and the estimate becomes
+ * the larger of the above and the sum of both walking distances. An axis
+ * without a table counts its part of the Manhattan distance instead.
+ *
+ * Boards small enough for a PuzzleStateTable are not searched at all: the
+ * table already knows the distance of every position, so the solution is
+ * read off it one lookup per move.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class PuzzleSolver {
+    public static final long DEFAULT_NODE_LIMIT = 20_000_000L;
+    /** Returned by getHint when there is nothing to suggest */
+    public static final int NO_MOVE = -1;
+
+    private final long nodeLimit;
+    private final boolean useTables;
+    private final boolean useWalkingDistance;
+
+    // State of the running search
+    private PuzzleBoard board;
+    private int rows;
+    private int cols;
+    private int[] rowConflicts;
+    private int[] colConflicts;
+    private int conflicts;
+    private int[] path;
+    private int pathLength;
+    private int[] goalRow;
+    private int[] goalCol;
+    private int[] lineGoals;
+    private int[] runLengths;
+    private PatternDatabase database;
+    private int[] patternIndex;
+    private int excess;
+    // Walking distance: table and state per axis, or the axis' Manhattan part without a table
+    private WalkingDistance rowWalk;
+    private WalkingDistance colWalk;
+    private long rowWalkState;
+    private long colWalkState;
+    private int rowDistance;
+    private int colDistance;
+    private boolean walking;
+    private long nodes;
+    private boolean aborted;
+    private int nextBound;
+
+    // Results of the last search
+    private long lastNodes;
+    private long lastTimeNanos;
+
+    /**
+     * Creates a solver with the default node limit
+     */
+    public PuzzleSolver() {
+        this(DEFAULT_NODE_LIMIT);
+    }
+
+    /**
+     * Creates a solver that gives up after visiting the given number of nodes
+     * @param nodeLimit most positions to visit per solve
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public PuzzleSolver(long nodeLimit) {
+        this(nodeLimit, true);
+    }
+
+    /**
+     * Creates a solver that gives up after visiting the given number of nodes
+     * @param nodeLimit most positions to visit per solve
+     * @param useTables false to always search with the Manhattan distance and
+     *        linear conflicts only, ignoring state tables, pattern database
+     *        files and walking distance
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public PuzzleSolver(long nodeLimit, boolean useTables) {
+        this(nodeLimit, useTables, useTables);
+    }
+
+    /**
+     * Creates a solver that gives up after visiting the given number of nodes
+     * @param nodeLimit most positions to visit per solve
+     * @param useTables false to ignore state tables and pattern database files
+     * @param useWalkingDistance false to leave walking distance out of the estimate
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public PuzzleSolver(long nodeLimit, boolean useTables, boolean useWalkingDistance) {
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("Node limit must be positive");
+        }
+        this.nodeLimit = nodeLimit;
+        this.useTables = useTables;
+        this.useWalkingDistance = useWalkingDistance;
+    }
+
+    /**
+     * Finds a shortest solution; the board is left as it was
+     * @param start board to solve
+     * @return cell positions (row * cols + col) of the tiles to slide, in order,
+     *         or null if the node limit was reached first (or, on boards
+     *         with a state table, if the board cannot be solved)
+     */
+    public int[] solve(PuzzleBoard start) {
+        long startTime = System.nanoTime();
+        PuzzleStateTable table = useTables ? PuzzleStateTable.get(start.getRowCount(), start.getColCount()) : null;
+        if (table != null) {
+            int[] solution = table.solve(start);
+            lastNodes = solution == null ? 1 : solution.length + 1;
+            lastTimeNanos = System.nanoTime() - startTime;
+            return solution;
+        }
+        setUp(start);
+
+        int[] solution = null;
+        int bound = heuristic();
+        while (true) {
+            nextBound = Integer.MAX_VALUE;
+            if (search(0, bound, -1)) {
+                solution = new int[pathLength];
+                System.arraycopy(path, 0, solution, 0, solution.length);
+                break;
+            }
+            if (aborted || nextBound == Integer.MAX_VALUE) break;
+            bound = nextBound;
+        }
+
+        lastNodes = nodes;
+        lastTimeNanos = System.nanoTime() - startTime;
+        board = null;
+        database = null;
+        return solution;
+    }
+
+    /**
+     * Suggests the first move of a shortest solution
+     * @param start board to look at
+     * @return cell position of the tile to slide, or NO_MOVE if the board is
+     *         solved or no solution was found within the node limit
+     */
+    public int getHint(PuzzleBoard start) {
+        PuzzleStateTable table = useTables ? PuzzleStateTable.get(start.getRowCount(), start.getColCount()) : null;
+        if (table != null) return table.bestMove(start);
+        int[] solution = solve(start);
+        return solution == null || solution.length == 0 ? NO_MOVE : solution[0];
+    }
+
+    /**
+     * Gets the estimate the search uses for a board
+     * @param start board to estimate
+     * @return a lower bound on the moves left
+     */
+    public int estimate(PuzzleBoard start) {
+        setUp(start);
+        int h = heuristic();
+        board = null;
+        database = null;
+        return h;
+    }
+
+    private void setUp(PuzzleBoard start) {
+        board = new PuzzleBoard(start);
+        rows = board.getRowCount();
+        cols = board.getColCount();
+        rowConflicts = new int[rows];
+        colConflicts = new int[cols];
+        goalRow = new int[rows * cols];
+        goalCol = new int[rows * cols];
+        for (int tile = 1; tile < rows * cols; tile++) {
+            goalRow[tile] = (tile - 1) / cols;
+            goalCol[tile] = (tile - 1) % cols;
+        }
+        lineGoals = new int[Math.max(rows, cols)];
+        runLengths = new int[lineGoals.length];
+        // Optimal solutions of boards up to 10x10 stay well within this
+        path = new int[rows * cols * rows * cols];
+        pathLength = 0;
+        nodes = 0;
+        aborted = false;
+
+        conflicts = 0;
+        for (int r = 0; r < rows; r++) {
+            rowConflicts[r] = rowConflicts(r);
+            conflicts += rowConflicts[r];
+        }
+        for (int c = 0; c < cols; c++) {
+            colConflicts[c] = colConflicts(c);
+            conflicts += colConflicts[c];
+        }
+
+        database = useTables ? PatternDatabase.get(rows, cols) : null;
+        excess = 0;
+        if (database != null) {
+            patternIndex = new int[database.getPatternCount()];
+            for (int p = 0; p < patternIndex.length; p++) {
+                patternIndex[p] = database.index(board, p);
+                excess += database.excess(p, patternIndex[p]);
+            }
+        }
+
+        rowWalk = useWalkingDistance ? WalkingDistance.forRows(rows, cols) : null;
+        colWalk = useWalkingDistance ? WalkingDistance.forColumns(rows, cols) : null;
+        walking = rowWalk != null || colWalk != null;
+        if (walking) {
+            rowDistance = 0;
+            colDistance = 0;
+            for (int pos = 0; pos < rows * cols; pos++) {
+                int tile = board.getTileAt(pos);
+                if (tile == 0) continue;
+                rowDistance += Math.abs(pos / cols - goalRow[tile]);
+                colDistance += Math.abs(pos % cols - goalCol[tile]);
+            }
+            if (rowWalk != null) {
+                rowWalkState = rowWalk.stateOf(board, false);
+                rowDistance = rowWalk.distance(rowWalkState);
+            }
+            if (colWalk != null) {
+                colWalkState = colWalk.stateOf(board, true);
+                colDistance = colWalk.distance(colWalkState);
+            }
+        }
+    }
+
+    private int heuristic() {
+        int h = board.getManhattanDistance() + 2 * Math.max(conflicts, excess);
+        return walking ? Math.max(h, rowDistance + colDistance) : h;
+    }
+
+    /**
+     * Depth-first search below the bound, leaving the moves in path
+     * @param depth moves made so far
+     * @param bound largest allowed moves made plus estimate
+     * @param previousEmpty where the empty space was before the last move,
+     *        so that move is not undone right away
+     * @return true if a solution was found
+     */
+    private boolean search(int depth, int bound, int previousEmpty) {
+        nodes++;
+        int h = heuristic();
+        int f = depth + h;
+        if (f > bound) {
+            if (f < nextBound) nextBound = f;
+            return false;
+        }
+        if (h == 0) {
+            pathLength = depth;
+            return true;
+        }
+        if (nodes >= nodeLimit) {
+            aborted = true;
+            return false;
+        }
+
+        int empty = board.getEmptyPosition();
+        int emptyRow = empty / cols;
+        int emptyCol = empty % cols;
+        for (int dir = 0; dir < 4; dir++) {
+            int pos;
+            switch (dir) {
+                case 0: if (emptyRow == 0) continue; pos = empty - cols; break;
+                case 1: if (emptyRow == rows - 1) continue; pos = empty + cols; break;
+                case 2: if (emptyCol == 0) continue; pos = empty - 1; break;
+                default: if (emptyCol == cols - 1) continue; pos = empty + 1; break;
+            }
+            if (pos == previousEmpty) continue;
+
+            // The tile changes line across the direction it moves in; only
+            // its own goal line can gain or lose conflicts
+            boolean vertical = dir < 2;
+            int tile = board.getTileAt(pos);
+            int line = vertical ? goalRow[tile] : goalCol[tile];
+            int from = vertical ? pos / cols : pos % cols;
+            int to = vertical ? emptyRow : emptyCol;
+            boolean changes = line == from || line == to;
+            int saved = 0;
+
+            board.slideTileAt(pos);
+            if (changes) {
+                saved = vertical ? rowConflicts[line] : colConflicts[line];
+                int updated = vertical ? rowConflicts(line) : colConflicts(line);
+                if (vertical) rowConflicts[line] = updated;
+                else colConflicts[line] = updated;
+                conflicts += updated - saved;
+            }
+            int pattern = -1;
+            int savedIndex = 0;
+            int savedExcess = 0;
+            if (database != null && (pattern = database.getPatternOf(tile)) >= 0) {
+                savedIndex = patternIndex[pattern];
+                savedExcess = database.excess(pattern, savedIndex);
+                patternIndex[pattern] += database.indexChange(board, tile, pos, empty);
+                excess += database.excess(pattern, patternIndex[pattern]) - savedExcess;
+            }
+            long savedWalkState = 0;
+            int savedDistance = 0;
+            if (walking) {
+                // The tile moves from line 'from' into the empty space's line 'to'
+                WalkingDistance walk = vertical ? rowWalk : colWalk;
+                int goal = vertical ? goalRow[tile] : goalCol[tile];
+                savedDistance = vertical ? rowDistance : colDistance;
+                int updated;
+                if (walk != null) {
+                    savedWalkState = vertical ? rowWalkState : colWalkState;
+                    long state = walk.next(savedWalkState, from > to, goal);
+                    if (vertical) rowWalkState = state;
+                    else colWalkState = state;
+                    updated = walk.distance(state);
+                } else {
+                    updated = savedDistance + Math.abs(to - goal) - Math.abs(from - goal);
+                }
+                if (vertical) rowDistance = updated;
+                else colDistance = updated;
+            }
+            path[depth] = pos;
+
+            if (search(depth + 1, bound, empty)) return true;
+
+            board.slideTileAt(empty);
+            if (walking) {
+                if (vertical) {
+                    rowDistance = savedDistance;
+                    rowWalkState = savedWalkState;
+                } else {
+                    colDistance = savedDistance;
+                    colWalkState = savedWalkState;
+                }
+            }
+            if (pattern >= 0) {
+                excess += savedExcess - database.excess(pattern, patternIndex[pattern]);
+                patternIndex[pattern] = savedIndex;
+            }
+            if (changes) {
+                conflicts += saved - (vertical ? rowConflicts[line] : colConflicts[line]);
+                if (vertical) rowConflicts[line] = saved;
+                else colConflicts[line] = saved;
+            }
+            if (aborted) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Conflicts in a row: tiles whose goal is in the row, minus the longest
+     * run of them already in increasing goal column order
+     */
+    private int rowConflicts(int r) {
+        int count = 0;
+        for (int c = 0; c < cols; c++) {
+            int tile = board.getTileAt(r * cols + c);
+            if (tile != 0 && goalRow[tile] == r) {
+                lineGoals[count++] = goalCol[tile];
+            }
+        }
+        return count - longestIncreasing(count);
+    }
+
+    private int colConflicts(int c) {
+        int count = 0;
+        for (int r = 0; r < rows; r++) {
+            int tile = board.getTileAt(r * cols + c);
+            if (tile != 0 && goalCol[tile] == c) {
+                lineGoals[count++] = goalRow[tile];
+            }
+        }
+        return count - longestIncreasing(count);
+    }
+
+    /**
+     * Length of the longest increasing subsequence of lineGoals[0..count)
+     */
+    private int longestIncreasing(int count) {
+        if (count < 2) return count;
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            int length = 1;
+            for (int j = 0; j < i; j++) {
+                if (lineGoals[j] < lineGoals[i] && runLengths[j] + 1 > length) {
+                    length = runLengths[j] + 1;
+                }
+            }
+            runLengths[i] = length;
+            if (length > best) best = length;
+        }
+        return best;
+    }
+
+    /**
+     * Gets the positions visited by the last solve
+     * @return node count
+     */
+    public long getLastNodes() {
+        return lastNodes;
+    }
+
+    /**
+     * Gets how long the last solve took
+     * @return time in nanoseconds
+     */
+    public long getLastTimeNanos() {
+        return lastTimeNanos;
+    }
+
+    /**
+     * Gets the search speed of the last solve
+     * @return nodes per second
+     */
+    public double getLastNodesPerSecond() {
+        return lastTimeNanos == 0 ? 0 : lastNodes / (lastTimeNanos / 1e9);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * PuzzleSolverBenchmark.java
+ *
+ * Measures the sliding puzzle solver. A fixed set of seeded puzzles is
+ * solved one after another, and the solution length, nodes, time and node
+ * rate are printed for each, followed by the averages. Pattern database
+ * files are used when present (build them with java PatternDatabase).
+ * Each puzzle is also solved without walking distance, to show how many
+ * nodes the walking distance tables save.
+ *
+ * Usage: java PuzzleSolverBenchmark [puzzles] [rows] [cols] [nodeLimit]
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public class PuzzleSolverBenchmark {
+    private static final long SEED = 611L;
+
+    public static void main(String[] args) {
+        int puzzleCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        long nodeLimit = args.length > 3 ? Long.parseLong(args[3]) : 1_000_000_000L;
+
+        PuzzleSolver solver = new PuzzleSolver(nodeLimit);
+        PuzzleSolver withoutWalking = new PuzzleSolver(nodeLimit, true, false);
+        ColorPrinter.printlnCyan("Sliding puzzle solver: " + puzzleCount + " puzzles, " +
+                rows + "x" + cols + ", node limit " + nodeLimit + ", pattern databases " +
+                (PatternDatabase.get(rows, cols) != null ? "loaded" : "not found") + ", walking distance " +
+                (WalkingDistance.forRows(rows, cols) != null || WalkingDistance.forColumns(rows, cols) != null
+                        ? "used" : "not available"));
+        System.out.printf("%6s %8s %14s %12s %14s %14s%n",
+                "puzzle", "moves", "nodes", "time (ms)", "nodes/sec", "nodes w/o WD");
+
+        long nodes = 0;
+        long nanos = 0;
+        long nodesWithoutWalking = 0;
+        int solved = 0;
+        for (int i = 0; i < puzzleCount; i++) {
+            PuzzleBoard board = new PuzzleBoard(rows, cols, SEED + i);
+            int[] solution = solver.solve(board);
+            nodes += solver.getLastNodes();
+            nanos += solver.getLastTimeNanos();
+            if (solution != null) solved++;
+            withoutWalking.solve(board);
+            nodesWithoutWalking += withoutWalking.getLastNodes();
+
+            System.out.printf("%6d %8s %14d %12.1f %14.0f %14d%n", i,
+                    solution == null ? "-" : String.valueOf(solution.length),
+                    solver.getLastNodes(), solver.getLastTimeNanos() / 1e6,
+                    solver.getLastNodesPerSecond(), withoutWalking.getLastNodes());
+        }
+
+        System.out.printf("Solved %d of %d, average %.1f ms and %d nodes per puzzle, %.0f nodes/sec%n",
+                solved, puzzleCount, nanos / 1e6 / puzzleCount, nodes / puzzleCount,
+                nodes / (nanos / 1e9));
+        System.out.printf("Walking distance: %d nodes per puzzle without it, %.1f%% fewer with it%n",
+                nodesWithoutWalking / puzzleCount,
+                100.0 * (nodesWithoutWalking - nodes) / Math.max(1, nodesWithoutWalking));
+    }
+}
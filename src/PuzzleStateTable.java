@@ -0,0 +1,266 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PuzzleStateTable.java
+ * Exact distances for every position of a small sliding puzzle.
+ *
+ * Boards of up to MAX_CELLS cells (2x2, 2x3, 2x4, 3x3, 2x5 and their
+ * transposes) have at most 10! arrangements, few enough to store them all.
+ * An arrangement of tiles is numbered by its Lehmer code: for each cell,
+ * count the later cells holding a smaller number, and read those counts as
+ * digits of a factorial number system. That gives a perfect hash onto
+ * 0 .. cells! - 1, so one byte per arrangement holds its distance from
+ * solved (UNREACHABLE for the unsolvable half).
+ *
+ * The table is filled by one breadth-first search from the solved board
+ * the first time a size is asked for, and shared by every thread after
+ * that. The distance of a board is then one lookup, and its best move is
+ * the neighbour one step closer, so hints and full solutions cost next to
+ * nothing. The ranks are also sorted by distance, so a random board at an
+ * exact distance is one random pick.
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.0
+ */
+public final class PuzzleStateTable {
+    /** Largest board that gets a table */
+    public static final int MAX_CELLS = 10;
+    /** Distance of arrangements that cannot be solved */
+    public static final int UNREACHABLE = 0xFF;
+
+    private static final ConcurrentHashMap<Integer, PuzzleStateTable> TABLES = new ConcurrentHashMap<>();
+
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    // distances[rank] as an unsigned byte
+    private final byte[] distances;
+    // Ranks of solvable arrangements sorted by distance; distance d starts at layerStart[d]
+    private final int[] ranksByDistance;
+    private final int[] layerStart;
+
+    private PuzzleStateTable(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = rows * cols;
+
+        int total = factorial(cells);
+        distances = new byte[total];
+        Arrays.fill(distances, (byte) UNREACHABLE);
+
+        // The queue of a breadth-first search is already sorted by distance
+        int[] queue = new int[total / 2];
+        int[] tiles = new int[cells];
+        int start = rank(PuzzleBoard.solved(rows, cols));
+        distances[start] = 0;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+        int maxDistance = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            int next = (distances[state] & 0xFF) + 1;
+            unrank(state, tiles);
+            int empty = 0;
+            while (tiles[empty] != 0) empty++;
+
+            for (int dir = 0; dir < 4; dir++) {
+                int pos = neighbour(empty, dir);
+                if (pos < 0) continue;
+                tiles[empty] = tiles[pos];
+                tiles[pos] = 0;
+                int moved = rank(tiles);
+                tiles[pos] = tiles[empty];
+                tiles[empty] = 0;
+
+                if ((distances[moved] & 0xFF) == UNREACHABLE) {
+                    distances[moved] = (byte) next;
+                    queue[tail++] = moved;
+                    maxDistance = next;
+                }
+            }
+        }
+
+        ranksByDistance = queue;
+        layerStart = new int[maxDistance + 2];
+        for (int i = 0, d = 0; i <= tail; i++) {
+            int distance = i < tail ? distances[queue[i]] & 0xFF : maxDistance + 1;
+            while (d <= distance) layerStart[d++] = i;
+        }
+    }
+
+    /**
+     * Gets the shared table for a board size, building it on first use
+     * (a few seconds for 2x5, well under a second for 3x3)
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the table, or null if the board has more than MAX_CELLS cells
+     */
+    public static PuzzleStateTable get(int rows, int cols) {
+        if (rows * cols > MAX_CELLS) return null;
+        return TABLES.computeIfAbsent(rows * (PuzzleBoard.MAX_SIZE + 1) + cols,
+                key -> new PuzzleStateTable(rows, cols));
+    }
+
+    /**
+     * Numbers an arrangement by its Lehmer code
+     * @param tiles a permutation of 0 .. length - 1
+     * @return rank between 0 and length! - 1
+     */
+    public static int rank(int[] tiles) {
+        int rank = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int smaller = 0;
+            for (int j = i + 1; j < tiles.length; j++) {
+                if (tiles[j] < tiles[i]) smaller++;
+            }
+            rank = rank * (tiles.length - i) + smaller;
+        }
+        return rank;
+    }
+
+    /**
+     * Rebuilds the arrangement with a given rank
+     * @param rank Lehmer rank
+     * @param tiles filled with the permutation; its length sets the size
+     */
+    public static void unrank(int rank, int[] tiles) {
+        int n = tiles.length;
+        // Factorial digits, last cell first
+        for (int i = n - 1; i >= 0; i--) {
+            tiles[i] = rank % (n - i);
+            rank /= n - i;
+        }
+        // Digit i picks the digit-th smallest number not used yet
+        int unused = (1 << n) - 1;
+        for (int i = 0; i < n; i++) {
+            int pick = unused;
+            for (int skip = tiles[i]; skip > 0; skip--) pick &= pick - 1;
+            int value = Integer.numberOfTrailingZeros(pick);
+            tiles[i] = value;
+            unused &= ~(1 << value);
+        }
+    }
+
+    private int rank(PuzzleBoard board) {
+        int[] tiles = new int[cells];
+        for (int pos = 0; pos < cells; pos++) {
+            tiles[pos] = board.getTileAt(pos);
+        }
+        return rank(tiles);
+    }
+
+    private static int factorial(int n) {
+        int result = 1;
+        for (int i = 2; i <= n; i++) result *= i;
+        return result;
+    }
+
+    private int neighbour(int pos, int dir) {
+        int row = pos / cols;
+        int col = pos % cols;
+        switch (dir) {
+            case 0: return row > 0 ? pos - cols : -1;
+            case 1: return row < rows - 1 ? pos + cols : -1;
+            case 2: return col > 0 ? pos - 1 : -1;
+            default: return col < cols - 1 ? pos + 1 : -1;
+        }
+    }
+
+    private void checkBoard(PuzzleBoard board) {
+        if (board.getRowCount() != rows || board.getColCount() != cols) {
+            throw new IllegalArgumentException("Table is for " + rows + "x" + cols + " boards");
+        }
+    }
+
+    /**
+     * Gets the optimal distance of a board from solved
+     * @param board board to look up
+     * @return moves in a shortest solution, or UNREACHABLE if there is none
+     * @throws IllegalArgumentException if the board has a different size
+     */
+    public int distance(PuzzleBoard board) {
+        checkBoard(board);
+        return distances[rank(board)] & 0xFF;
+    }
+
+    /**
+     * Gets the first move of a shortest solution
+     * @param board board to look up
+     * @return cell position of the tile to slide, or -1 if the board is
+     *         solved or cannot be solved
+     * @throws IllegalArgumentException if the board has a different size
+     */
+    public int bestMove(PuzzleBoard board) {
+        int distance = distance(board);
+        if (distance == 0 || distance == UNREACHABLE) return -1;
+
+        int empty = board.getEmptyPosition();
+        PuzzleBoard next = new PuzzleBoard(board);
+        for (int dir = 0; dir < 4; dir++) {
+            int pos = neighbour(empty, dir);
+            if (pos < 0) continue;
+            next.slideTileAt(pos);
+            if ((distances[rank(next)] & 0xFF) == distance - 1) return pos;
+            next.slideTileAt(empty);
+        }
+        throw new IllegalStateException("Distance table is inconsistent");
+    }
+
+    /**
+     * Gets a shortest solution by following best moves
+     * @param board board to solve; it is not changed
+     * @return cell positions of the tiles to slide, or null if the board cannot be solved
+     * @throws IllegalArgumentException if the board has a different size
+     */
+    public int[] solve(PuzzleBoard board) {
+        int distance = distance(board);
+        if (distance == UNREACHABLE) return null;
+
+        int[] solution = new int[distance];
+        PuzzleBoard current = new PuzzleBoard(board);
+        for (int i = 0; i < distance; i++) {
+            solution[i] = bestMove(current);
+            current.slideTileAt(solution[i]);
+        }
+        return solution;
+    }
+
+    /**
+     * Gets the largest distance any board of this size has from solved
+     * @return largest optimal distance
+     */
+    public int getMaxDistance() {
+        return layerStart.length - 2;
+    }
+
+    /**
+     * Gets how many boards are exactly a given distance from solved
+     * @param distance optimal distance
+     * @return number of boards
+     */
+    public int countAtDistance(int distance) {
+        if (distance < 0 || distance > getMaxDistance()) return 0;
+        return layerStart[distance + 1] - layerStart[distance];
+    }
+
+    /**
+     * Picks a uniformly random board at an exact distance from solved
+     * @param distance optimal distance
+     * @param random source of the pick
+     * @return new board
+     * @throws IllegalArgumentException if no board is that far from solved
+     */
+    public PuzzleBoard randomAtDistance(int distance, SplittableRandom random) {
+        int count = countAtDistance(distance);
+        if (count == 0) {
+            throw new IllegalArgumentException("No " + rows + "x" + cols + " board is " + distance +
+                    " moves from solved (the most is " + getMaxDistance() + ")");
+        }
+        int[] tiles = new int[cells];
+        unrank(ranksByDistance[layerStart[distance] + random.nextInt(count)], tiles);
+        return new PuzzleBoard(rows, cols, tiles);
+    }
+}
@@ -1,18 +1,42 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
 /**
  * SlidingPuzzleGame.java
  * Manages the game flow for a single Sliding Puzzle game.
- * Handles player moves and win detection.
+ * Handles player moves and win detection. A headless game takes its moves
+ * from a PuzzleMoveSource and prints and reads nothing, so simulations can
+ * run many games in a row. Every move can be recorded into a game record
+ * file (see GameRecord).
  *
  * @author Priyanshu and Lyu
- * @version 1.0
+ * @version 1.2
  */
 public class SlidingPuzzleGame {
+    // Shared by every game, so hints survive play-again and revisited positions
+    private static final PuzzleSolutionCache SOLUTION_CACHE = new PuzzleSolutionCache();
+    // Larger boards get a short solution instead of searching for the shortest
+    private static final int OPTIMAL_SOLVE_CELLS = 16;
+    private static final long SHORT_SOLVE_TIME_MS = 2_000L;
+
     private PuzzleBoard board;
     private int movesMade;
     private InputHandler inputHandler;
     private boolean gameActive;
     private String playerName;
     private PlayerStatistics statistics;  // ADD THIS LINE
+    private PuzzleSolver solver;
+    private PuzzleReductionSolver reductionSolver;
+    private int scrambleMoves;
+    private boolean autoSolved;
+    private boolean solutionWasCached;
+    private boolean solutionIsShortest;
+    // Headless games only: where the moves come from, and how many to allow
+    private PuzzleMoveSource moveSource;
+    private int moveLimit;
+    private Path recordFile;
+    private GameRecordWriter recorder;
 
     /**
      * Constructor - creates a new puzzle game
@@ -22,35 +46,118 @@ public class SlidingPuzzleGame {
      * @param statistics statistics tracker
      */
     public SlidingPuzzleGame(int rows, int cols, String playerName, PlayerStatistics statistics) {
-        this.board = new PuzzleBoard(rows, cols);
+        this(rows, cols, 0, playerName, statistics);
+    }
+
+    /**
+     * Creates a game whose puzzle is an exact number of moves from solved
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param scrambleMoves optimal solution length, or 0 for a fully random puzzle
+     * @param playerName name of the player
+     * @param statistics statistics tracker
+     * @throws IllegalArgumentException if no puzzle of that size is that far from solved
+     * @throws IllegalStateException if such a puzzle could not be generated in time
+     */
+    public SlidingPuzzleGame(int rows, int cols, int scrambleMoves, String playerName,
+                             PlayerStatistics statistics) {
+        this.board = scrambleMoves > 0
+                ? PuzzleBoard.scrambled(rows, cols, scrambleMoves, new SplittableRandom())
+                : new PuzzleBoard(rows, cols);
+        this.scrambleMoves = scrambleMoves;
         this.movesMade = 0;
         this.inputHandler = new InputHandler();
         this.gameActive = true;
         this.playerName = playerName;
         this.statistics = statistics;  // ADD THIS LINE
+        this.solver = new PuzzleSolver();
+        this.reductionSolver = new PuzzleReductionSolver();
+        this.autoSolved = false;
+    }
+
+    /**
+     * Creates a headless game on a copy of a board
+     * @param board puzzle to play, left unchanged
+     * @param moveSource player that supplies every move
+     * @param moveLimit moves after which the player gives up
+     * @param playerName name the result is recorded under
+     * @param statistics statistics tracker
+     * @throws IllegalArgumentException if the move limit is negative
+     */
+    public SlidingPuzzleGame(PuzzleBoard board, PuzzleMoveSource moveSource, int moveLimit,
+                             String playerName, PlayerStatistics statistics) {
+        if (moveLimit < 0) {
+            throw new IllegalArgumentException("Move limit cannot be negative: " + moveLimit);
+        }
+        this.board = new PuzzleBoard(board);
+        this.moveSource = moveSource;
+        this.moveLimit = moveLimit;
+        this.gameActive = true;
+        this.playerName = playerName;
+        this.statistics = statistics;
     }
 
     /**
      * Main game loop
      */
     public void play() {
+        if (moveSource != null) {
+            playHeadless();
+            return;
+        }
+        // An incremental redraw clears the screen, so pin the board before the introduction
+        if (FrameRenderer.isIncrementalByDefault()) board.display();
         displayGameStart();
 
-        while (gameActive && !board.isSolved()) {
-            board.display();
-            displayStatus();
+        startRecording();
+        try {
+            while (gameActive && !board.isSolved()) {
+                board.display();
+                displayStatus();
 
-            if (!makeMove()) {
-                // Game was quit or error occurred
-                if (!gameActive) break;
+                if (!makeMove()) {
+                    // Game was quit or error occurred
+                    if (!gameActive) break;
+                }
             }
+        } finally {
+            stopRecording();
         }
 
-        if (gameActive && board.isSolved()) {
+        if (gameActive && autoSolved) {
+            handleAutoSolve();
+        } else if (gameActive && board.isSolved()) {
             handleWin();
         } else {
             handleQuit();
         }
+        board.releaseDisplay();
+    }
+
+    /**
+     * Plays the moves of the move source until the puzzle is solved, the
+     * source gives up or the move limit is reached; only a solved puzzle
+     * is recorded
+     * @throws IllegalStateException if the source picks a tile that cannot slide
+     */
+    private void playHeadless() {
+        startRecording();
+        try {
+            while (!board.isSolved() && movesMade < moveLimit) {
+                int pos = moveSource.chooseMove(board);
+                if (pos == PuzzleSolver.NO_MOVE) break;
+                if (!board.slideTileAt(pos)) {
+                    throw new IllegalStateException(playerName + " chose a tile that cannot slide: " + pos);
+                }
+                recordMove(pos);
+                movesMade++;
+            }
+        } finally {
+            stopRecording();
+        }
+        if (board.isSolved()) {
+            statistics.recordPuzzleGame(playerName, movesMade);
+        }
     }
 
     /**
@@ -62,11 +169,15 @@ public class SlidingPuzzleGame {
         ColorPrinter.printlnCyan("╚═══════════════════════════════════════╝");
         System.out.println("Player: " + playerName);
         System.out.println("Board size: " + board.getRowCount() + " x " + board.getColCount());
+        if (scrambleMoves > 0) {
+            System.out.println("Difficulty: solvable in " + scrambleMoves + " moves");
+        }
         ColorPrinter.printlnYellow("\nHow to play:");
         System.out.println("- Enter the row and column of the tile you want to move");
         System.out.println("- Only tiles adjacent to the empty space can move");
         System.out.println("- Arrange tiles in order from 1 to " +
                 ((board.getRowCount() * board.getColCount()) - 1));
+        System.out.println("- Type 'hint' for a suggested move, or 'solve' to let the computer finish");
         System.out.println("- Type 'quit' anytime to exit");
         System.out.println();
     }
@@ -88,16 +199,33 @@ public class SlidingPuzzleGame {
     private boolean makeMove() {
         System.out.println("Enter tile position to move:");
 
-        int row = inputHandler.getIntInRange(
-                "Row (0-" + (board.getRowCount() - 1) + "): ",
-                0,
-                board.getRowCount() - 1
-        );
+        String input = inputHandler.getString(
+                "Row (0-" + (board.getRowCount() - 1) + "), 'hint' or 'solve': ").toLowerCase();
 
-        if (row == -1) {
+        if (input.equals("quit") || input.equals("q")) {
             gameActive = false;
             return false;
         }
+        if (input.equals("hint") || input.equals("h")) {
+            showHint();
+            return true;
+        }
+        if (input.equals("solve")) {
+            autoSolve();
+            return true;
+        }
+
+        int row;
+        try {
+            row = Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            ColorPrinter.printlnRed("Invalid input. Please enter a row number, 'hint', 'solve' or 'quit'.");
+            return true;
+        }
+        if (row < 0 || row >= board.getRowCount()) {
+            ColorPrinter.printlnRed("Please enter a number between 0 and " + (board.getRowCount() - 1) + ".");
+            return true;
+        }
 
         int col = inputHandler.getIntInRange(
                 "Col (0-" + (board.getColCount() - 1) + "): ",
@@ -111,6 +239,7 @@ public class SlidingPuzzleGame {
         }
 
         if (board.slideTile(row, col)) {
+            recordMove(row * board.getColCount() + col);
             movesMade++;
             ColorPrinter.printlnGreen("✓ Tile moved!");
             return true;
@@ -120,6 +249,160 @@ public class SlidingPuzzleGame {
         }
     }
 
+    /**
+     * Shows the first move of a shortest solution, or of a short one on large boards
+     */
+    private void showHint() {
+        ColorPrinter.printlnCyan("Thinking...");
+        int[] solution = findSolution();
+
+        if (solution == null) {
+            ColorPrinter.printlnYellow("No hint found - this board cannot be solved.");
+            return;
+        }
+        int pos = solution[0];
+        ColorPrinter.printlnGreen("Hint: move tile " + board.getTileAt(pos) +
+                " at row " + pos / board.getColCount() + ", col " + pos % board.getColCount() +
+                (solutionIsShortest ? " (solvable in " : " (on a path of ") + solution.length + " moves)");
+    }
+
+    /**
+     * Lets the solver finish the puzzle; the result is not recorded as a win
+     */
+    private void autoSolve() {
+        ColorPrinter.printlnCyan("Solving...");
+        int[] solution = findSolution();
+
+        if (solution == null) {
+            ColorPrinter.printlnYellow("No solution found - this board cannot be solved.");
+            return;
+        }
+        StringBuilder tiles = new StringBuilder();
+        for (int pos : solution) {
+            tiles.append(board.getTileAt(pos)).append(' ');
+            board.slideTileAt(pos);
+            recordMove(pos);
+        }
+        ColorPrinter.printlnGreen("Solved in " + solution.length + " moves: " + tiles.toString().trim());
+        if (solutionWasCached) {
+            System.out.println("(reused a cached solution)");
+        } else if (!solutionIsShortest) {
+            System.out.printf("(not the shortest; best of %d passes in %.0f ms)%n",
+                    reductionSolver.getLastPasses(), reductionSolver.getLastTimeNanos() / 1e6);
+        } else {
+            System.out.printf("(%d positions searched in %.0f ms)%n",
+                    solver.getLastNodes(), solver.getLastTimeNanos() / 1e6);
+        }
+        autoSolved = true;
+    }
+
+    /**
+     * Gets a solution from the shared cache, solving on a miss. Boards of up
+     * to OPTIMAL_SOLVE_CELLS cells get a shortest solution; larger ones, and
+     * those the optimal solver gives up on, get the best the reduction
+     * solver finds in SHORT_SOLVE_TIME_MS. Only one kind of solution is
+     * cached per board size, so a cached path is shortest exactly when the
+     * board is small enough.
+     * @return cell positions to slide, or null if the board cannot be solved
+     */
+    private int[] findSolution() {
+        boolean small = board.getRowCount() * board.getColCount() <= OPTIMAL_SOLVE_CELLS;
+        int[] solution = SOLUTION_CACHE.get(board);
+        solutionWasCached = solution != null;
+        solutionIsShortest = small;
+        if (solution != null) return solution;
+
+        if (small) {
+            solution = solver.solve(board);
+            if (solution != null) {
+                SOLUTION_CACHE.put(board, solution);
+                return solution;
+            }
+        }
+        solutionIsShortest = false;
+        solution = reductionSolver.solve(board, SHORT_SOLVE_TIME_MS);
+        if (solution != null && !small) SOLUTION_CACHE.put(board, solution);
+        return solution;
+    }
+
+    /**
+     * Gets the solution cache shared by all games, e.g. to read its counters
+     * @return shared cache
+     */
+    public static PuzzleSolutionCache getSolutionCache() {
+        return SOLUTION_CACHE;
+    }
+
+    /**
+     * Records the moves of this game into a file instead of a new file in
+     * the record directory (see GameRecordWriter.setDirectory)
+     * @param file record to write when the game is played
+     */
+    public void setRecordFile(Path file) {
+        this.recordFile = file;
+    }
+
+    /**
+     * Opens the game record, if this game is to be recorded
+     */
+    private void startRecording() {
+        try {
+            Path file = recordFile;
+            if (file == null) {
+                if (GameRecordWriter.getDirectory() == null) return;
+                file = GameRecordWriter.newFile("puzzle");
+            }
+            recorder = GameRecordWriter.forPuzzle(file, board, playerName, GameRecord.DEFAULT_CHECKPOINT_INTERVAL);
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    private void recordMove(int pos) {
+        if (recorder == null) return;
+        try {
+            recorder.recordMove(pos);
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    private void stopRecording() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+            recorder = null;
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    /**
+     * Stops a headless game, or lets an interactive one go on unrecorded
+     */
+    private void recordingFailed(IOException e) {
+        GameRecordWriter failed = recorder;
+        recorder = null;
+        if (failed != null) {
+            try {
+                failed.close();
+            } catch (IOException ignored) {
+                // Already reporting the first failure
+            }
+        }
+        if (moveSource != null) throw new IllegalStateException("Could not write the game record", e);
+        ColorPrinter.printlnRed("Could not write the game record, recording stopped: " + e.getMessage());
+    }
+
+    /**
+     * Handles a puzzle finished by the solver
+     */
+    private void handleAutoSolve() {
+        board.display();
+        ColorPrinter.printlnYellow("Puzzle finished by the computer after " + movesMade +
+                " moves of your own - not recorded in the statistics.");
+    }
+
     /**
      * Handles winning the game
      */
@@ -142,6 +425,7 @@ public class SlidingPuzzleGame {
                 SlidingPuzzleGame newGame = new SlidingPuzzleGame(
                         board.getRowCount(),
                         board.getColCount(),
+                        scrambleMoves,
                         playerName,
                         statistics  // Pass statistics to new game
                 );
@@ -170,4 +454,12 @@ public class SlidingPuzzleGame {
     public int getMovesMade() {
         return movesMade;
     }
+
+    /**
+     * Checks whether the puzzle has been solved
+     * @return true if the board is in order
+     */
+    public boolean isSolved() {
+        return board.isSolved();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TranspositionTable.java
+ *
+ * Fixed-size hash table of search results for the Dots and Boxes AI.
+ * Entries are stored in two long arrays (key and packed data), so the
+ * table never allocates after construction and its memory use is fixed.
+ *
+ * The table can be shared by several search threads without locks. Each
+ * slot stores key XOR data next to the data; a reader recomputes the key
+ * from the two words, so an entry torn by a concurrent write simply fails
+ * to match and is treated as a miss.
+ *
+ * Each bucket has two slots with different replacement policies:
+ * - slot 0 keeps the deepest result, and is only overwritten by a search at
+ *   least as deep or by a result from a newer search;
+ * - slot 1 is always overwritten, so recent positions are still cached
+ *   when slot 0 is holding on to an expensive entry.
+ *
+ * Packed data layout (an all-zero word means "empty"):
+ * bits 0-30 best move, 31-46 value + 32768, 47-54 depth, 55-56 bound,
+ * 57-63 search generation.
+ *
+ * Author: Priyanshu & Lyu
+ * Version: 1.0
+ */
+public class TranspositionTable {
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int NO_MOVE_BITS = 0x7FFFFFFF;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray data;
+    private final int bucketMask;
+    private volatile int generation;
+
+    /**
+     * Creates a table using about the given amount of memory
+     * @param megabytes memory budget, rounded down to a power-of-two bucket count
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+        long entries = (long) megabytes * 1024 * 1024 / ENTRY_BYTES;
+        int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 28));
+
+        keys = new AtomicLongArray(buckets * 2);
+        data = new AtomicLongArray(buckets * 2);
+        bucketMask = buckets - 1;
+        generation = 1;
+    }
+
+    /**
+     * Starts a new search generation so older entries become preferred victims
+     */
+    public void newSearch() {
+        generation = (generation % 127) + 1;
+    }
+
+    /**
+     * Drops every entry. Must not run while a search is using the table.
+     */
+    public void clear() {
+        for (int i = 0; i < data.length(); i++) {
+            keys.setOpaque(i, 0L);
+            data.setOpaque(i, 0L);
+        }
+    }
+
+    /**
+     * Looks up a position
+     * @param key position hash
+     * @return packed entry, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int slot = (int) (key & bucketMask) << 1;
+        for (int i = slot; i <= slot + 1; i++) {
+            long entry = data.getOpaque(i);
+            if (entry != 0 && (keys.getOpaque(i) ^ entry) == key) return entry;
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a search result
+     * @param key position hash
+     * @param move best move found, or DotsAndBoxesMove.NO_MOVE
+     * @param value search value (-32768 to 32767)
+     * @param depth remaining search depth of the result
+     * @param bound BOUND_EXACT, BOUND_LOWER or BOUND_UPPER
+     */
+    public void store(long key, int move, int value, int depth, int bound) {
+        int slot = (int) (key & bucketMask) << 1;
+        long entry = pack(move, value, depth, bound);
+
+        long deep = data.getOpaque(slot);
+        boolean sameKey = (keys.getOpaque(slot) ^ deep) == key;
+        if (sameKey || deep == 0 || depthOf(deep) <= depth
+                || generationOf(deep) != generation) {
+            write(slot, key, entry);
+        } else {
+            write(slot + 1, key, entry);
+        }
+    }
+
+    private void write(int slot, long key, long entry) {
+        keys.setOpaque(slot, key ^ entry);
+        data.setOpaque(slot, entry);
+    }
+
+    private long pack(int move, int value, int depth, int bound) {
+        long moveBits = move == DotsAndBoxesMove.NO_MOVE ? NO_MOVE_BITS : move;
+        return moveBits
+                | ((long) (value + 32768) << 31)
+                | ((long) Math.min(depth, 255) << 47)
+                | ((long) bound << 55)
+                | ((long) generation << 57);
+    }
+
+    // Accessors for packed entries returned by probe
+
+    public static int moveOf(long entry) {
+        int move = (int) (entry & NO_MOVE_BITS);
+        return move == NO_MOVE_BITS ? DotsAndBoxesMove.NO_MOVE : move;
+    }
+
+    public static int valueOf(long entry) {
+        return (int) ((entry >>> 31) & 0xFFFF) - 32768;
+    }
+
+    public static int depthOf(long entry) {
+        return (int) ((entry >>> 47) & 0xFF);
+    }
+
+    public static int boundOf(long entry) {
+        return (int) ((entry >>> 55) & 0x3);
+    }
+
+    private static int generationOf(long entry) {
+        return (int) (entry >>> 57);
+    }
+}
@@ -0,0 +1,513 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WalkingDistance.java
+ * Walking distance tables for the sliding puzzle.
+ *
+ * Looking only at rows, a board is a table of counts: how many tiles in
+ * row r belong in row g, plus the row of the empty space. A vertical move
+ * takes one tile from the row above or below the empty space into its row,
+ * and horizontal moves change nothing. The fewest vertical moves that sort
+ * every tile into its goal row is the walking distance of that projection.
+ * It is at least the vertical part of the Manhattan distance, since it also
+ * counts tiles that have to wait for each other, and the same table read
+ * by columns bounds the horizontal moves. The sum of both is a lower bound
+ * on the solution length.
+ *
+ * A table covers projections of a number of lines (rows, or columns) of
+ * equal width. Distances are stored one byte per state, at the state's
+ * rank: lines are ranked one after another among the count vectors that
+ * still fit the goal counts left over by the lines before, using a small
+ * table of offsets per line and leftover counts. Tables of up to
+ * LINKED_STATES states also hold every state's successor for each move,
+ * so a solver follows its board through them one array read per vertical
+ * (or horizontal) move. Larger tables keep no links: a solver's state is
+ * then the packed code of its counts, a move changes two counts and the
+ * empty line by a little arithmetic on the code, and every lookup ranks it.
+ *
+ * Tables are built for 3 to 5 lines of 3 to 5 cells by one breadth-first
+ * search from the solved projection. Tables of up to ON_DEMAND_STATES
+ * states, five lines of four (six million states) included, are built the
+ * first time they are asked for, in a couple of seconds at most. Five
+ * lines of five have 66 million states, so that table is built offline
+ * into a file next to the pattern databases (see
+ * PatternDatabase.getDirectory) and mapped from there.
+ *
+ * Usage: java [-Dpuzzle.pdb.dir=dir] WalkingDistance [lines] [width]
+ *        (writes the table file of that shape)
+ *
+ * @author Priyanshu and Lyu
+ * @version 1.1
+ */
+public final class WalkingDistance {
+    public static final int MIN_LINES = 3;
+    public static final int MAX_LINES = 5;
+    /** Largest table built on demand; larger ones are read from files */
+    public static final int ON_DEMAND_STATES = 1 << 23;
+    /** Largest table that stores successor links (40 bytes per state for five lines) */
+    public static final int LINKED_STATES = 1 << 20;
+
+    // Bits per count in a packed state
+    private static final int COUNT_BITS = 3;
+    private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+    private static final int MAGIC = 0x57445431;  // "WDT1"
+    private static final int UNREACHED = 0xFF;
+
+    // Tables by shape; a shape without a table maps to an empty Optional
+    private static final ConcurrentHashMap<Integer, Optional<WalkingDistance>> TABLES = new ConcurrentHashMap<>();
+
+    private final int lines;
+    private final int width;
+    // Bit position of the empty line in a code; line l's counts sit rowShift[l] bits up
+    private final int emptyShift;
+    private final int[] rowShift;
+    private final int rowMask;
+    // For each packed line of counts: its number among all count vectors,
+    // and the vector as a number in base width + 1, or -1 if the counts
+    // add up to more than width
+    private final int[] vectorOf;
+    private final int[] radixOf;
+    // For each packed line: how far its node's offsets are from the next line's
+    private final int[] advanceOf;
+    private final int vectors;
+    private final int leftovers;
+    // offsets[((empty * (lines - 1) + line) * leftovers + left) * vectors + vector]
+    // = states of that empty line before the first one with that vector in
+    // that line, among those whose earlier lines left those goal counts over
+    private final int[] offsets;
+    // firstRank[e] = rank of the first state with the empty space in line e
+    private final int[] firstRank;
+    private final int states;
+    // distances.get(rank) = walking distance of the state
+    private ByteBuffer distances;
+    // links[(rank * 2 + dir) * lines + goal] = rank after moving a tile of
+    // that goal line into the empty line from the line before (dir 0) or
+    // after (dir 1) it, or -1 if there is no such tile; null if not kept
+    private int[] links;
+
+    private WalkingDistance(int lines, int width) {
+        this.lines = lines;
+        this.width = width;
+
+        int goals = lines - 1;
+        emptyShift = COUNT_BITS * lines * goals;
+        rowShift = new int[lines];
+        for (int line = 0; line < lines; line++) {
+            rowShift[line] = COUNT_BITS * goals * (lines - 1 - line);
+        }
+        rowMask = (1 << (COUNT_BITS * goals)) - 1;
+
+        // Number the count vectors of one line: goals counts adding up to at most width
+        vectorOf = new int[rowMask + 1];
+        radixOf = new int[rowMask + 1];
+        int count = 0;
+        for (int packed = 0; packed <= rowMask; packed++) {
+            int sum = 0;
+            int radix = 0;
+            for (int goal = 0, power = 1; goal < goals; goal++, power *= width + 1) {
+                int value = (packed >>> (COUNT_BITS * (goals - 1 - goal))) & COUNT_MASK;
+                sum += value;
+                radix += value * power;
+            }
+            vectorOf[packed] = sum <= width ? count++ : -1;
+            radixOf[packed] = radix;
+        }
+        vectors = count;
+        int combinations = 1;
+        for (int goal = 0; goal < goals; goal++) combinations *= width + 1;
+        leftovers = combinations;
+        advanceOf = new int[rowMask + 1];
+        for (int packed = 0; packed <= rowMask; packed++) {
+            advanceOf[packed] = (leftovers - radixOf[packed]) * vectors;
+        }
+
+        offsets = new int[lines * goals * leftovers * vectors];
+        firstRank = new int[lines];
+        int[] packedOf = new int[vectors];
+        for (int packed = 0; packed <= rowMask; packed++) {
+            if (vectorOf[packed] >= 0) packedOf[vectorOf[packed]] = packed;
+        }
+        int full = leftovers - 1;
+
+        // completions[line][left] counts the ways to fill the lines from
+        // 'line' on, given the goal counts left over (the last goal follows
+        // from the others); filled from the last line back
+
+        long total = 0;
+        for (int empty = 0; empty < lines; empty++) {
+            long[][] completions = new long[lines][leftovers];
+            for (int left = 0; left < leftovers; left++) {
+                // The last line takes whatever is left
+                completions[lines - 1][left] = lastGoalLeft(empty, lines - 1, digitSum(left)) >= 0 ? 1 : 0;
+            }
+            for (int line = lines - 2; line >= 0; line--) {
+                for (int left = 0; left < leftovers; left++) {
+                    int sum = digitSum(left);
+                    int lastLeft = lastGoalLeft(empty, line, sum);
+                    if (lastLeft < 0) continue;
+                    int base = ((empty * goals + line) * leftovers + left) * vectors;
+                    long ways = 0;
+                    for (int vector = 0; vector < vectors; vector++) {
+                        int packed = packedOf[vector];
+                        offsets[base + vector] = (int) ways;
+                        if (!fits(packed, left, lastLeft, lineSize(empty, line))) continue;
+                        ways += completions[line + 1][left - radixOf[packed]];
+                    }
+                    completions[line][left] = ways;
+                }
+            }
+            firstRank[empty] = (int) total;
+            total += completions[0][full];
+            if (total > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many states for " + lines + " lines of " + width);
+            }
+        }
+        states = (int) total;
+    }
+
+    /**
+     * Sum of the goal counts held in a leftover number
+     */
+    private int digitSum(int left) {
+        int sum = 0;
+        for (int goal = 0; goal < lines - 1; goal++, left /= width + 1) sum += left % (width + 1);
+        return sum;
+    }
+
+    /**
+     * Tiles in a line: the empty space takes one cell of its line
+     */
+    private int lineSize(int empty, int line) {
+        return line == empty ? width - 1 : width;
+    }
+
+    /**
+     * Tiles of the last goal line still to place from a line on, given how
+     * many of the other goals are still to place, or -1 if that is negative
+     */
+    private int lastGoalLeft(int empty, int line, int otherLeft) {
+        int tiles = 0;
+        for (int l = line; l < lines; l++) tiles += lineSize(empty, l);
+        int lastLeft = tiles - otherLeft;
+        return lastLeft <= width - 1 ? lastLeft : -1;
+    }
+
+    /**
+     * Whether a line's counts fit in what is left over
+     */
+    private boolean fits(int packed, int left, int lastLeft, int size) {
+        int sum = 0;
+        for (int goal = lines - 2; goal >= 0; goal--, packed >>>= COUNT_BITS) {
+            int value = packed & COUNT_MASK;
+            int room = left;
+            for (int g = 0; g < goal; g++) room /= width + 1;
+            if (value > room % (width + 1)) return false;
+            sum += value;
+        }
+        return sum <= size && size - sum <= lastLeft;
+    }
+
+    /**
+     * Gets the shared table for projections of a number of lines of equal width,
+     * building it on first use if it is small enough, or else mapping its file
+     * @param lines number of lines the tiles are sorted into
+     * @param width cells per line
+     * @return the table, or null if there is none for that shape (or its file is missing)
+     */
+    public static WalkingDistance get(int lines, int width) {
+        if (lines < MIN_LINES || lines > MAX_LINES || width < MIN_LINES || width > MAX_LINES) return null;
+        return TABLES.computeIfAbsent(lines * (MAX_LINES + 1) + width, key -> {
+            WalkingDistance table = new WalkingDistance(lines, width);
+            if (table.states <= ON_DEMAND_STATES) {
+                table.links = table.states <= LINKED_STATES ? new int[table.states * 2 * lines] : null;
+                table.distances = ByteBuffer.wrap(table.search(table.links));
+                return Optional.of(table);
+            }
+            try {
+                Path file = defaultFile(lines, width);
+                if (!Files.isRegularFile(file)) return Optional.empty();
+                table.distances = table.load(file);
+                return Optional.of(table);
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Gets the table for the row projection of a board
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the table, or null if there is none for that size
+     */
+    public static WalkingDistance forRows(int rows, int cols) {
+        return get(rows, cols);
+    }
+
+    /**
+     * Gets the table for the column projection of a board
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return the table, or null if there is none for that size
+     */
+    public static WalkingDistance forColumns(int rows, int cols) {
+        return get(cols, rows);
+    }
+
+    /**
+     * Gets the file get maps the table of a shape from
+     * @param lines number of lines
+     * @param width cells per line
+     * @return path inside PatternDatabase.getDirectory()
+     */
+    public static Path defaultFile(int lines, int width) {
+        return PatternDatabase.getDirectory().resolve("walking-" + lines + "x" + width + ".wd");
+    }
+
+    /**
+     * Builds the table of a shape and writes its distances to a file, next
+     * to its final name first so readers never see half of it
+     * @param lines number of lines (MIN_LINES to MAX_LINES)
+     * @param width cells per line (MIN_LINES to MAX_LINES)
+     * @param file where to write the table
+     * @throws IllegalArgumentException if the shape is out of range
+     * @throws IOException if the file cannot be written
+     */
+    public static void build(int lines, int width, Path file) throws IOException {
+        if (lines < MIN_LINES || lines > MAX_LINES || width < MIN_LINES || width > MAX_LINES) {
+            throw new IllegalArgumentException("Walking distance tables need " + MIN_LINES + " to "
+                    + MAX_LINES + " lines of " + MIN_LINES + " to " + MAX_LINES + " cells");
+        }
+        WalkingDistance table = new WalkingDistance(lines, width);
+        byte[] distances = table.search(null);
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(lines);
+            out.writeInt(width);
+            out.writeInt(table.states);
+            out.write(distances);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        TABLES.remove(lines * (MAX_LINES + 1) + width);
+    }
+
+    /**
+     * Maps the distances of a file written by build
+     */
+    private ByteBuffer load(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != 16L + states) {
+                throw new IOException("Not a walking distance table of " + lines + " lines of " + width + ": " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.getInt(0) != MAGIC || data.getInt(4) != lines || data.getInt(8) != width
+                || data.getInt(12) != states) {
+            throw new IOException("Corrupt walking distance table: " + file);
+        }
+        return data.position(16).slice();
+    }
+
+    /**
+     * Breadth-first search from the solved projection, one layer of codes
+     * at a time
+     * @param link where to store the successor links, or null
+     * @return distance of every state by rank
+     */
+    private byte[] search(int[] link) {
+        byte[] dist = new byte[states];
+        Arrays.fill(dist, (byte) UNREACHED);
+
+        int[] counts = new int[lines * lines];
+        for (int line = 0; line < lines; line++) {
+            counts[line * lines + line] = width;
+        }
+        counts[lines * lines - 1]--;
+        long start = encode(counts, lines - 1);
+        dist[rank(start)] = 0;
+
+        long[] current = { start };
+        int currentSize = 1;
+        long[] next = new long[1024];
+        for (int depth = 1; currentSize > 0; depth++) {
+            int nextSize = 0;
+            for (int i = 0; i < currentSize; i++) {
+                long code = current[i];
+                int empty = decode(code, counts);
+                int slot = rank(code) * 2 * lines;
+                for (int from = empty - 1; from <= empty + 1; from += 2, slot += lines) {
+                    if (link != null) Arrays.fill(link, slot, slot + lines, -1);
+                    if (from < 0 || from >= lines) continue;
+                    for (int goal = 0; goal < lines; goal++) {
+                        if (counts[from * lines + goal] == 0) continue;
+                        long moved = move(code, from > empty, goal);
+                        int rank = rank(moved);
+                        if (link != null) link[slot + goal] = rank;
+                        if ((dist[rank] & 0xFF) != UNREACHED) continue;
+                        dist[rank] = (byte) depth;
+                        if (nextSize == next.length) next = Arrays.copyOf(next, 2 * nextSize);
+                        next[nextSize++] = moved;
+                    }
+                }
+            }
+            long[] swap = current;
+            current = next;
+            currentSize = nextSize;
+            next = swap;
+        }
+        return dist;
+    }
+
+    /**
+     * Packs the counts of all but the last goal line (the last follows from
+     * the line width) and the empty line
+     */
+    private long encode(int[] counts, int empty) {
+        long code = empty;
+        for (int line = 0; line < lines; line++) {
+            for (int goal = 0; goal < lines - 1; goal++) {
+                code = code << COUNT_BITS | counts[line * lines + goal];
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Unpacks a state into counts
+     * @return the empty line
+     */
+    private int decode(long code, int[] counts) {
+        for (int line = lines - 1; line >= 0; line--) {
+            int rest = width;
+            for (int goal = lines - 2; goal >= 0; goal--) {
+                counts[line * lines + goal] = (int) (code & COUNT_MASK);
+                rest -= counts[line * lines + goal];
+                code >>>= COUNT_BITS;
+            }
+            counts[line * lines + lines - 1] = rest;
+        }
+        int empty = (int) code;
+        counts[empty * lines + lines - 1]--;
+        return empty;
+    }
+
+    /**
+     * Ranks a state among all states of the table
+     */
+    private int rank(long code) {
+        int empty = (int) (code >>> emptyShift);
+        int rank = firstRank[empty];
+        // Offsets of the first line's node: nothing placed yet, everything left over
+        int node = (empty * (lines - 1) * leftovers + leftovers - 1) * vectors;
+        for (int line = 0; line < lines - 1; line++) {
+            int packed = (int) (code >>> rowShift[line]) & rowMask;
+            rank += offsets[node + vectorOf[packed]];
+            node += advanceOf[packed];
+        }
+        return rank;
+    }
+
+    /**
+     * Finds the state of a board's projection
+     * @param board board of a size this table covers
+     * @param byColumns false for the row projection, true for the column one
+     * @return state: its rank if the table keeps links, else its packed code
+     * @throws IllegalArgumentException if the board does not match the table
+     */
+    public long stateOf(PuzzleBoard board, boolean byColumns) {
+        int rows = board.getRowCount();
+        int cols = board.getColCount();
+        if ((byColumns ? cols : rows) != lines || (byColumns ? rows : cols) != width) {
+            throw new IllegalArgumentException("Table is for " + lines + " lines of " + width + " cells");
+        }
+
+        int[] counts = new int[lines * lines];
+        for (int pos = 0; pos < rows * cols; pos++) {
+            int tile = board.getTileAt(pos);
+            if (tile == 0) continue;
+            int line = byColumns ? pos % cols : pos / cols;
+            int goal = byColumns ? (tile - 1) % cols : (tile - 1) / cols;
+            counts[line * lines + goal]++;
+        }
+        int empty = board.getEmptyPosition();
+        long code = encode(counts, byColumns ? empty % cols : empty / cols);
+        return links != null ? rank(code) : code;
+    }
+
+    /**
+     * Gets the walking distance of a state
+     * @param state state (see stateOf)
+     * @return fewest moves along the projected axis
+     */
+    public int distance(long state) {
+        return distances.get(links != null ? (int) state : rank(state)) & 0xFF;
+    }
+
+    /**
+     * Follows a move along the projected axis
+     * @param state state before the move (see stateOf)
+     * @param fromAfter true if the tile comes from the line after the empty
+     *        space (below or to the right), false if from the line before
+     * @param goal goal line of the moving tile, which must be in that line
+     * @return state after the move
+     */
+    public long next(long state, boolean fromAfter, int goal) {
+        if (links != null) return links[((int) state * 2 + (fromAfter ? 1 : 0)) * lines + goal];
+        return move(state, fromAfter, goal);
+    }
+
+    /**
+     * Moves a tile of a goal line into the empty line of a packed code
+     */
+    private long move(long code, boolean fromAfter, int goal) {
+        int empty = (int) (code >>> emptyShift);
+        int from = fromAfter ? empty + 1 : empty - 1;
+        // The last goal's count is not stored: only the empty line moves
+        if (goal < lines - 1) {
+            int shift = COUNT_BITS * (lines - 2 - goal);
+            code += (1L << (rowShift[empty] + shift)) - (1L << (rowShift[from] + shift));
+        }
+        return code & ~(-1L << emptyShift) | (long) from << emptyShift;
+    }
+
+    /**
+     * Gets how many states the table holds
+     * @return state count
+     */
+    public int getStateCount() {
+        return states;
+    }
+
+    /**
+     * Builds the table file of a shape into PatternDatabase.getDirectory()
+     */
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : MAX_LINES;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : lines;
+
+        Path file = defaultFile(lines, width);
+        ColorPrinter.printlnCyan("Building the walking distance table of " + lines + " lines of " + width + "...");
+        long start = System.nanoTime();
+        build(lines, width, file);
+        System.out.printf("Wrote %s (%d bytes) in %.1f s%n", file, Files.size(file),
+                (System.nanoTime() - start) / 1e9);
+    }
+}